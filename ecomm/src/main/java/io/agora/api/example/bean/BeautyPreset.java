@@ -0,0 +1,282 @@
+package io.agora.api.example.bean;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Full effect state across beauty, face shape, makeup, color enhance,
+ * low-light, denoise and filter, applied as one unit. Effects are grouped by
+ * the engine call that sets them, bit i of a {@link #diff} mask is
+ * GROUP_NAMES[i].
+ */
+public class BeautyPreset {
+    public static final int GROUP_BEAUTY = 1;
+    public static final int GROUP_FACE_SHAPE = 1 << 1;
+    public static final int GROUP_FACE_AREA = 1 << 2;
+    public static final int GROUP_MAKEUP = 1 << 3;
+    public static final int GROUP_COLOR_ENHANCE = 1 << 4;
+    public static final int GROUP_LOW_LIGHT = 1 << 5;
+    public static final int GROUP_DENOISE = 1 << 6;
+    public static final int GROUP_FILTER = 1 << 7;
+    public static final int GROUP_FILTER_STRENGTH = 1 << 8;
+
+    public static final String[] GROUP_NAMES = {
+        "beauty", "faceShape", "faceArea", "makeup", "colorEnhance",
+        "lowLight", "denoise", "filter", "filterStrength"
+    };
+    public static final int ALL_GROUPS = (1 << GROUP_NAMES.length) - 1;
+
+    private static final int FLAG_BEAUTY = 1;
+    private static final int FLAG_FACE_SHAPE = 1 << 1;
+    private static final int FLAG_MAKEUP = 1 << 2;
+    private static final int FLAG_COLOR_ENHANCE = 1 << 3;
+    private static final int FLAG_LOW_LIGHT = 1 << 4;
+    private static final int FLAG_DENOISE = 1 << 5;
+    private static final int FLAG_FILTER = 1 << 6;
+
+    public String name;
+
+    public boolean beautyEnabled;
+    public int lighteningContrastLevel;
+    public float lighteningLevel;
+    public float rednessLevel;
+    public float sharpnessLevel;
+    public float smoothnessLevel;
+
+    public boolean faceShapeEnabled;
+    public int shapeStyle;
+    public int styleIntensity;
+    public int shapeArea;
+    public int shapeAreaIntensity;
+
+    public final MpOptions makeUp = new MpOptions();
+
+    public boolean colorEnhanceEnabled;
+    public float colorStrength;
+    public float skinProtect;
+
+    public boolean lowLightEnabled;
+    public boolean denoiseEnabled;
+
+    /**
+     * Filter file, null when no filter is applied
+     */
+    public String filterPath;
+    public float filterStrength;
+
+    public BeautyPreset() {
+        this.name = "";
+        this.lighteningContrastLevel = 1;
+        this.shapeArea = -1;
+        this.colorStrength = 0.5f;
+        this.skinProtect = 1.0f;
+        this.filterStrength = 0.5f;
+    }
+
+    /**
+     * Compare with another state, returns a mask with a GROUP_* bit set for
+     * every engine call needed to go from the other state to this one. The
+     * parameters of an effect that is off in both states are not compared,
+     * they are sent along when the effect is switched on.
+     */
+    public int diff(BeautyPreset other) {
+        int mask = 0;
+        if (beautyEnabled != other.beautyEnabled
+                || beautyEnabled && (lighteningContrastLevel != other.lighteningContrastLevel
+                || Float.compare(lighteningLevel, other.lighteningLevel) != 0
+                || Float.compare(rednessLevel, other.rednessLevel) != 0
+                || Float.compare(sharpnessLevel, other.sharpnessLevel) != 0
+                || Float.compare(smoothnessLevel, other.smoothnessLevel) != 0)) {
+            mask |= GROUP_BEAUTY;
+        }
+        if (faceShapeEnabled != other.faceShapeEnabled
+                || faceShapeEnabled && (shapeStyle != other.shapeStyle || styleIntensity != other.styleIntensity)) {
+            mask |= GROUP_FACE_SHAPE;
+        }
+        if (faceShapeEnabled && (shapeArea != other.shapeArea || shapeAreaIntensity != other.shapeAreaIntensity)) {
+            mask |= GROUP_FACE_AREA;
+        }
+        if (makeUp.enable_mu != other.makeUp.enable_mu || makeUp.enable_mu && makeUp.diff(other.makeUp) != 0) {
+            mask |= GROUP_MAKEUP;
+        }
+        if (colorEnhanceEnabled != other.colorEnhanceEnabled
+                || colorEnhanceEnabled && (Float.compare(colorStrength, other.colorStrength) != 0
+                || Float.compare(skinProtect, other.skinProtect) != 0)) {
+            mask |= GROUP_COLOR_ENHANCE;
+        }
+        if (lowLightEnabled != other.lowLightEnabled) {
+            mask |= GROUP_LOW_LIGHT;
+        }
+        if (denoiseEnabled != other.denoiseEnabled) {
+            mask |= GROUP_DENOISE;
+        }
+        if (filterPath == null ? other.filterPath != null : !filterPath.equals(other.filterPath)) {
+            mask |= GROUP_FILTER;
+        } else if (filterPath != null && Float.compare(filterStrength, other.filterStrength) != 0) {
+            mask |= GROUP_FILTER_STRENGTH;
+        }
+        return mask;
+    }
+
+    /**
+     * Copy every field except the name from another state
+     */
+    public void copyFrom(BeautyPreset other) {
+        beautyEnabled = other.beautyEnabled;
+        lighteningContrastLevel = other.lighteningContrastLevel;
+        lighteningLevel = other.lighteningLevel;
+        rednessLevel = other.rednessLevel;
+        sharpnessLevel = other.sharpnessLevel;
+        smoothnessLevel = other.smoothnessLevel;
+        faceShapeEnabled = other.faceShapeEnabled;
+        shapeStyle = other.shapeStyle;
+        styleIntensity = other.styleIntensity;
+        shapeArea = other.shapeArea;
+        shapeAreaIntensity = other.shapeAreaIntensity;
+        makeUp.copyFrom(other.makeUp);
+        colorEnhanceEnabled = other.colorEnhanceEnabled;
+        colorStrength = other.colorStrength;
+        skinProtect = other.skinProtect;
+        lowLightEnabled = other.lowLightEnabled;
+        denoiseEnabled = other.denoiseEnabled;
+        filterPath = other.filterPath;
+        filterStrength = other.filterStrength;
+    }
+
+    /**
+     * Describe a diff mask, e.g. "beauty,filterStrength"
+     */
+    public static String describe(int mask) {
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < GROUP_NAMES.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                if (names.length() > 0) {
+                    names.append(',');
+                }
+                names.append(GROUP_NAMES[i]);
+            }
+        }
+        return names.toString();
+    }
+
+    /**
+     * Write the preset in binary form: on/off switches packed into one byte,
+     * styles and colors as bytes, levels as floats
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        int flags = 0;
+        if (beautyEnabled) {
+            flags |= FLAG_BEAUTY;
+        }
+        if (faceShapeEnabled) {
+            flags |= FLAG_FACE_SHAPE;
+        }
+        if (makeUp.enable_mu) {
+            flags |= FLAG_MAKEUP;
+        }
+        if (colorEnhanceEnabled) {
+            flags |= FLAG_COLOR_ENHANCE;
+        }
+        if (lowLightEnabled) {
+            flags |= FLAG_LOW_LIGHT;
+        }
+        if (denoiseEnabled) {
+            flags |= FLAG_DENOISE;
+        }
+        if (filterPath != null) {
+            flags |= FLAG_FILTER;
+        }
+        out.writeUTF(name);
+        out.writeByte(flags);
+
+        out.writeByte(lighteningContrastLevel);
+        out.writeFloat(lighteningLevel);
+        out.writeFloat(rednessLevel);
+        out.writeFloat(sharpnessLevel);
+        out.writeFloat(smoothnessLevel);
+
+        out.writeByte(shapeStyle);
+        out.writeByte(styleIntensity);
+        out.writeByte(shapeArea);
+        out.writeByte(shapeAreaIntensity);
+
+        out.writeByte(makeUp.browStyle);
+        out.writeByte(makeUp.browColor);
+        out.writeFloat(makeUp.browStrength);
+        out.writeByte(makeUp.lashStyle);
+        out.writeByte(makeUp.lashColor);
+        out.writeFloat(makeUp.lashStrength);
+        out.writeByte(makeUp.shadowStyle);
+        out.writeFloat(makeUp.shadowStrength);
+        out.writeByte(makeUp.pupilStyle);
+        out.writeFloat(makeUp.pupilStrength);
+        out.writeByte(makeUp.blushStyle);
+        out.writeByte(makeUp.blushColor);
+        out.writeFloat(makeUp.blushStrength);
+        out.writeByte(makeUp.lipStyle);
+        out.writeByte(makeUp.lipColor);
+        out.writeFloat(makeUp.lipStrength);
+
+        out.writeFloat(colorStrength);
+        out.writeFloat(skinProtect);
+
+        if (filterPath != null) {
+            out.writeUTF(filterPath);
+            out.writeFloat(filterStrength);
+        }
+    }
+
+    /**
+     * Read a preset written by {@link #writeTo}
+     */
+    public static BeautyPreset readFrom(DataInputStream in) throws IOException {
+        BeautyPreset preset = new BeautyPreset();
+        preset.name = in.readUTF();
+        int flags = in.readUnsignedByte();
+        preset.beautyEnabled = (flags & FLAG_BEAUTY) != 0;
+        preset.faceShapeEnabled = (flags & FLAG_FACE_SHAPE) != 0;
+        preset.makeUp.enable_mu = (flags & FLAG_MAKEUP) != 0;
+        preset.colorEnhanceEnabled = (flags & FLAG_COLOR_ENHANCE) != 0;
+        preset.lowLightEnabled = (flags & FLAG_LOW_LIGHT) != 0;
+        preset.denoiseEnabled = (flags & FLAG_DENOISE) != 0;
+
+        preset.lighteningContrastLevel = in.readByte();
+        preset.lighteningLevel = in.readFloat();
+        preset.rednessLevel = in.readFloat();
+        preset.sharpnessLevel = in.readFloat();
+        preset.smoothnessLevel = in.readFloat();
+
+        preset.shapeStyle = in.readByte();
+        preset.styleIntensity = in.readByte();
+        preset.shapeArea = in.readByte();
+        preset.shapeAreaIntensity = in.readByte();
+
+        MpOptions makeUp = preset.makeUp;
+        makeUp.browStyle = in.readByte();
+        makeUp.browColor = in.readByte();
+        makeUp.browStrength = in.readFloat();
+        makeUp.lashStyle = in.readByte();
+        makeUp.lashColor = in.readByte();
+        makeUp.lashStrength = in.readFloat();
+        makeUp.shadowStyle = in.readByte();
+        makeUp.shadowStrength = in.readFloat();
+        makeUp.pupilStyle = in.readByte();
+        makeUp.pupilStrength = in.readFloat();
+        makeUp.blushStyle = in.readByte();
+        makeUp.blushColor = in.readByte();
+        makeUp.blushStrength = in.readFloat();
+        makeUp.lipStyle = in.readByte();
+        makeUp.lipColor = in.readByte();
+        makeUp.lipStrength = in.readFloat();
+
+        preset.colorStrength = in.readFloat();
+        preset.skinProtect = in.readFloat();
+
+        if ((flags & FLAG_FILTER) != 0) {
+            preset.filterPath = in.readUTF();
+            preset.filterStrength = in.readFloat();
+        }
+        return preset;
+    }
+}
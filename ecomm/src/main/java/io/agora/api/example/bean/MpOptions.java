@@ -1,13 +1,22 @@
 package io.agora.api.example.bean;
 
-import android.util.Log;
-
-import org.json.JSONObject;
-
-import java.lang.reflect.Field;
-
 public class MpOptions {
     public static final String TAG = "MpOptions";
+    private static final int JSON_CAPACITY = 512;
+
+    /**
+     * Field names in declaration order, bit i of a {@link #diff} mask is FIELD_NAMES[i]
+     */
+    public static final String[] FIELD_NAMES = {
+        "enable_mu",
+        "browStyle", "browColor", "browStrength",
+        "lashStyle", "lashColor", "lashStrength",
+        "shadowStyle", "shadowStrength",
+        "pupilStyle", "pupilStrength",
+        "blushStyle", "blushColor", "blushStrength",
+        "lipStyle", "lipColor", "lipStrength"
+    };
+    public static final int ALL_FIELDS = (1 << FIELD_NAMES.length) - 1;
 
     /**
      * key:
@@ -59,6 +68,9 @@ public class MpOptions {
     public int lipColor;
     public float lipStrength;
 
+    // Reused by toJson
+    private final StringBuilder jsonBuilder = new StringBuilder(JSON_CAPACITY);
+
     public MpOptions() {
         this.enable_mu = false;
         this.browStyle = 0;
@@ -79,23 +91,151 @@ public class MpOptions {
         this.lipStrength = 0.5f;
     }
 
-    public String toJson() {
-        String json = "{}";
-        JSONObject jsonObject = new JSONObject();
-
-        try {
-            Field[] fields = MpOptions.class.getDeclaredFields();
-            for (Field field : fields) {
-                field.setAccessible(true);
-                String name = field.getName();
-                Object value = field.get(this);
-                jsonObject.put(name, value);
+    /**
+     * Compare with another state field by field, returns a mask with bit i set
+     * when FIELD_NAMES[i] differs, 0 when nothing changed
+     */
+    public int diff(MpOptions other) {
+        int mask = 0;
+        if (enable_mu != other.enable_mu) {
+            mask |= 1;
+        }
+        if (browStyle != other.browStyle) {
+            mask |= 1 << 1;
+        }
+        if (browColor != other.browColor) {
+            mask |= 1 << 2;
+        }
+        if (Float.compare(browStrength, other.browStrength) != 0) {
+            mask |= 1 << 3;
+        }
+        if (lashStyle != other.lashStyle) {
+            mask |= 1 << 4;
+        }
+        if (lashColor != other.lashColor) {
+            mask |= 1 << 5;
+        }
+        if (Float.compare(lashStrength, other.lashStrength) != 0) {
+            mask |= 1 << 6;
+        }
+        if (shadowStyle != other.shadowStyle) {
+            mask |= 1 << 7;
+        }
+        if (Float.compare(shadowStrength, other.shadowStrength) != 0) {
+            mask |= 1 << 8;
+        }
+        if (pupilStyle != other.pupilStyle) {
+            mask |= 1 << 9;
+        }
+        if (Float.compare(pupilStrength, other.pupilStrength) != 0) {
+            mask |= 1 << 10;
+        }
+        if (blushStyle != other.blushStyle) {
+            mask |= 1 << 11;
+        }
+        if (blushColor != other.blushColor) {
+            mask |= 1 << 12;
+        }
+        if (Float.compare(blushStrength, other.blushStrength) != 0) {
+            mask |= 1 << 13;
+        }
+        if (lipStyle != other.lipStyle) {
+            mask |= 1 << 14;
+        }
+        if (lipColor != other.lipColor) {
+            mask |= 1 << 15;
+        }
+        if (Float.compare(lipStrength, other.lipStrength) != 0) {
+            mask |= 1 << 16;
+        }
+        return mask;
+    }
+
+    /**
+     * Copy every field from another state
+     */
+    public void copyFrom(MpOptions other) {
+        enable_mu = other.enable_mu;
+        browStyle = other.browStyle;
+        browColor = other.browColor;
+        browStrength = other.browStrength;
+        lashStyle = other.lashStyle;
+        lashColor = other.lashColor;
+        lashStrength = other.lashStrength;
+        shadowStyle = other.shadowStyle;
+        shadowStrength = other.shadowStrength;
+        pupilStyle = other.pupilStyle;
+        pupilStrength = other.pupilStrength;
+        blushStyle = other.blushStyle;
+        blushColor = other.blushColor;
+        blushStrength = other.blushStrength;
+        lipStyle = other.lipStyle;
+        lipColor = other.lipColor;
+        lipStrength = other.lipStrength;
+    }
+
+    /**
+     * Describe a diff mask, e.g. "lipStrength,lipColor"
+     */
+    public static String describe(int mask) {
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < FIELD_NAMES.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                if (names.length() > 0) {
+                    names.append(',');
+                }
+                names.append(FIELD_NAMES[i]);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "toJson: error:" + e.getMessage());
         }
-        json = jsonObject.toString();
-        Log.d(TAG, "toJson: " + json);
-        return json;
+        return names.toString();
+    }
+
+    /**
+     * Serialize the options as the makeup_options JSON, fields in declaration
+     * order. Runs on every makeup slider tick, so it is written out by hand
+     * into a reused builder: no reflection, no boxing, and the only allocation
+     * is the returned String.
+     */
+    public synchronized String toJson() {
+        StringBuilder json = jsonBuilder;
+        json.setLength(0);
+        json.append("{\"enable_mu\":").append(enable_mu);
+        appendInt(json, ",\"browStyle\":", browStyle);
+        appendInt(json, ",\"browColor\":", browColor);
+        appendFloat(json, ",\"browStrength\":", browStrength);
+        appendInt(json, ",\"lashStyle\":", lashStyle);
+        appendInt(json, ",\"lashColor\":", lashColor);
+        appendFloat(json, ",\"lashStrength\":", lashStrength);
+        appendInt(json, ",\"shadowStyle\":", shadowStyle);
+        appendFloat(json, ",\"shadowStrength\":", shadowStrength);
+        appendInt(json, ",\"pupilStyle\":", pupilStyle);
+        appendFloat(json, ",\"pupilStrength\":", pupilStrength);
+        appendInt(json, ",\"blushStyle\":", blushStyle);
+        appendInt(json, ",\"blushColor\":", blushColor);
+        appendFloat(json, ",\"blushStrength\":", blushStrength);
+        appendInt(json, ",\"lipStyle\":", lipStyle);
+        appendInt(json, ",\"lipColor\":", lipColor);
+        appendFloat(json, ",\"lipStrength\":", lipStrength);
+        json.append('}');
+        return json.toString();
+    }
+
+    private static void appendInt(StringBuilder json, String key, int value) {
+        json.append(key).append(value);
+    }
+
+    /**
+     * Numbers are written the way JSONObject does: whole values without a
+     * fraction. JSON has no NaN or infinity, those are written as 0.
+     */
+    private static void appendFloat(StringBuilder json, String key, float value) {
+        json.append(key);
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            json.append(0);
+        } else if (value == (long) value) {
+            json.append((long) value);
+        } else {
+            json.append(value);
+        }
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -12,6 +12,9 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 
 import io.agora.api.example.ecomm.R;
+import io.agora.api.example.examples.advanced.features.EffectStateJournal;
+import io.agora.api.example.examples.advanced.features.EnginePrewarmer;
+import io.agora.api.example.examples.advanced.features.LutPreloader;
 
 /**
  * EComm Video Process Activity - Used to load VideoProcessExtension Fragment
@@ -22,6 +25,15 @@ public class VideoProcessActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         
+        // Copy, parse and validate bundled LUTs off the UI thread
+        LutPreloader.getInstance(this).start();
+        
+        // Start reading the saved effect state, it is replayed once the engine is ready
+        EffectStateJournal.getInstance(this);
+        
+        // Create the RTC engine and load the extension while the views inflate
+        EnginePrewarmer.getInstance().start(this);
+        
         // Set full screen display
         setFullScreen();
         
@@ -41,11 +41,18 @@ import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
 
 import io.agora.api.example.ecomm.R;
+import io.agora.api.example.bean.BeautyPreset;
 import io.agora.api.example.bean.MpOptions;
 import io.agora.api.example.examples.advanced.device.CameraManager;
 import io.agora.api.example.examples.advanced.device.FocusController;
 import io.agora.api.example.examples.advanced.features.BeautyFeatureManager;
+import io.agora.api.example.examples.advanced.features.BeautyPresetManager;
+import io.agora.api.example.examples.advanced.features.EffectCostProfiler;
+import io.agora.api.example.examples.advanced.features.EffectQualityGovernor;
+import io.agora.api.example.examples.advanced.features.EffectStateJournal;
 import io.agora.api.example.examples.advanced.features.FilterManager;
+import io.agora.api.example.examples.advanced.features.LutPreloader;
+import io.agora.api.example.examples.advanced.features.PresetTransitioner;
 import io.agora.api.example.examples.advanced.features.RtcEngineManager;
 import io.agora.api.example.examples.advanced.features.RtcEventHandler;
 import io.agora.api.example.examples.advanced.ui.ControlPanelManager;
@@ -55,9 +62,12 @@ import io.agora.api.example.examples.advanced.ui.UiStateManager;
 import io.agora.api.example.examples.advanced.utils.PermissionHelper;
 import io.agora.api.example.examples.advanced.utils.RuntimeObjectManager;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 import io.agora.rtc2.Constants;
 import io.agora.rtc2.video.BeautyOptions;
@@ -89,7 +99,7 @@ public class VideoProcessExtensionRefactored extends Fragment implements
     private FrameLayout fl_local, fl_remote;
     private ScrollView controlPanel;
     private com.google.android.material.button.MaterialButton join;
-    private com.google.android.material.floatingactionbutton.FloatingActionButton switchCamera, zoomControl, selectFilter, localCube, manualFocus;
+    private com.google.android.material.floatingactionbutton.FloatingActionButton switchCamera, zoomControl, selectFilter, localCube, beautyPresets, manualFocus;
     private Switch shapeBeauty, makeUp, beauty, virtualBackground, lightness2, colorful2, noiseReduce2;
     private com.google.android.material.card.MaterialCardView joinControlPanel;
     private LinearLayout rightControlPanel;
@@ -119,9 +129,17 @@ public class VideoProcessExtensionRefactored extends Fragment implements
     private LanguageManager languageManager;
     private ControlPanelManager controlPanelManager;
     private PermissionHelper permissionHelper;
+    private EffectQualityGovernor qualityGovernor;
+    private EffectStateJournal stateJournal;
+    private EffectCostProfiler costProfiler;
+    private BeautyPresetManager presetManager;
+    private PresetTransitioner presetTransitioner;
     
     // State variables
     private boolean joined = false;
+    // Widgets being set from a preset, their listeners must not send the values again
+    private boolean syncingWidgets = false;
+    private final Set<AdapterView<?>> syncedSpinners = new HashSet<>();
     private BeautyOptions beautyOptions = new BeautyOptions();
     private MpOptions makeUpOptions = new MpOptions();
     private FaceShapeBeautyOptions faceShapeBeautyOptions = new FaceShapeBeautyOptions();
@@ -213,6 +231,7 @@ public class VideoProcessExtensionRefactored extends Fragment implements
             cameraManager = new CameraManager(context, null); // Set engine later
             focusController = new FocusController(context, null); // Set engine later
             eventHandler = new RtcEventHandler(context, null, this); // Set engine later
+            eventHandler.setEngineManager(engineManager);
             dialogManager = new DialogManager(context, filterManager, this);
         }
         
@@ -220,6 +239,7 @@ public class VideoProcessExtensionRefactored extends Fragment implements
         uiStateManager = new UiStateManager(context);
         languageManager = new LanguageManager(context);
         permissionHelper = new PermissionHelper(context);
+        presetManager = new BeautyPresetManager(context);
     }
     
     /**
@@ -229,22 +249,50 @@ public class VideoProcessExtensionRefactored extends Fragment implements
         engineManager.initializeEngine(eventHandler, new RtcEngineManager.EngineCallback() {
             @Override
             public void onEngineInitialized(io.agora.rtc2.RtcEngine engine) {
+                // A prewarmed engine can arrive after the Fragment is gone, it stays preserved for the next one
+                if (!isAdded()) {
+                    Log.d(TAG, "Engine ready after the Fragment was detached");
+                    return;
+                }
+                
                 // Update engine references in other managers
                 filterManager = new FilterManager(requireContext(), engine);
                 beautyManager = new BeautyFeatureManager(requireContext(), engine);
                 cameraManager = new CameraManager(requireContext(), engine);
                 focusController = new FocusController(requireContext(), engine);
-                eventHandler = new RtcEventHandler(requireContext(), engine, VideoProcessExtensionRefactored.this);
+                // The handler the engine calls back was created before the engine existed, bind it now
+                eventHandler.setEngine(engine);
                 dialogManager = new DialogManager(requireContext(), filterManager, VideoProcessExtensionRefactored.this);
                 
                 // Initialize camera zoom range
                 cameraManager.getSystemZoomRange();
                 
-                // Enable extensions and initialize properties - this is key!
-                engine.enableExtension("agora_video_filters_clear_vision", "clear_vision", true);
+                // The clear_vision extension is enabled where the engine is created, a failure arrives in onEngineError
+                
+                // Replay the effects of the previous session before the preview starts
+                stateJournal = EffectStateJournal.getInstance(requireContext());
+                stateJournal.restore(beautyManager, filterManager);
+                stateJournal.attach(beautyManager, filterManager);
+                
                 beautyManager.updateExtensionProperty();
                 beautyManager.updateFaceShapeBeautyStyleOptions();
                 
+                // Step expensive effects down when the device cannot keep the frame rate
+                qualityGovernor = new EffectQualityGovernor().addDefaultSteps(beautyManager);
+                engine.addHandler(qualityGovernor.getEventHandler());
+                
+                // Per-effect cost measurement, started by long-pressing the controls button
+                costProfiler = new EffectCostProfiler(requireContext(), beautyManager, filterManager);
+                costProfiler.setGovernor(qualityGovernor);
+                costProfiler.setListener(costProfileListener);
+                engine.addHandler(costProfiler.getEventHandler());
+                
+                // Preset switches fade between states, bound to the managers just created
+                if (presetTransitioner != null) {
+                    presetTransitioner.release();
+                }
+                presetTransitioner = new PresetTransitioner(beautyManager, filterManager);
+                
                 // Save runtime objects to static variables for language switching
                 RuntimeObjectManager.preserveRuntimeObjects(
                     engineManager, filterManager, beautyManager, cameraManager,
@@ -257,8 +305,16 @@ public class VideoProcessExtensionRefactored extends Fragment implements
             @Override
             public void onEngineError(String error) {
                 Log.e(TAG, "Engine initialization error: " + error);
+                if (!isAdded()) {
+                    return;
+                }
                 Toast.makeText(requireContext(), "Engine initialization failed: " + error, Toast.LENGTH_LONG).show();
             }
+            
+            @Override
+            public boolean isAttached() {
+                return isAdded();
+            }
         });
     }
 
@@ -277,6 +333,8 @@ public class VideoProcessExtensionRefactored extends Fragment implements
         selectFilter.setOnClickListener(this);
         localCube = view.findViewById(R.id.btn_local_cube);
         localCube.setOnClickListener(this);
+        beautyPresets = view.findViewById(R.id.btn_beauty_presets);
+        beautyPresets.setOnClickListener(this);
         manualFocus = view.findViewById(R.id.btn_manual_focus);
         manualFocus.setOnClickListener(this);
         rightControlPanel = view.findViewById(R.id.right_control_panel);
@@ -284,6 +342,7 @@ public class VideoProcessExtensionRefactored extends Fragment implements
         // Initialize control panel toggle button
         fabShowControls = view.findViewById(R.id.fab_show_controls);
         fabShowControls.setOnClickListener(this);
+        fabShowControls.setOnLongClickListener(v -> toggleCostProfile());
         
         // Initialize language selection button
         com.google.android.material.button.MaterialButton languageSelectionBtn = view.findViewById(R.id.btn_language_selection);
@@ -433,6 +492,29 @@ public class VideoProcessExtensionRefactored extends Fragment implements
             // Remove screen touch listeners
         }
         
+        // The governor drives this Fragment's managers, detach it from the engine
+        if (qualityGovernor != null && engineManager != null && engineManager.getEngine() != null) {
+            engineManager.getEngine().removeHandler(qualityGovernor.getEventHandler());
+            qualityGovernor = null;
+        }
+        if (costProfiler != null) {
+            costProfiler.setListener(null);
+            costProfiler.cancel();
+            if (engineManager != null && engineManager.getEngine() != null) {
+                engineManager.getEngine().removeHandler(costProfiler.getEventHandler());
+            }
+            costProfiler = null;
+        }
+        if (presetTransitioner != null) {
+            presetTransitioner.release();
+            presetTransitioner = null;
+        }
+        
+        // Persist a change still waiting for its capture delay
+        if (stateJournal != null) {
+            stateJournal.flush();
+        }
+        
         // Check if this is a language switch (Fragment recreation) or real destruction
         if (getActivity() != null && getActivity().isFinishing()) {
             // Activity is finishing, clean up all runtime objects
@@ -487,8 +569,10 @@ public class VideoProcessExtensionRefactored extends Fragment implements
         // Setup local video
         engineManager.setupLocalVideo(new VideoCanvas(surfaceView, RENDER_MODE_HIDDEN, 0));
         
-        // Join channel
-        engineManager.joinChannel(channelId, null);
+        // Join channel, a rejected join gives the join button back
+        if (!engineManager.joinChannel(channelId, null)) {
+            onChannelLost();
+        }
     }
 
     @Override
@@ -497,6 +581,8 @@ public class VideoProcessExtensionRefactored extends Fragment implements
             dialogManager.showFilterSelectionDialog();
         } else if (v.getId() == R.id.btn_local_cube) {
             dialogManager.showLocalCubeSelectionDialog();
+        } else if (v.getId() == R.id.btn_beauty_presets) {
+            dialogManager.showPresetDialog(presetManager.getPresetNames());
         } else if (v.getId() == R.id.btn_zoom_control) {
             if (cameraManager != null) {
                 dialogManager.showZoomControlDialog(
@@ -546,20 +632,80 @@ public class VideoProcessExtensionRefactored extends Fragment implements
                 };
                 permissionHelper.checkOrRequestPermission(permissionResultCallback);
             } else {
-                joined = false;
                 if (engineManager != null) {
                     engineManager.leaveChannel();
                 }
-                uiStateManager.updateUiForChannelLeft();
+                onChannelLost();
             }
         }
     }
 
+    /**
+     * Reset the channel UI and the effects that need a joined channel, on
+     * leave and when a join fails or the connection is lost
+     */
+    private void onChannelLost() {
+        joined = false;
+        if (costProfiler != null) {
+            costProfiler.cancel();
+        }
+        if (qualityGovernor != null) {
+            qualityGovernor.reset();
+        }
+        uiStateManager.updateUiForChannelLeft();
+    }
+
+    /**
+     * Start or stop measuring the cost of each effect, needs a joined channel for encoder stats
+     */
+    private boolean toggleCostProfile() {
+        if (costProfiler == null) {
+            return false;
+        }
+        if (costProfiler.isRunning()) {
+            costProfiler.cancel();
+            Toast.makeText(requireContext(), getString(R.string.cost_profile_cancelled), Toast.LENGTH_SHORT).show();
+            return true;
+        }
+        if (!joined) {
+            Toast.makeText(requireContext(), getString(R.string.cost_profile_join_first), Toast.LENGTH_SHORT).show();
+            return true;
+        }
+        // Profile the LUT the user picked, or the first bundled one
+        String lutPath = filterManager != null ? filterManager.getAppliedFilterPath() : null;
+        if (lutPath == null) {
+            List<LutPreloader.LutAsset> assets = LutPreloader.getInstance(requireContext()).getAssets();
+            lutPath = assets.isEmpty() ? null : assets.get(0).getPath();
+        }
+        if (costProfiler.start(lutPath)) {
+            Toast.makeText(requireContext(), getString(R.string.cost_profile_started,
+                    (int) (EffectCostProfiler.DEFAULT_DWELL_MS / 1000)), Toast.LENGTH_SHORT).show();
+        }
+        return true;
+    }
+
+    private final EffectCostProfiler.Listener costProfileListener = new EffectCostProfiler.Listener() {
+        @Override
+        public void onStageStarted(int index, int count, String stage) {
+            Log.d(TAG, "Cost profile stage " + (index + 1) + "/" + count + ": " + stage);
+        }
+
+        @Override
+        public void onFinished(List<EffectCostProfiler.StageResult> results, File csvFile, File jsonFile) {
+            if (!isAdded()) {
+                return;
+            }
+            String message = csvFile != null
+                    ? getString(R.string.cost_profile_finished, csvFile.getAbsolutePath())
+                    : getString(R.string.cost_profile_failed);
+            Toast.makeText(requireContext(), message, Toast.LENGTH_LONG).show();
+        }
+    };
+
     // RtcEventHandler.EventCallback implementation
     @Override
     public void onJoinChannelSuccess(int uid) {
-        engineManager.setMyUid(uid);
-        engineManager.setJoined(true);
+        engineManager.onJoinChannelSuccess(uid);
         joined = true;
         uiStateManager.updateUiForChannelJoined();
     }
@@ -577,6 +723,21 @@ public class VideoProcessExtensionRefactored extends Fragment implements
     @Override
     public void onError(int err) {
         Log.w(TAG, String.format("onError code %d message %s", err, io.agora.rtc2.RtcEngine.getErrorDescription(err)));
+        if (engineManager.onError(err)) {
+            handler.post(this::onChannelLost);
+        }
+    }
+
+    @Override
+    public void onConnectionStateChanged(int state, int reason) {
+        if (engineManager.onConnectionStateChanged(state, reason)) {
+            handler.post(this::onChannelLost);
+        }
+    }
+
+    @Override
+    public void onLeaveChannel() {
+        engineManager.onLeaveChannel();
     }
 
     @Override
@@ -643,6 +804,110 @@ public class VideoProcessExtensionRefactored extends Fragment implements
         }
     }
 
+    @Override
+    public void onPresetSaved(String name) {
+        if (beautyManager == null) {
+            return;
+        }
+        presetManager.savePreset(name, beautyManager, filterManager);
+        Toast.makeText(requireContext(), getString(R.string.preset_saved, name), Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    public void onPresetSelected(String name) {
+        BeautyPreset preset = presetManager.getPreset(name);
+        if (preset == null || beautyManager == null) {
+            return;
+        }
+        if (presetTransitioner != null) {
+            presetTransitioner.start(preset);
+        } else {
+            BeautyPresetManager.applyPreset(preset, beautyManager, filterManager);
+        }
+        // The widgets show the target at once, the effects follow over the transition
+        syncWidgets(preset);
+        Toast.makeText(requireContext(), getString(R.string.preset_applied, name), Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Show an effect state in the switches, sliders and spinners, and copy it
+     * into the options the slider handlers edit, so the next drag starts from
+     * the preset instead of the values before it
+     */
+    private void syncWidgets(BeautyPreset state) {
+        beautyOptions.lighteningContrastLevel = state.lighteningContrastLevel;
+        beautyOptions.lighteningLevel = state.lighteningLevel;
+        beautyOptions.rednessLevel = state.rednessLevel;
+        beautyOptions.sharpnessLevel = state.sharpnessLevel;
+        beautyOptions.smoothnessLevel = state.smoothnessLevel;
+        faceShapeBeautyOptions.shapeStyle = state.shapeStyle;
+        faceShapeBeautyOptions.styleIntensity = state.styleIntensity;
+        faceShapeAreaOptions.shapeArea = state.shapeArea;
+        faceShapeAreaOptions.shapeIntensity = state.shapeAreaIntensity;
+        makeUpOptions.copyFrom(state.makeUp);
+        strength = state.colorStrength;
+        skinProtect = state.skinProtect;
+        
+        syncingWidgets = true;
+        try {
+            beauty.setChecked(state.beautyEnabled);
+            seek_lightness.setProgress(Math.round(state.lighteningLevel * 10));
+            seek_redness.setProgress(Math.round(state.rednessLevel * 10));
+            seek_sharpness.setProgress(Math.round(state.sharpnessLevel * 10));
+            seek_smoothness.setProgress(Math.round(state.smoothnessLevel * 10));
+            
+            shapeBeauty.setChecked(state.faceShapeEnabled);
+            syncSpinner(spinnerShapeBeautifyStyle, state.shapeStyle);
+            sbShapeBeautifyStyleIntensity.setProgress(state.styleIntensity);
+            syncSpinner(spinnerShapeBeautyArea, state.shapeArea + 1);
+            sbShapeBeautifyAreaIntensity.setProgress(state.shapeAreaIntensity);
+            
+            MpOptions makeUpState = state.makeUp;
+            makeUp.setChecked(makeUpState.enable_mu);
+            syncSpinner(spinnerBrowStyle, makeUpState.browStyle);
+            syncSpinner(spinnerBrowColor, makeUpState.browColor);
+            sbBrowStrength.setProgress(Math.round(makeUpState.browStrength * 10));
+            syncSpinner(spinnerLashStyle, makeUpState.lashStyle);
+            syncSpinner(spinnerLashColor, makeUpState.lashColor);
+            sbLashStrength.setProgress(Math.round(makeUpState.lashStrength * 10));
+            syncSpinner(spinnerShadowStyle, makeUpState.shadowStyle);
+            sbShadowStrength.setProgress(Math.round(makeUpState.shadowStrength * 10));
+            syncSpinner(spinnerPupilStyle, makeUpState.pupilStyle);
+            sbPupilStrength.setProgress(Math.round(makeUpState.pupilStrength * 10));
+            syncSpinner(spinnerBlushStyle, makeUpState.blushStyle);
+            syncSpinner(spinnerBlushColor, makeUpState.blushColor);
+            sbBlushStrength.setProgress(Math.round(makeUpState.blushStrength * 10));
+            syncSpinner(spinnerLipStyle, makeUpState.lipStyle);
+            syncSpinner(spinnerLipColor, makeUpState.lipColor);
+            sbLipStrength.setProgress(Math.round(makeUpState.lipStrength * 10));
+            
+            colorful2.setChecked(state.colorEnhanceEnabled);
+            seek_strength.setProgress(Math.round(state.colorStrength * 10));
+            seek_skin.setProgress(Math.round(state.skinProtect * 10));
+            lightness2.setChecked(state.lowLightEnabled);
+            noiseReduce2.setChecked(state.denoiseEnabled);
+            if (state.filterPath != null) {
+                seek_videoEnhance.setProgress(Math.round(state.filterStrength * 10));
+            }
+        } finally {
+            syncingWidgets = false;
+        }
+    }
+    
+    /**
+     * Select a spinner item without the selection reaching the managers. The
+     * spinner reports a new selection later, from layout, so it is marked
+     * instead of covered by syncingWidgets.
+     */
+    private void syncSpinner(Spinner spinner, int position) {
+        if (spinner == null || position < 0 || position >= spinner.getCount()
+                || spinner.getSelectedItemPosition() == position) {
+            return;
+        }
+        syncedSpinners.add(spinner);
+        spinner.setSelection(position);
+    }
+
     @Override
     public io.agora.rtc2.RtcEngine getEngine() {
         return engineManager != null ? engineManager.getEngine() : null;
@@ -651,6 +916,12 @@ public class VideoProcessExtensionRefactored extends Fragment implements
     // Other interface implementations
     @Override
     public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+        if (syncedSpinners.remove(parent)) {
+            return;
+        }
+        if (presetTransitioner != null) {
+            presetTransitioner.cancel();
+        }
         if (beautyManager != null) {
             beautyManager.handleSpinnerSelection(parent, position, makeUpOptions, faceShapeAreaOptions, faceShapeBeautyOptions);
         }
@@ -663,6 +934,13 @@ public class VideoProcessExtensionRefactored extends Fragment implements
 
     @Override
     public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+        if (syncingWidgets) {
+            return;
+        }
+        // A user change wins over a preset transition still running
+        if (presetTransitioner != null) {
+            presetTransitioner.cancel();
+        }
         if (beautyManager != null) {
             beautyManager.handleSwitchChange(buttonView, isChecked, engineManager);
         }
@@ -684,12 +962,20 @@ public class VideoProcessExtensionRefactored extends Fragment implements
 
     @Override
     public void onStartTrackingTouch(SeekBar seekBar) {
-        // Start dragging progress bar
+        // Start dragging progress bar, the drag takes over from a running preset transition
+        if (presetTransitioner != null) {
+            presetTransitioner.cancel();
+        }
     }
 
     @Override
     public void onStopTrackingTouch(SeekBar seekBar) {
-        // Stop dragging progress bar
+        // Stop dragging progress bar, make sure the final value reaches the engine
+        if (seekBar.getId() == R.id.sb_video_enhance && filterManager != null) {
+            filterManager.commitFilterStrength(seekBar.getProgress() / 10f);
+        } else if (beautyManager != null) {
+            beautyManager.flushPendingUpdates();
+        }
     }
 
     private void resetVirtualBackground() {
@@ -7,6 +7,7 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import io.agora.api.example.examples.advanced.features.EngineCommandExecutor;
 import io.agora.rtc2.RtcEngine;
 import io.agora.rtc2.video.AgoraFocalLengthInfo;
 
@@ -72,7 +73,8 @@ public class CameraManager {
     public void switchCamera() {
         if (engine == null) return;
         
-        engine.switchCamera();
+        RtcEngine target = engine;
+        EngineCommandExecutor.getInstance().submit(null, target::switchCamera);
         cameraSwitchCount++;
         
         // Delay updating zoom range to ensure camera switch is complete
@@ -91,11 +93,7 @@ public class CameraManager {
         zoomFactor = Math.max(minZoomFactor, Math.min(maxZoomFactor, zoomFactor));
         currentZoomFactor = zoomFactor;
         
-        try {
-            engine.setCameraZoomFactor(zoomFactor);
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to set zoom factor: " + e.getMessage());
-        }
+        submitZoomFactor(zoomFactor);
     }
     
     /**
@@ -236,7 +234,7 @@ public class CameraManager {
                 currentZoomFactor = maxZoomFactor;
             }
             
-            engine.setCameraZoomFactor(currentZoomFactor);
+            submitZoomFactor(currentZoomFactor);
             Log.d(TAG, "Applied zoom factor after camera switch: " + currentZoomFactor);
             
             // Camera switched
@@ -246,6 +244,17 @@ public class CameraManager {
         }
     }
     
+    /**
+     * Queue a zoom factor on the engine command thread, only the latest pending
+     * factor is sent while a pinch or slider is moving
+     */
+    private void submitZoomFactor(float zoomFactor) {
+        RtcEngine target = engine;
+        if (target == null) return;
+        EngineCommandExecutor.getInstance().submit(EngineCommandExecutor.KEY_ZOOM,
+            () -> target.setCameraZoomFactor(zoomFactor));
+    }
+    
     /**
      * Handle back camera ultra-wide mode preview restart
      */
@@ -254,16 +263,14 @@ public class CameraManager {
             try {
                 Log.d(TAG, "Back camera ultra-wide mode detected, restarting preview for min zoom: " + minZoomFactor);
                 
-                engine.stopPreview();
+                RtcEngine target = engine;
+                EngineCommandExecutor executor = EngineCommandExecutor.getInstance();
+                executor.submit(null, target::stopPreview);
                 Log.d(TAG, "Preview stopped for ultra-wide mode");
                 
                 handler.postDelayed(() -> {
-                    try {
-                        engine.startPreview();
-                        Log.d(TAG, "Preview restarted for ultra-wide mode");
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error restarting preview: " + e.getMessage());
-                    }
+                    executor.submit(null, target::startPreview);
+                    Log.d(TAG, "Preview restarted for ultra-wide mode");
                 }, 500);
                 
             } catch (Exception e) {
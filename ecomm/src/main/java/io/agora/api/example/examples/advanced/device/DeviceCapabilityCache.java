@@ -0,0 +1,197 @@
+package io.agora.api.example.examples.advanced.device;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.agora.api.example.examples.advanced.features.EngineCommandExecutor;
+import io.agora.rtc2.Constants;
+import io.agora.rtc2.RtcEngine;
+
+/**
+ * Device Capability Cache
+ * Answers of RtcEngine.isFeatureAvailableOnDevice, which never change for a
+ * device and SDK build. The features are probed once on the engine command
+ * thread and stored in app storage under the device model and SDK version;
+ * a stored result for another model or SDK version is discarded and probed
+ * again. Lookups are served from an immutable in-memory map.
+ */
+public final class DeviceCapabilityCache {
+    private static final String TAG = "DeviceCapabilityCache";
+    private static final String CACHE_FILE = "device_capabilities.txt";
+    private static final String FILE_HEADER = "device-capabilities 1";
+
+    /**
+     * Features probed after engine creation
+     */
+    public static final int[] PROBED_FEATURES = {
+        Constants.FEATURE_VIDEO_BEAUTY_EFFECT,
+        Constants.FEATURE_VIDEO_VIRTUAL_BACKGROUND
+    };
+
+    private static volatile DeviceCapabilityCache instance;
+
+    private final File cacheFile;
+    private final String cacheKey;
+    private volatile Map<Integer, Boolean> capabilities = Collections.emptyMap();
+    // Engine the probe was queued for, a new engine queues it again if it was dropped
+    private RtcEngine probeEngine = null;
+
+    DeviceCapabilityCache(File cacheFile, String cacheKey) {
+        this.cacheFile = cacheFile;
+        this.cacheKey = cacheKey;
+    }
+
+    /**
+     * Get the process-wide cache
+     */
+    public static DeviceCapabilityCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DeviceCapabilityCache.class) {
+                if (instance == null) {
+                    File file = new File(context.getApplicationContext().getFilesDir(), CACHE_FILE);
+                    instance = new DeviceCapabilityCache(file, buildKey(Build.MANUFACTURER, Build.MODEL, RtcEngine.getSdkVersion()));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Build the cache key, tabs and line breaks cannot appear in it
+     */
+    static String buildKey(String manufacturer, String model, String sdkVersion) {
+        return (manufacturer + " " + model + " / sdk " + sdkVersion).replace('\t', ' ').replace('\n', ' ');
+    }
+
+    /**
+     * Load the stored results, or probe the engine when there are none for
+     * this device and SDK version. Queued on the engine command thread, does
+     * nothing once the answers are known.
+     */
+    public synchronized void probeAsync(RtcEngine engine) {
+        if (engine == null || engine == probeEngine || !capabilities.isEmpty()) {
+            return;
+        }
+        probeEngine = engine;
+        EngineCommandExecutor.getInstance().submit(null, () -> {
+            loadOrProbe(engine);
+            return 0;
+        });
+    }
+
+    void loadOrProbe(RtcEngine engine) {
+        long start = System.nanoTime();
+        Map<Integer, Boolean> stored = load();
+        if (stored != null) {
+            capabilities = stored;
+            Log.d(TAG, "Loaded capabilities for " + cacheKey + " in " + (System.nanoTime() - start) / 1000 + " us: " + stored);
+            return;
+        }
+
+        Map<Integer, Boolean> probed = new HashMap<>();
+        for (int feature : PROBED_FEATURES) {
+            try {
+                probed.put(feature, engine.isFeatureAvailableOnDevice(feature));
+            } catch (Exception e) {
+                Log.e(TAG, "Error probing feature " + feature + ": " + e.getMessage());
+            }
+        }
+        capabilities = Collections.unmodifiableMap(probed);
+        save(probed);
+        Log.d(TAG, "Probed capabilities for " + cacheKey + " in " + (System.nanoTime() - start) / 1000 + " us: " + probed);
+    }
+
+    /**
+     * Get the cached answer for a feature, null while it is not known yet
+     */
+    public Boolean isFeatureAvailable(int feature) {
+        return capabilities.get(feature);
+    }
+
+    /**
+     * Get all cached answers, empty until the probe has finished
+     */
+    public Map<Integer, Boolean> getCapabilities() {
+        return capabilities;
+    }
+
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    /**
+     * Read the stored results, null when missing, unreadable or stored for
+     * another device or SDK version
+     */
+    private Map<Integer, Boolean> load() {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(cacheFile), StandardCharsets.UTF_8))) {
+            if (!FILE_HEADER.equals(reader.readLine())) {
+                return null;
+            }
+            String key = reader.readLine();
+            if (!cacheKey.equals(key)) {
+                Log.d(TAG, "Discarding capabilities stored for " + key);
+                return null;
+            }
+            Map<Integer, Boolean> stored = new HashMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf('\t');
+                if (separator > 0) {
+                    stored.put(Integer.parseInt(line.substring(0, separator)),
+                            Boolean.parseBoolean(line.substring(separator + 1)));
+                }
+            }
+            for (int feature : PROBED_FEATURES) {
+                if (!stored.containsKey(feature)) {
+                    return null;
+                }
+            }
+            return Collections.unmodifiableMap(stored);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Error reading capability cache: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void save(Map<Integer, Boolean> results) {
+        File tmpFile = new File(cacheFile.getPath() + ".tmp");
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(tmpFile), StandardCharsets.UTF_8))) {
+                writer.write(FILE_HEADER);
+                writer.write('\n');
+                writer.write(cacheKey);
+                writer.write('\n');
+                for (Map.Entry<Integer, Boolean> entry : results.entrySet()) {
+                    writer.write(entry.getKey() + "\t" + entry.getValue() + "\n");
+                }
+            }
+            if (!tmpFile.renameTo(cacheFile)) {
+                tmpFile.delete();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing capability cache: " + e.getMessage());
+            tmpFile.delete();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.agora.api.example.examples.advanced.device;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Device Tier
+ * Coarse device performance class derived from RAM and CPU cores, used to
+ * scale processing cost such as LUT grid resolution
+ */
+public enum DeviceTier {
+    LOW(17),
+    MID(33),
+    HIGH(65);
+
+    private static final String TAG = "DeviceTier";
+    private static final long GB = 1024L * 1024L * 1024L;
+
+    private static volatile DeviceTier detected;
+
+    private final int maxLutSize;
+
+    DeviceTier(int maxLutSize) {
+        this.maxLutSize = maxLutSize;
+    }
+
+    /**
+     * Get the largest LUT grid size per axis this tier should render
+     */
+    public int getMaxLutSize() {
+        return maxLutSize;
+    }
+
+    /**
+     * Detect the tier of the current device, the result is computed once per process
+     */
+    public static DeviceTier detect(Context context) {
+        DeviceTier tier = detected;
+        if (tier != null) {
+            return tier;
+        }
+
+        long totalMem = 0;
+        boolean lowRam = false;
+        try {
+            ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            if (activityManager != null) {
+                ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+                activityManager.getMemoryInfo(memoryInfo);
+                totalMem = memoryInfo.totalMem;
+                lowRam = activityManager.isLowRamDevice();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading memory info: " + e.getMessage());
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        tier = classify(totalMem, cores, lowRam);
+        detected = tier;
+        Log.d(TAG, "Device tier " + tier + " (RAM " + totalMem / (1024 * 1024) + " MB, " + cores + " cores, lowRam=" + lowRam + ")");
+        return tier;
+    }
+
+    /**
+     * Classify a device from its total RAM in bytes, CPU core count and low-RAM flag
+     */
+    public static DeviceTier classify(long totalMem, int cores, boolean lowRam) {
+        if (lowRam || (totalMem > 0 && totalMem < 3 * GB) || cores <= 4) {
+            return LOW;
+        }
+        if (totalMem >= 6 * GB && cores >= 8) {
+            return HIGH;
+        }
+        return MID;
+    }
+}
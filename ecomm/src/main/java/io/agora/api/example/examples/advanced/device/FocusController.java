@@ -10,6 +10,7 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import io.agora.rtc2.RtcEngine;
+import io.agora.api.example.examples.advanced.features.EngineCommandExecutor;
 import io.agora.api.example.examples.advanced.ui.UiStateManager;
 
 /**
@@ -31,6 +32,26 @@ public class FocusController {
         this.engine = engine;
     }
     
+    /**
+     * Queue the focus point on the engine command thread, a newer tap replaces one not sent yet
+     */
+    private void submitFocusPosition(float x, float y) {
+        RtcEngine target = engine;
+        if (target == null) return;
+        EngineCommandExecutor.getInstance().submit(EngineCommandExecutor.KEY_FOCUS_POSITION,
+            () -> target.setCameraFocusPositionInPreview(x, y));
+    }
+    
+    /**
+     * Queue the face auto focus mode on the engine command thread
+     */
+    private void submitAutoFocusFaceMode(boolean enabled) {
+        RtcEngine target = engine;
+        if (target == null) return;
+        EngineCommandExecutor.getInstance().submit(EngineCommandExecutor.KEY_AUTO_FOCUS_FACE,
+            () -> target.setCameraAutoFocusFaceModeEnabled(enabled));
+    }
+    
     /**
      * Enable manual focus mode
      */
@@ -39,7 +60,7 @@ public class FocusController {
         
         try {
             // Completely disable auto focus
-            engine.setCameraAutoFocusFaceModeEnabled(false);
+            submitAutoFocusFaceMode(false);
             
             // Add screen touch listener
             addScreenTouchListener();
@@ -63,7 +84,7 @@ public class FocusController {
         
         try {
             // Enable auto focus
-            engine.setCameraAutoFocusFaceModeEnabled(true);
+            submitAutoFocusFaceMode(true);
             
             // Remove screen touch listener
             removeScreenTouchListener();
@@ -108,10 +129,10 @@ public class FocusController {
                     normalizedY = Math.max(0.0f, Math.min(1.0f, normalizedY));
                     
                     // Set focus position
-                    engine.setCameraFocusPositionInPreview(normalizedX, normalizedY);
+                    submitFocusPosition(normalizedX, normalizedY);
                     
                     // Ensure auto focus is completely disabled
-                    engine.setCameraAutoFocusFaceModeEnabled(false);
+                    submitAutoFocusFaceMode(false);
                     
                     // Focus position updated
                     
@@ -199,10 +220,10 @@ public class FocusController {
                     normalizedY = Math.max(0.0f, Math.min(1.0f, normalizedY));
                     
                     // Set focus position, completely manual control
-                    engine.setCameraFocusPositionInPreview(normalizedX, normalizedY);
+                    submitFocusPosition(normalizedX, normalizedY);
                     
                     // Ensure auto focus is completely disabled to prevent focus from being automatically switched
-                    engine.setCameraAutoFocusFaceModeEnabled(false);
+                    submitAutoFocusFaceMode(false);
                     
                     // Show focus indicator
                     if (uiStateManager != null) {
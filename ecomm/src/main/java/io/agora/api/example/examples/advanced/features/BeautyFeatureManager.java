@@ -21,6 +21,7 @@ import io.agora.rtc2.video.LowLightEnhanceOptions;
 import io.agora.rtc2.video.SegmentationProperty;
 import io.agora.rtc2.video.VideoDenoiserOptions;
 import io.agora.rtc2.video.VirtualBackgroundSource;
+import io.agora.api.example.bean.BeautyPreset;
 import io.agora.api.example.bean.MpOptions;
 
 /**
@@ -36,8 +37,33 @@ public class BeautyFeatureManager {
     private FaceShapeBeautyOptions faceShapeBeautyOptions;
     private FaceShapeAreaOptions faceShapeAreaOptions;
     private MpOptions makeUpOptions;
+    // 最近一次发送给引擎的化妆参数，用于只在字段变化时发送
+    private final MpOptions sentMakeUpOptions = new MpOptions();
+    private boolean makeUpSent = false;
+    private long makeUpRequestCount = 0;
+    private long makeUpSendCount = 0;
     private double skinProtect = 1.0;
     private double strength = 0.5;
+    // 已提交给引擎的效果状态，应用预设时只发送与它不同的部分
+    private final BeautyPreset appliedState = new BeautyPreset();
+    // 画质调节器为保证帧率而临时降级的效果，用户选择的开关状态保持不变
+    private boolean denoiseFastMode = false;
+    private boolean lowLightSuppressed = false;
+    private boolean virtualBackgroundSuppressed = false;
+    private VirtualBackgroundSource virtualBackgroundSource = null;
+    private SegmentationProperty segmentationProperty = null;
+    // 效果状态变化时通知，用于持久化效果状态
+    private Runnable stateListener = null;
+    
+    // 拖动滑块时每种效果只保留最新状态，每个显示帧最多调用一次引擎
+    private final EffectUpdateDispatcher updateDispatcher = new EffectUpdateDispatcher();
+    // 所有引擎调用在独立线程上按顺序执行，避免阻塞UI线程
+    private final EngineCommandExecutor commandExecutor = EngineCommandExecutor.getInstance();
+    private final EffectUpdateDispatcher.Slot<BeautyOptions> beautySlot;
+    private final EffectUpdateDispatcher.Slot<FaceShapeBeautyOptions> faceShapeSlot;
+    private final EffectUpdateDispatcher.Slot<FaceShapeAreaOptions> faceAreaSlot;
+    private final EffectUpdateDispatcher.Slot<Boolean> colorEnhanceSlot;
+    private final EffectUpdateDispatcher.Slot<MpOptions> makeUpSlot;
     
     public BeautyFeatureManager(@NonNull Context context, RtcEngine engine) {
         this.context = context;
@@ -46,6 +72,12 @@ public class BeautyFeatureManager {
         this.faceShapeBeautyOptions = new FaceShapeBeautyOptions();
         this.faceShapeAreaOptions = new FaceShapeAreaOptions();
         this.makeUpOptions = new MpOptions();
+        
+        this.beautySlot = updateDispatcher.createSlot("beauty", options -> sendBeautyOptions(true, options));
+        this.faceShapeSlot = updateDispatcher.createSlot("faceShape", options -> sendFaceShapeBeautyOptions(true, options));
+        this.faceAreaSlot = updateDispatcher.createSlot("faceArea", this::sendFaceShapeAreaOptions);
+        this.colorEnhanceSlot = updateDispatcher.createSlot("colorEnhance", this::setColorEnhance);
+        this.makeUpSlot = updateDispatcher.createSlot("makeUp", options -> updateExtensionProperty());
     }
     
     /**
@@ -64,7 +96,7 @@ public class BeautyFeatureManager {
         if (engine == null) return;
         
         try {
-            engine.setBeautyEffectOptions(enabled, beautyOptions);
+            sendBeautyOptions(enabled, beautyOptions);
             Log.d(TAG, "Beauty effect " + (enabled ? "enabled" : "disabled"));
         } catch (Exception e) {
             Log.e(TAG, "Error setting beauty effect: " + e.getMessage());
@@ -78,7 +110,7 @@ public class BeautyFeatureManager {
         if (engine == null) return;
         
         try {
-            engine.setFaceShapeBeautyOptions(enabled, faceShapeBeautyOptions);
+            sendFaceShapeBeautyOptions(enabled, faceShapeBeautyOptions);
             Log.d(TAG, "Face shape beauty " + (enabled ? "enabled" : "disabled"));
         } catch (Exception e) {
             Log.e(TAG, "Error setting face shape beauty: " + e.getMessage());
@@ -93,9 +125,7 @@ public class BeautyFeatureManager {
         
         try {
             makeUpOptions.enable_mu = enabled;
-            engine.setExtensionProperty("agora_video_filters_clear_vision", "clear_vision", 
-                "makeup_options", makeUpOptions.toJson(), 
-                io.agora.rtc2.Constants.MediaSourceType.PRIMARY_CAMERA_SOURCE);
+            updateExtensionProperty();
             Log.d(TAG, "Makeup " + (enabled ? "enabled" : "disabled"));
         } catch (Exception e) {
             Log.e(TAG, "Error setting makeup: " + e.getMessage());
@@ -114,7 +144,7 @@ public class BeautyFeatureManager {
             beautyOptions.sharpnessLevel = sharpness;
             beautyOptions.smoothnessLevel = smoothness;
             
-                engine.setBeautyEffectOptions(true, beautyOptions);
+                sendBeautyOptions(true, beautyOptions);
             
             Log.d(TAG, "Beauty options updated: lightness=" + lightness + ", redness=" + redness + 
                 ", sharpness=" + sharpness + ", smoothness=" + smoothness);
@@ -132,7 +162,7 @@ public class BeautyFeatureManager {
         try {
             faceShapeBeautyOptions.shapeStyle = shapeStyle;
             faceShapeBeautyOptions.styleIntensity = styleIntensity;
-            engine.setFaceShapeBeautyOptions(true, faceShapeBeautyOptions);
+            sendFaceShapeBeautyOptions(true, faceShapeBeautyOptions);
             
             Log.d(TAG, "Face shape beauty options updated: style=" + shapeStyle + ", intensity=" + styleIntensity);
         } catch (Exception e) {
@@ -149,7 +179,7 @@ public class BeautyFeatureManager {
         try {
             faceShapeAreaOptions.shapeArea = shapeArea;
             faceShapeAreaOptions.shapeIntensity = areaIntensity;
-            engine.setFaceShapeAreaOptions(faceShapeAreaOptions);
+            sendFaceShapeAreaOptions(faceShapeAreaOptions);
             
             Log.d(TAG, "Face shape area options updated: area=" + shapeArea + ", intensity=" + areaIntensity);
         } catch (Exception e) {
@@ -165,10 +195,7 @@ public class BeautyFeatureManager {
         
         try {
             this.makeUpOptions = options;
-            
-                engine.setExtensionProperty("agora_video_filters_clear_vision", "clear_vision", 
-                    "makeup_options", makeUpOptions.toJson(), 
-                    io.agora.rtc2.Constants.MediaSourceType.PRIMARY_CAMERA_SOURCE);
+            updateExtensionProperty();
             
             Log.d(TAG, "Makeup options updated");
         } catch (Exception e) {
@@ -184,13 +211,15 @@ public class BeautyFeatureManager {
         
         try {
             // 停止基础美颜
-                engine.setBeautyEffectOptions(false, beautyOptions);
+                sendBeautyOptions(false, beautyOptions);
             
             // 停止脸型美化
-                engine.setFaceShapeBeautyOptions(false, faceShapeBeautyOptions);
+                sendFaceShapeBeautyOptions(false, faceShapeBeautyOptions);
             
             // 停止面部化妆
-                engine.setExtensionProperty("agora-video-filter-extension", "enable_makeup", "false", "");
+                RtcEngine target = engine;
+                commandExecutor.submit(null,
+                    () -> target.setExtensionProperty("agora-video-filter-extension", "enable_makeup", "false", ""));
             
             Log.d(TAG, "All beauty features stopped");
         } catch (Exception e) {
@@ -203,17 +232,22 @@ public class BeautyFeatureManager {
      */
     public void updateEngine(RtcEngine newEngine) {
         this.engine = newEngine;
+        // 新引擎没有任何化妆状态，下次必须完整发送
+        this.makeUpSent = false;
+        this.appliedState.copyFrom(new BeautyPreset());
     }
     
     /**
      * 释放资源
      */
     public void release() {
+        updateDispatcher.cancel();
         engine = null;
         beautyOptions = null;
         faceShapeBeautyOptions = null;
         faceShapeAreaOptions = null;
         makeUpOptions = null;
+        makeUpSent = false;
     }
     
     /**
@@ -229,11 +263,19 @@ public class BeautyFeatureManager {
             switch (parent.getId()) {
                 case io.agora.api.example.ecomm.R.id.spinner_shape_beauty_area:
                     this.faceShapeAreaOptions.shapeArea = position - 1;
-                    engine.setFaceShapeAreaOptions(this.faceShapeAreaOptions);
+                    // 重复选择同一区域时引擎状态不变，不再发送
+                    if (appliedState.shapeArea != this.faceShapeAreaOptions.shapeArea
+                            || appliedState.shapeAreaIntensity != this.faceShapeAreaOptions.shapeIntensity) {
+                        sendFaceShapeAreaOptions(this.faceShapeAreaOptions);
+                    }
                     break;
                 case io.agora.api.example.ecomm.R.id.spinner_shape_beautify_style:
                     this.faceShapeBeautyOptions.shapeStyle = position;
-                    engine.setFaceShapeBeautyOptions(true, this.faceShapeBeautyOptions);
+                    if (!appliedState.faceShapeEnabled
+                            || appliedState.shapeStyle != this.faceShapeBeautyOptions.shapeStyle
+                            || appliedState.styleIntensity != this.faceShapeBeautyOptions.styleIntensity) {
+                        sendFaceShapeBeautyOptions(true, this.faceShapeBeautyOptions);
+                    }
                     break;
                 case io.agora.api.example.ecomm.R.id.spinner_brow_style:
                     this.makeUpOptions.browStyle = position;
@@ -288,7 +330,11 @@ public class BeautyFeatureManager {
                     Toast.makeText(context, "功能不可用", Toast.LENGTH_SHORT).show();
                     return;
                 }
-                engine.setFaceShapeBeautyOptions(isChecked, faceShapeBeautyOptions);
+                if (!isChecked) {
+                    faceShapeSlot.discard();
+                    faceAreaSlot.discard();
+                }
+                sendFaceShapeBeautyOptions(isChecked, faceShapeBeautyOptions);
                 
             } else if (buttonView.getId() == io.agora.api.example.ecomm.R.id.switch_face_makeup) {
                 if (isChecked && !engineManager.isFeatureAvailableOnDevice(Constants.FEATURE_VIDEO_BEAUTY_EFFECT)) {
@@ -305,15 +351,16 @@ public class BeautyFeatureManager {
                     Toast.makeText(context, "功能不可用", Toast.LENGTH_SHORT).show();
                     return;
                 }
-                engine.setBeautyEffectOptions(isChecked, beautyOptions);
+                if (!isChecked) {
+                    beautySlot.discard();
+                }
+                sendBeautyOptions(isChecked, beautyOptions);
                 
             } else if (buttonView.getId() == io.agora.api.example.ecomm.R.id.switch_lightness2) {
-                LowLightEnhanceOptions options = new LowLightEnhanceOptions();
-                options.lowlightEnhanceLevel = LowLightEnhanceOptions.LOW_LIGHT_ENHANCE_LEVEL_FAST;
-                options.lowlightEnhanceMode = LowLightEnhanceOptions.LOW_LIGHT_ENHANCE_AUTO;
-                engine.setLowlightEnhanceOptions(isChecked, options);
+                setLowLightEnhance(isChecked);
                 
             } else if (buttonView.getId() == io.agora.api.example.ecomm.R.id.switch_color2) {
+                colorEnhanceSlot.discard();
                 setColorEnhance(isChecked);
                 
             } else if (buttonView.getId() == io.agora.api.example.ecomm.R.id.switch_virtual_background) {
@@ -325,10 +372,7 @@ public class BeautyFeatureManager {
                 // 虚拟背景重置在外部处理，这里需要调用resetVirtualBackground
                 
             } else if (buttonView.getId() == io.agora.api.example.ecomm.R.id.switch_video_noise_reduce2) {
-                VideoDenoiserOptions options = new VideoDenoiserOptions();
-                options.denoiserLevel = VideoDenoiserOptions.VIDEO_DENOISER_LEVEL_HIGH_QUALITY;
-                options.denoiserMode = VideoDenoiserOptions.VIDEO_DENOISER_AUTO;
-                engine.setVideoDenoiserOptions(isChecked, options);
+                setVideoDenoiser(isChecked);
             }
             
         } catch (Exception e) {
@@ -352,47 +396,47 @@ public class BeautyFeatureManager {
             
             if (seekBar.getId() == io.agora.api.example.ecomm.R.id.sb_shape_beautify_area_intensity) {
                 faceShapeAreaOptions.shapeIntensity = progress;
-                engine.setFaceShapeAreaOptions(faceShapeAreaOptions);
+                faceAreaSlot.submit(faceShapeAreaOptions);
                 
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.sb_shape_beautify_style_intensity) {
                 faceShapeBeautyOptions.styleIntensity = progress;
-                engine.setFaceShapeBeautyOptions(true, faceShapeBeautyOptions);
+                faceShapeSlot.submit(faceShapeBeautyOptions);
                 
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.sb_brow_strength) {
-                makeUpOptions.browStrength = value;
-                updateExtensionProperty();
+                this.makeUpOptions.browStrength = value;
+                makeUpSlot.submit(this.makeUpOptions);
                     
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.sb_lash_strength) {
-                makeUpOptions.lashStrength = value;
-                updateExtensionProperty();
+                this.makeUpOptions.lashStrength = value;
+                makeUpSlot.submit(this.makeUpOptions);
                     
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.sb_shadow_strength) {
-                makeUpOptions.shadowStrength = value;
-                updateExtensionProperty();
+                this.makeUpOptions.shadowStrength = value;
+                makeUpSlot.submit(this.makeUpOptions);
                     
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.sb_pupil_strength) {
-                makeUpOptions.pupilStrength = value;
-                updateExtensionProperty();
+                this.makeUpOptions.pupilStrength = value;
+                makeUpSlot.submit(this.makeUpOptions);
                     
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.sb_blush_strength) {
-                makeUpOptions.blushStrength = value;
-                updateExtensionProperty();
+                this.makeUpOptions.blushStrength = value;
+                makeUpSlot.submit(this.makeUpOptions);
                     
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.sb_lip_strength) {
-                makeUpOptions.lipStrength = value;
-                updateExtensionProperty();
+                this.makeUpOptions.lipStrength = value;
+                makeUpSlot.submit(this.makeUpOptions);
                     
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.lightening) {
                 beautyOptions.lighteningLevel = value;
-                engine.setBeautyEffectOptions(true, beautyOptions);
+                beautySlot.submit(beautyOptions);
                 
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.redness) {
                 beautyOptions.rednessLevel = value;
-                engine.setBeautyEffectOptions(true, beautyOptions);
+                beautySlot.submit(beautyOptions);
                 
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.sharpness) {
                 beautyOptions.sharpnessLevel = value;
-                engine.setBeautyEffectOptions(true, beautyOptions);
+                beautySlot.submit(beautyOptions);
                 
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.sb_video_enhance) {
                 if (filterManager != null) {
@@ -401,15 +445,15 @@ public class BeautyFeatureManager {
                 
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.smoothness) {
                 beautyOptions.smoothnessLevel = value;
-                engine.setBeautyEffectOptions(true, beautyOptions);
+                beautySlot.submit(beautyOptions);
                 
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.strength) {
                 this.strength = value;
-                setColorEnhance(true);
+                colorEnhanceSlot.submit(true);
                 
             } else if (seekBar.getId() == io.agora.api.example.ecomm.R.id.skinProtect) {
                 this.skinProtect = value;
-                setColorEnhance(true);
+                colorEnhanceSlot.submit(true);
             }
             
         } catch (Exception e) {
@@ -446,36 +490,148 @@ public class BeautyFeatureManager {
                     backgroundSource.backgroundSourceType = VirtualBackgroundSource.BACKGROUND_VIDEO;
                     backgroundSource.source = "https://agora-adc-artifacts.s3.cn-north-1.amazonaws.com.cn/resources/sample.mp4";
                 }
-                engine.enableVirtualBackground(true, backgroundSource, segproperty);
+                this.virtualBackgroundSource = backgroundSource;
+                this.segmentationProperty = segproperty;
             } else {
-                engine.enableVirtualBackground(false, null, null);
+                this.virtualBackgroundSource = null;
+                this.segmentationProperty = null;
             }
+            sendVirtualBackground();
+            notifyStateChanged();
             
         } catch (Exception e) {
             Log.e(TAG, "Error resetting virtual background: " + e.getMessage());
         }
     }
     
+    /**
+     * 立即发送所有待发送的效果更新，在松开滑块时调用，保证最终值生效
+     */
+    public void flushPendingUpdates() {
+        updateDispatcher.flush();
+    }
+    
+    /**
+     * 获取效果更新调度器，用于查看事件数与引擎调用次数
+     */
+    public EffectUpdateDispatcher getUpdateDispatcher() {
+        return updateDispatcher;
+    }
+    
     /**
      * 更新扩展属性
+     * 与上次发送的状态逐字段比较，没有变化时不调用引擎。
+     * makeup_options 是一个整体 JSON 属性，有变化时仍发送完整对象。
      */
     public void updateExtensionProperty() {
-        if (engine != null) {
-            engine.setExtensionProperty("agora_video_filters_clear_vision", "clear_vision", 
-                "makeup_options", makeUpOptions.toJson(), 
-                Constants.MediaSourceType.PRIMARY_CAMERA_SOURCE);
+        if (engine == null || makeUpOptions == null) return;
+        
+        makeUpRequestCount++;
+        int changed = makeUpSent ? makeUpOptions.diff(sentMakeUpOptions) : MpOptions.ALL_FIELDS;
+        if (changed == 0) {
+            return;
         }
+        
+        // 提交时即记为已发送，引擎返回失败时再标记为需要完整重发
+        RtcEngine target = engine;
+        String json = makeUpOptions.toJson();
+        sentMakeUpOptions.copyFrom(makeUpOptions);
+        makeUpSent = true;
+        makeUpSendCount++;
+        commandExecutor.submit(EngineCommandExecutor.KEY_MAKEUP,
+            () -> target.setExtensionProperty("agora_video_filters_clear_vision", "clear_vision",
+                "makeup_options", json, Constants.MediaSourceType.PRIMARY_CAMERA_SOURCE),
+            ret -> {
+                if (ret != 0) {
+                    Log.e(TAG, "Failed to send makeup options, ret=" + ret);
+                    makeUpSent = false;
+                }
+            });
+        notifyStateChanged();
+        Log.d(TAG, "Makeup options queued (" + (changed == MpOptions.ALL_FIELDS ? "all" : MpOptions.describe(changed))
+            + "), " + makeUpSendCount + "/" + makeUpRequestCount + " updates sent");
+    }
+    
+    /**
+     * 获取化妆参数更新请求次数
+     */
+    public long getMakeUpRequestCount() {
+        return makeUpRequestCount;
+    }
+    
+    /**
+     * 获取实际调用引擎发送化妆参数的次数
+     */
+    public long getMakeUpSendCount() {
+        return makeUpSendCount;
     }
     
     /**
      * 更新脸型美化样式选项
      */
     public void updateFaceShapeBeautyStyleOptions() {
-        if (engine != null) {
-            engine.setFaceShapeBeautyOptions(false, faceShapeBeautyOptions);
+        // 已恢复开启的脸型美化不再被初始化关闭
+        if (engine != null && !appliedState.faceShapeEnabled) {
+            sendFaceShapeBeautyOptions(false, faceShapeBeautyOptions);
         }
     }
     
+    /**
+     * 在引擎命令线程上设置基础美颜，提交的是参数副本，之后修改参数不影响排队中的命令
+     */
+    private void sendBeautyOptions(boolean enabled, BeautyOptions options) {
+        if (engine == null || options == null) return;
+        
+        RtcEngine target = engine;
+        BeautyOptions copy = new BeautyOptions();
+        copy.lighteningContrastLevel = options.lighteningContrastLevel;
+        copy.lighteningLevel = options.lighteningLevel;
+        copy.smoothnessLevel = options.smoothnessLevel;
+        copy.rednessLevel = options.rednessLevel;
+        copy.sharpnessLevel = options.sharpnessLevel;
+        commandExecutor.submit(EngineCommandExecutor.KEY_BEAUTY, () -> target.setBeautyEffectOptions(enabled, copy));
+        appliedState.beautyEnabled = enabled;
+        appliedState.lighteningContrastLevel = copy.lighteningContrastLevel;
+        appliedState.lighteningLevel = copy.lighteningLevel;
+        appliedState.rednessLevel = copy.rednessLevel;
+        appliedState.sharpnessLevel = copy.sharpnessLevel;
+        appliedState.smoothnessLevel = copy.smoothnessLevel;
+        notifyStateChanged();
+    }
+    
+    /**
+     * 在引擎命令线程上设置脸型美化
+     */
+    private void sendFaceShapeBeautyOptions(boolean enabled, FaceShapeBeautyOptions options) {
+        if (engine == null || options == null) return;
+        
+        RtcEngine target = engine;
+        FaceShapeBeautyOptions copy = new FaceShapeBeautyOptions();
+        copy.shapeStyle = options.shapeStyle;
+        copy.styleIntensity = options.styleIntensity;
+        commandExecutor.submit(EngineCommandExecutor.KEY_FACE_SHAPE, () -> target.setFaceShapeBeautyOptions(enabled, copy));
+        appliedState.faceShapeEnabled = enabled;
+        appliedState.shapeStyle = copy.shapeStyle;
+        appliedState.styleIntensity = copy.styleIntensity;
+        notifyStateChanged();
+    }
+    
+    /**
+     * 在引擎命令线程上设置脸型美化区域
+     */
+    private void sendFaceShapeAreaOptions(FaceShapeAreaOptions options) {
+        if (engine == null || options == null) return;
+        
+        RtcEngine target = engine;
+        FaceShapeAreaOptions copy = new FaceShapeAreaOptions();
+        copy.shapeArea = options.shapeArea;
+        copy.shapeIntensity = options.shapeIntensity;
+        commandExecutor.submit(EngineCommandExecutor.KEY_FACE_AREA, () -> target.setFaceShapeAreaOptions(copy));
+        appliedState.shapeArea = copy.shapeArea;
+        appliedState.shapeAreaIntensity = copy.shapeIntensity;
+        notifyStateChanged();
+    }
+    
     /**
      * 设置色彩增强
      */
@@ -487,10 +643,254 @@ public class BeautyFeatureManager {
             // 使用类成员变量中的值
             options.strengthLevel = (float) strength;
             options.skinProtectLevel = (float) skinProtect;
-            engine.setColorEnhanceOptions(isChecked, options);
+            RtcEngine target = engine;
+            commandExecutor.submit(EngineCommandExecutor.KEY_COLOR_ENHANCE,
+                () -> target.setColorEnhanceOptions(isChecked, options));
+            appliedState.colorEnhanceEnabled = isChecked;
+            appliedState.colorStrength = options.strengthLevel;
+            appliedState.skinProtect = options.skinProtectLevel;
+            notifyStateChanged();
             Log.d(TAG, "Color enhance: " + isChecked + ", strength: " + strength + ", skinProtect: " + skinProtect);
         } catch (Exception e) {
             Log.e(TAG, "Error setting color enhance: " + e.getMessage());
         }
     }
+    
+    /**
+     * 设置暗光增强
+     */
+    private void setLowLightEnhance(boolean enabled) {
+        if (engine == null) return;
+        
+        LowLightEnhanceOptions options = new LowLightEnhanceOptions();
+        options.lowlightEnhanceLevel = LowLightEnhanceOptions.LOW_LIGHT_ENHANCE_LEVEL_FAST;
+        options.lowlightEnhanceMode = LowLightEnhanceOptions.LOW_LIGHT_ENHANCE_AUTO;
+        boolean on = enabled && !lowLightSuppressed;
+        RtcEngine target = engine;
+        commandExecutor.submit(EngineCommandExecutor.KEY_LOW_LIGHT,
+            () -> target.setLowlightEnhanceOptions(on, options));
+        appliedState.lowLightEnabled = enabled;
+        notifyStateChanged();
+    }
+    
+    /**
+     * 设置视频降噪
+     */
+    private void setVideoDenoiser(boolean enabled) {
+        if (engine == null) return;
+        
+        VideoDenoiserOptions options = new VideoDenoiserOptions();
+        options.denoiserLevel = denoiseFastMode
+            ? VideoDenoiserOptions.VIDEO_DENOISER_LEVEL_FAST
+            : VideoDenoiserOptions.VIDEO_DENOISER_LEVEL_HIGH_QUALITY;
+        options.denoiserMode = VideoDenoiserOptions.VIDEO_DENOISER_AUTO;
+        RtcEngine target = engine;
+        commandExecutor.submit(EngineCommandExecutor.KEY_DENOISE,
+            () -> target.setVideoDenoiserOptions(enabled, options));
+        appliedState.denoiseEnabled = enabled;
+        notifyStateChanged();
+    }
+    
+    /**
+     * 发送过渡动画的中间帧，只提交命令，不改变已应用状态，可在调度线程调用。
+     * 过渡结束时由 applyPreset 写入最终状态。
+     */
+    void sendTransitionFrame(BeautyPreset frame, int groups) {
+        RtcEngine target = engine;
+        if (target == null || groups == 0) return;
+        
+        if ((groups & BeautyPreset.GROUP_BEAUTY) != 0) {
+            BeautyOptions options = new BeautyOptions();
+            options.lighteningContrastLevel = frame.lighteningContrastLevel;
+            options.lighteningLevel = frame.lighteningLevel;
+            options.rednessLevel = frame.rednessLevel;
+            options.sharpnessLevel = frame.sharpnessLevel;
+            options.smoothnessLevel = frame.smoothnessLevel;
+            boolean enabled = frame.beautyEnabled;
+            commandExecutor.submit(EngineCommandExecutor.KEY_BEAUTY, () -> target.setBeautyEffectOptions(enabled, options));
+        }
+        if ((groups & BeautyPreset.GROUP_FACE_SHAPE) != 0) {
+            FaceShapeBeautyOptions options = new FaceShapeBeautyOptions();
+            options.shapeStyle = frame.shapeStyle;
+            options.styleIntensity = frame.styleIntensity;
+            boolean enabled = frame.faceShapeEnabled;
+            commandExecutor.submit(EngineCommandExecutor.KEY_FACE_SHAPE, () -> target.setFaceShapeBeautyOptions(enabled, options));
+        }
+        if ((groups & BeautyPreset.GROUP_MAKEUP) != 0) {
+            String json = frame.makeUp.toJson();
+            commandExecutor.submit(EngineCommandExecutor.KEY_MAKEUP,
+                () -> target.setExtensionProperty("agora_video_filters_clear_vision", "clear_vision",
+                    "makeup_options", json, Constants.MediaSourceType.PRIMARY_CAMERA_SOURCE));
+        }
+        if ((groups & BeautyPreset.GROUP_COLOR_ENHANCE) != 0) {
+            ColorEnhanceOptions options = new ColorEnhanceOptions();
+            options.strengthLevel = frame.colorStrength;
+            options.skinProtectLevel = frame.skinProtect;
+            boolean enabled = frame.colorEnhanceEnabled;
+            commandExecutor.submit(EngineCommandExecutor.KEY_COLOR_ENHANCE, () -> target.setColorEnhanceOptions(enabled, options));
+        }
+    }
+    
+    /**
+     * 发送虚拟背景状态，降级期间即使用户开启也保持关闭
+     */
+    private void sendVirtualBackground() {
+        if (engine == null) return;
+        
+        RtcEngine target = engine;
+        VirtualBackgroundSource source = virtualBackgroundSource;
+        SegmentationProperty property = segmentationProperty;
+        if (source != null && !virtualBackgroundSuppressed) {
+            commandExecutor.submit(EngineCommandExecutor.KEY_VIRTUAL_BACKGROUND,
+                () -> target.enableVirtualBackground(true, source, property));
+        } else {
+            commandExecutor.submit(EngineCommandExecutor.KEY_VIRTUAL_BACKGROUND,
+                () -> target.enableVirtualBackground(false, null, null));
+        }
+    }
+    
+    /**
+     * 获取用户开启的虚拟背景，未开启时为null
+     */
+    public VirtualBackgroundSource getVirtualBackgroundSource() {
+        return virtualBackgroundSource;
+    }
+    
+    /**
+     * 恢复保存的虚拟背景
+     */
+    public void restoreVirtualBackground(VirtualBackgroundSource source) {
+        if (engine == null) return;
+        
+        this.virtualBackgroundSource = source;
+        this.segmentationProperty = source != null ? new SegmentationProperty() : null;
+        sendVirtualBackground();
+        notifyStateChanged();
+    }
+    
+    /**
+     * 设置效果状态变化监听，在主线程回调
+     */
+    public void setStateListener(Runnable listener) {
+        this.stateListener = listener;
+    }
+    
+    private void notifyStateChanged() {
+        if (stateListener != null) {
+            stateListener.run();
+        }
+    }
+    
+    /**
+     * 用户是否开启了视频降噪
+     */
+    public boolean isDenoiseEnabled() {
+        return appliedState.denoiseEnabled;
+    }
+    
+    /**
+     * 用户是否开启了暗光增强
+     */
+    public boolean isLowLightEnabled() {
+        return appliedState.lowLightEnabled;
+    }
+    
+    /**
+     * 降噪切换到快速模式或恢复高质量模式，只在降噪开启时调用引擎
+     */
+    public void setDenoiseFastMode(boolean fast) {
+        if (denoiseFastMode == fast) return;
+        
+        denoiseFastMode = fast;
+        if (appliedState.denoiseEnabled) {
+            setVideoDenoiser(true);
+        }
+    }
+    
+    /**
+     * 暂停或恢复暗光增强，只在用户开启暗光增强时调用引擎
+     */
+    public void setLowLightSuppressed(boolean suppressed) {
+        if (lowLightSuppressed == suppressed) return;
+        
+        lowLightSuppressed = suppressed;
+        if (appliedState.lowLightEnabled) {
+            setLowLightEnhance(true);
+        }
+    }
+    
+    /**
+     * 暂停或恢复虚拟背景（人像分割），只在用户开启虚拟背景时调用引擎
+     */
+    public void setVirtualBackgroundSuppressed(boolean suppressed) {
+        if (virtualBackgroundSuppressed == suppressed) return;
+        
+        virtualBackgroundSuppressed = suppressed;
+        if (virtualBackgroundSource != null) {
+            sendVirtualBackground();
+        }
+    }
+    
+    /**
+     * 获取当前已提交给引擎的效果状态副本，不含滤镜部分
+     */
+    public BeautyPreset captureState() {
+        BeautyPreset state = new BeautyPreset();
+        state.copyFrom(appliedState);
+        state.makeUp.copyFrom(makeUpSent ? sentMakeUpOptions : makeUpOptions);
+        return state;
+    }
+    
+    /**
+     * 应用预设中的美颜部分（不含滤镜），只为与当前状态不同的效果调用引擎
+     * 返回实际发送的效果组掩码
+     */
+    public int applyPreset(BeautyPreset preset) {
+        if (engine == null || preset == null) return 0;
+        
+        // 未发送的拖动状态会覆盖预设，先丢弃
+        updateDispatcher.cancel();
+        int changed = preset.diff(captureState())
+            & ~(BeautyPreset.GROUP_FILTER | BeautyPreset.GROUP_FILTER_STRENGTH);
+        try {
+            if ((changed & BeautyPreset.GROUP_BEAUTY) != 0) {
+                beautyOptions.lighteningContrastLevel = preset.lighteningContrastLevel;
+                beautyOptions.lighteningLevel = preset.lighteningLevel;
+                beautyOptions.rednessLevel = preset.rednessLevel;
+                beautyOptions.sharpnessLevel = preset.sharpnessLevel;
+                beautyOptions.smoothnessLevel = preset.smoothnessLevel;
+                sendBeautyOptions(preset.beautyEnabled, beautyOptions);
+            }
+            if ((changed & BeautyPreset.GROUP_FACE_SHAPE) != 0) {
+                faceShapeBeautyOptions.shapeStyle = preset.shapeStyle;
+                faceShapeBeautyOptions.styleIntensity = preset.styleIntensity;
+                sendFaceShapeBeautyOptions(preset.faceShapeEnabled, faceShapeBeautyOptions);
+            }
+            if ((changed & BeautyPreset.GROUP_FACE_AREA) != 0) {
+                faceShapeAreaOptions.shapeArea = preset.shapeArea;
+                faceShapeAreaOptions.shapeIntensity = preset.shapeAreaIntensity;
+                sendFaceShapeAreaOptions(faceShapeAreaOptions);
+            }
+            if ((changed & BeautyPreset.GROUP_MAKEUP) != 0) {
+                makeUpOptions.copyFrom(preset.makeUp);
+                updateExtensionProperty();
+            }
+            if ((changed & BeautyPreset.GROUP_COLOR_ENHANCE) != 0) {
+                strength = preset.colorStrength;
+                skinProtect = preset.skinProtect;
+                setColorEnhance(preset.colorEnhanceEnabled);
+            }
+            if ((changed & BeautyPreset.GROUP_LOW_LIGHT) != 0) {
+                setLowLightEnhance(preset.lowLightEnabled);
+            }
+            if ((changed & BeautyPreset.GROUP_DENOISE) != 0) {
+                setVideoDenoiser(preset.denoiseEnabled);
+            }
+            Log.d(TAG, "Preset " + preset.name + " applied, changed: "
+                + (changed == 0 ? "none" : BeautyPreset.describe(changed)));
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying preset: " + e.getMessage());
+        }
+        return changed;
+    }
 } 
\ No newline at end of file
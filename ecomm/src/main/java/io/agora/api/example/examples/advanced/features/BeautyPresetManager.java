@@ -0,0 +1,173 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.agora.api.example.bean.BeautyPreset;
+
+/**
+ * Beauty Preset Manager
+ * Responsible for named presets bundling the full effect state of
+ * BeautyFeatureManager and FilterManager. Applying a preset compares it with
+ * the state already sent to the engine and only issues the calls whose effect
+ * actually changes. Presets are kept in a compact binary file.
+ */
+public class BeautyPresetManager {
+    private static final String TAG = "BeautyPresetManager";
+    private static final String PRESET_FILE = "beauty_presets.bin";
+    private static final int FILE_MAGIC = 0x42505253;
+    private static final int FILE_VERSION = 1;
+
+    private final File presetFile;
+    private final Map<String, BeautyPreset> presets = new LinkedHashMap<>();
+
+    public BeautyPresetManager(@NonNull Context context) {
+        this(new File(context.getFilesDir(), PRESET_FILE));
+    }
+
+    BeautyPresetManager(File presetFile) {
+        this.presetFile = presetFile;
+        load();
+    }
+
+    /**
+     * Capture the current effect state of both managers
+     */
+    public static BeautyPreset captureState(BeautyFeatureManager beautyManager, FilterManager filterManager) {
+        BeautyPreset state = beautyManager != null ? beautyManager.captureState() : new BeautyPreset();
+        if (filterManager != null) {
+            state.filterPath = filterManager.getAppliedFilterPath();
+            state.filterStrength = filterManager.getAppliedFilterStrength();
+        }
+        return state;
+    }
+
+    /**
+     * Save the current effect state under a name, replacing a preset with the same name
+     */
+    public synchronized BeautyPreset savePreset(String name, BeautyFeatureManager beautyManager,
+                                                FilterManager filterManager) {
+        BeautyPreset preset = captureState(beautyManager, filterManager);
+        preset.name = name;
+        presets.put(name, preset);
+        save();
+        Log.d(TAG, "Preset saved: " + name);
+        return preset;
+    }
+
+    /**
+     * Apply a saved preset, returns the mask of changed effect groups or -1
+     * when there is no preset with this name
+     */
+    public int applyPreset(String name, BeautyFeatureManager beautyManager, FilterManager filterManager) {
+        BeautyPreset preset = getPreset(name);
+        if (preset == null) {
+            Log.e(TAG, "No preset named " + name);
+            return -1;
+        }
+        return applyPreset(preset, beautyManager, filterManager);
+    }
+
+    /**
+     * Apply a preset, only the effect groups that differ from the current
+     * state reach the engine. Returns the mask of changed groups.
+     */
+    public static int applyPreset(BeautyPreset preset, BeautyFeatureManager beautyManager,
+                                  FilterManager filterManager) {
+        int changed = preset.diff(captureState(beautyManager, filterManager));
+        if (beautyManager != null) {
+            beautyManager.applyPreset(preset);
+        }
+        if (filterManager != null) {
+            if ((changed & BeautyPreset.GROUP_FILTER) != 0) {
+                if (preset.filterPath == null) {
+                    filterManager.disableFilter();
+                } else if (!filterManager.applyFilter(preset.filterPath, preset.filterStrength)) {
+                    Log.e(TAG, "Preset filter could not be applied: " + preset.filterPath);
+                }
+            } else if ((changed & BeautyPreset.GROUP_FILTER_STRENGTH) != 0) {
+                filterManager.commitFilterStrength(preset.filterStrength);
+            }
+        }
+        Log.d(TAG, "Preset " + preset.name + ": " + Integer.bitCount(changed) + " of "
+                + BeautyPreset.GROUP_NAMES.length + " effect groups changed"
+                + (changed == 0 ? "" : " (" + BeautyPreset.describe(changed) + ")"));
+        return changed;
+    }
+
+    public synchronized BeautyPreset getPreset(String name) {
+        return presets.get(name);
+    }
+
+    /**
+     * Get the preset names in the order they were first saved
+     */
+    public synchronized List<String> getPresetNames() {
+        return new ArrayList<>(presets.keySet());
+    }
+
+    public synchronized boolean removePreset(String name) {
+        if (presets.remove(name) == null) {
+            return false;
+        }
+        save();
+        return true;
+    }
+
+    private void load() {
+        if (!presetFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(presetFile)))) {
+            if (in.readInt() != FILE_MAGIC || in.readUnsignedByte() != FILE_VERSION) {
+                Log.w(TAG, "Ignoring preset file in unknown format");
+                return;
+            }
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                BeautyPreset preset = BeautyPreset.readFrom(in);
+                presets.put(preset.name, preset);
+            }
+            Log.d(TAG, "Loaded " + count + " presets, " + presetFile.length() + " bytes");
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading presets: " + e.getMessage());
+            presets.clear();
+        }
+    }
+
+    private void save() {
+        File tmpFile = new File(presetFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeByte(FILE_VERSION);
+                out.writeShort(presets.size());
+                for (BeautyPreset preset : presets.values()) {
+                    preset.writeTo(out);
+                }
+            }
+            if (!tmpFile.renameTo(presetFile)) {
+                tmpFile.delete();
+                Log.e(TAG, "Failed to replace preset file");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving presets: " + e.getMessage());
+            tmpFile.delete();
+        }
+    }
+}
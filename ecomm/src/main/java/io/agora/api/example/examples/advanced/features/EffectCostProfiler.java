@@ -0,0 +1,491 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import io.agora.api.example.bean.BeautyPreset;
+import io.agora.api.example.examples.advanced.device.DeviceCapabilityCache;
+import io.agora.api.example.examples.advanced.device.DeviceTier;
+import io.agora.rtc2.Constants;
+import io.agora.rtc2.IRtcEngineEventHandler;
+import io.agora.rtc2.video.VirtualBackgroundSource;
+
+/**
+ * Effect Cost Profiler
+ * Responsible for measuring what each effect costs on the current device.
+ * The profiler steps through a baseline and one stage per effect, each with
+ * only that effect enabled, and keeps it for a fixed dwell. Local video and
+ * RTC stats arriving after a settle period are collected per stage; the
+ * mean and 95th percentile of capture fps, encoder fps and CPU usage are
+ * written as a CSV and a JSON table tagged with the device model, SDK
+ * version and device tier. The effect state from before the run is
+ * restored afterwards. Must be driven from the main thread while the local
+ * video is published, otherwise no encoder stats arrive.
+ */
+public class EffectCostProfiler {
+    private static final String TAG = "EffectCostProfiler";
+    private static final String REPORT_DIR = "effect_costs";
+    public static final long DEFAULT_DWELL_MS = 12000;
+    // Stats cover the previous 2 seconds, the first ones after a switch mix two stages
+    public static final long DEFAULT_SETTLE_MS = 4000;
+
+    /**
+     * Notified on the main thread
+     */
+    public interface Listener {
+        void onStageStarted(int index, int count, String stage);
+
+        /**
+         * Called after the reports are written, the files are null when writing failed
+         */
+        void onFinished(List<StageResult> results, File csvFile, File jsonFile);
+    }
+
+    /**
+     * Aggregated stats of one stage, fps p95 is the low tail: 95% of the
+     * samples were at or above it. Values are NaN without samples.
+     */
+    public static final class StageResult {
+        public final String stage;
+        public final int samples;
+        public final double captureFpsMean;
+        public final double captureFpsP95;
+        public final double encoderFpsMean;
+        public final double encoderFpsP95;
+        public final double cpuTotalMean;
+        public final double cpuTotalP95;
+        public final double cpuAppMean;
+        public final double cpuAppP95;
+
+        StageResult(String stage, List<EffectQualityGovernor.Sample> samples) {
+            this.stage = stage;
+            this.samples = samples.size();
+            double[] captureFps = new double[samples.size()];
+            double[] encoderFps = new double[samples.size()];
+            List<Double> cpuTotal = new ArrayList<>();
+            List<Double> cpuApp = new ArrayList<>();
+            for (int i = 0; i < samples.size(); i++) {
+                EffectQualityGovernor.Sample sample = samples.get(i);
+                captureFps[i] = sample.captureFps;
+                encoderFps[i] = sample.encoderFps;
+                if (sample.cpuTotalPercent >= 0) {
+                    cpuTotal.add(sample.cpuTotalPercent);
+                }
+                if (sample.cpuAppPercent >= 0) {
+                    cpuApp.add(sample.cpuAppPercent);
+                }
+            }
+            captureFpsMean = mean(captureFps);
+            captureFpsP95 = percentile(captureFps, 0.05);
+            encoderFpsMean = mean(encoderFps);
+            encoderFpsP95 = percentile(encoderFps, 0.05);
+            double[] total = toArray(cpuTotal);
+            double[] app = toArray(cpuApp);
+            cpuTotalMean = mean(total);
+            cpuTotalP95 = percentile(total, 0.95);
+            cpuAppMean = mean(app);
+            cpuAppP95 = percentile(app, 0.95);
+        }
+
+        @Override
+        public String toString() {
+            return stage + ": n=" + samples
+                    + " captureFps=" + format(captureFpsMean) + "/" + format(captureFpsP95)
+                    + " encoderFps=" + format(encoderFpsMean) + "/" + format(encoderFpsP95)
+                    + " cpu=" + format(cpuTotalMean) + "/" + format(cpuTotalP95)
+                    + " appCpu=" + format(cpuAppMean) + "/" + format(cpuAppP95);
+        }
+    }
+
+    private static final class Stage {
+        final String name;
+        final BeautyPreset state;
+        final boolean virtualBackground;
+        final List<EffectQualityGovernor.Sample> samples = new ArrayList<>();
+
+        Stage(String name, BeautyPreset state, boolean virtualBackground) {
+            this.name = name;
+            this.state = state;
+            this.virtualBackground = virtualBackground;
+        }
+    }
+
+    private final Context context;
+    private final BeautyFeatureManager beautyManager;
+    private final FilterManager filterManager;
+    private final DeviceCapabilityCache capabilities;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable nextStageRunnable = this::nextStage;
+    private EffectQualityGovernor governor;
+    private Listener listener;
+    private long dwellMs = DEFAULT_DWELL_MS;
+    private long settleMs = DEFAULT_SETTLE_MS;
+
+    private List<Stage> stages;
+    private int stageIndex = -1;
+    private long stageStartMs;
+    private BeautyPreset originalState;
+    private VirtualBackgroundSource originalBackground;
+    private List<StageResult> results = Collections.emptyList();
+
+    // Written by the SDK callback thread
+    private volatile double cpuTotalPercent = -1;
+    private volatile double cpuAppPercent = -1;
+
+    private final IRtcEngineEventHandler statsHandler = new IRtcEngineEventHandler() {
+        @Override
+        public void onRtcStats(RtcStats stats) {
+            cpuTotalPercent = stats.cpuTotalUsage;
+            cpuAppPercent = stats.cpuAppUsage;
+        }
+
+        @Override
+        public void onLocalVideoStats(Constants.VideoSourceType source, LocalVideoStats stats) {
+            if (source != Constants.VideoSourceType.VIDEO_SOURCE_CAMERA_PRIMARY) {
+                return;
+            }
+            EffectQualityGovernor.Sample sample = new EffectQualityGovernor.Sample(SystemClock.elapsedRealtime(),
+                    stats.captureFrameRate, stats.encoderOutputFrameRate, stats.targetFrameRate,
+                    cpuTotalPercent, cpuAppPercent);
+            mainHandler.post(() -> onSample(sample));
+        }
+    };
+
+    public EffectCostProfiler(@NonNull Context context, BeautyFeatureManager beautyManager,
+                              FilterManager filterManager) {
+        this(context, beautyManager, filterManager, DeviceCapabilityCache.getInstance(context));
+    }
+
+    EffectCostProfiler(@NonNull Context context, BeautyFeatureManager beautyManager,
+                       FilterManager filterManager, DeviceCapabilityCache capabilities) {
+        this.context = context.getApplicationContext();
+        this.beautyManager = beautyManager;
+        this.filterManager = filterManager;
+        this.capabilities = capabilities;
+    }
+
+    /**
+     * Set the governor to hold at full quality during a run, its steps would skew the numbers
+     */
+    public void setGovernor(EffectQualityGovernor governor) {
+        this.governor = governor;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Set how long each stage is kept and how much of its start is not sampled
+     */
+    public void setDwell(long dwellMs, long settleMs) {
+        this.dwellMs = dwellMs;
+        this.settleMs = Math.min(settleMs, dwellMs);
+    }
+
+    /**
+     * Get the event handler feeding the profiler, register it with RtcEngine.addHandler
+     */
+    public IRtcEngineEventHandler getEventHandler() {
+        return statsHandler;
+    }
+
+    /**
+     * Start a run, the LUT stage is skipped when lutPath is null. Returns
+     * false when a run is already in progress.
+     */
+    public boolean start(String lutPath) {
+        if (isRunning() || beautyManager == null) {
+            return false;
+        }
+        stages = buildStages(lutPath);
+        originalState = BeautyPresetManager.captureState(beautyManager, filterManager);
+        originalBackground = beautyManager.getVirtualBackgroundSource();
+        if (governor != null) {
+            governor.reset();
+            governor.setPaused(true);
+        }
+        Log.i(TAG, "Profiling " + stages.size() + " stages, " + dwellMs + " ms each");
+        stageIndex = -1;
+        nextStage();
+        return true;
+    }
+
+    /**
+     * Stop the run without writing reports and restore the previous effect state
+     */
+    public void cancel() {
+        if (!isRunning()) {
+            return;
+        }
+        mainHandler.removeCallbacks(nextStageRunnable);
+        // Restoring clears the stages, name the stage first
+        Log.i(TAG, "Profiling cancelled at stage " + stages.get(stageIndex).name);
+        restoreOriginalState();
+    }
+
+    public boolean isRunning() {
+        return stages != null;
+    }
+
+    /**
+     * Get the results of the last finished run
+     */
+    public List<StageResult> getResults() {
+        return results;
+    }
+
+    private List<Stage> buildStages(String lutPath) {
+        boolean beautySupported = !Boolean.FALSE.equals(
+                capabilities.isFeatureAvailable(Constants.FEATURE_VIDEO_BEAUTY_EFFECT));
+        boolean backgroundSupported = !Boolean.FALSE.equals(
+                capabilities.isFeatureAvailable(Constants.FEATURE_VIDEO_VIRTUAL_BACKGROUND));
+
+        List<Stage> list = new ArrayList<>();
+        list.add(new Stage("baseline", new BeautyPreset(), false));
+        if (beautySupported) {
+            BeautyPreset beauty = new BeautyPreset();
+            beauty.beautyEnabled = true;
+            beauty.lighteningLevel = 0.6f;
+            beauty.rednessLevel = 0.1f;
+            beauty.sharpnessLevel = 0.3f;
+            beauty.smoothnessLevel = 0.5f;
+            list.add(new Stage("beauty", beauty, false));
+
+            BeautyPreset faceShape = new BeautyPreset();
+            faceShape.faceShapeEnabled = true;
+            faceShape.styleIntensity = 50;
+            list.add(new Stage("face shape", faceShape, false));
+
+            BeautyPreset makeUp = new BeautyPreset();
+            makeUp.makeUp.enable_mu = true;
+            makeUp.makeUp.browStyle = 1;
+            makeUp.makeUp.lashStyle = 1;
+            makeUp.makeUp.shadowStyle = 1;
+            makeUp.makeUp.pupilStyle = 1;
+            makeUp.makeUp.blushStyle = 1;
+            makeUp.makeUp.lipStyle = 1;
+            list.add(new Stage("makeup", makeUp, false));
+        }
+
+        BeautyPreset colorEnhance = new BeautyPreset();
+        colorEnhance.colorEnhanceEnabled = true;
+        list.add(new Stage("color enhance", colorEnhance, false));
+
+        BeautyPreset lowLight = new BeautyPreset();
+        lowLight.lowLightEnabled = true;
+        list.add(new Stage("low-light", lowLight, false));
+
+        BeautyPreset denoise = new BeautyPreset();
+        denoise.denoiseEnabled = true;
+        list.add(new Stage("denoise", denoise, false));
+
+        if (lutPath != null && filterManager != null) {
+            BeautyPreset lut = new BeautyPreset();
+            lut.filterPath = lutPath;
+            list.add(new Stage("lut", lut, false));
+        }
+        if (backgroundSupported) {
+            list.add(new Stage("virtual background", new BeautyPreset(), true));
+        }
+        return list;
+    }
+
+    private void nextStage() {
+        stageIndex++;
+        if (stageIndex >= stages.size()) {
+            finish();
+            return;
+        }
+        Stage stage = stages.get(stageIndex);
+        stage.state.name = "profile " + stage.name;
+        BeautyPresetManager.applyPreset(stage.state, beautyManager, filterManager);
+        if (stage.virtualBackground) {
+            VirtualBackgroundSource blur = new VirtualBackgroundSource();
+            blur.backgroundSourceType = VirtualBackgroundSource.BACKGROUND_BLUR;
+            blur.blurDegree = VirtualBackgroundSource.BLUR_DEGREE_MEDIUM;
+            beautyManager.restoreVirtualBackground(blur);
+        } else if (beautyManager.getVirtualBackgroundSource() != null) {
+            beautyManager.restoreVirtualBackground(null);
+        }
+        stageStartMs = SystemClock.elapsedRealtime();
+        Log.d(TAG, "Stage " + (stageIndex + 1) + "/" + stages.size() + ": " + stage.name);
+        if (listener != null) {
+            listener.onStageStarted(stageIndex, stages.size(), stage.name);
+        }
+        mainHandler.postDelayed(nextStageRunnable, dwellMs);
+    }
+
+    /**
+     * Record one sample for the current stage, samples inside the settle period are dropped
+     */
+    public void onSample(EffectQualityGovernor.Sample sample) {
+        if (!isRunning() || stageIndex < 0 || stageIndex >= stages.size()) {
+            return;
+        }
+        if (sample.timeMs - stageStartMs < settleMs) {
+            return;
+        }
+        stages.get(stageIndex).samples.add(sample);
+    }
+
+    private void finish() {
+        List<StageResult> stageResults = new ArrayList<>();
+        for (Stage stage : stages) {
+            StageResult result = new StageResult(stage.name, stage.samples);
+            stageResults.add(result);
+            Log.i(TAG, result.toString());
+        }
+        results = Collections.unmodifiableList(stageResults);
+        restoreOriginalState();
+
+        List<StageResult> finished = results;
+        String deviceKey = capabilities.getCacheKey();
+        String tier = DeviceTier.detect(context).name();
+        File dir = new File(context.getFilesDir(), REPORT_DIR);
+        String baseName = "effect_costs_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        new Thread(() -> {
+            File csvFile = null;
+            File jsonFile = null;
+            try {
+                if (!dir.isDirectory() && !dir.mkdirs()) {
+                    throw new IOException("Cannot create " + dir);
+                }
+                csvFile = writeReport(new File(dir, baseName + ".csv"), toCsv(finished, deviceKey, tier));
+                jsonFile = writeReport(new File(dir, baseName + ".json"), toJson(finished, deviceKey, tier));
+                Log.i(TAG, "Cost table written to " + csvFile + " and " + jsonFile);
+            } catch (IOException e) {
+                Log.e(TAG, "Error writing cost table: " + e.getMessage());
+            }
+            File csv = csvFile;
+            File json = jsonFile;
+            mainHandler.post(() -> {
+                if (listener != null) {
+                    listener.onFinished(finished, csv, json);
+                }
+            });
+        }, TAG).start();
+    }
+
+    private void restoreOriginalState() {
+        stages = null;
+        stageIndex = -1;
+        BeautyPresetManager.applyPreset(originalState, beautyManager, filterManager);
+        beautyManager.restoreVirtualBackground(originalBackground);
+        if (governor != null) {
+            governor.setPaused(false);
+        }
+    }
+
+    private static File writeReport(File file, String content) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    static String toCsv(List<StageResult> results, String deviceKey, String tier) {
+        StringBuilder builder = new StringBuilder(256 + results.size() * 96);
+        builder.append("device,tier,stage,samples,capture_fps_mean,capture_fps_p95,encoder_fps_mean,"
+                + "encoder_fps_p95,cpu_total_mean,cpu_total_p95,cpu_app_mean,cpu_app_p95\n");
+        for (StageResult result : results) {
+            builder.append(csvField(deviceKey)).append(',').append(tier).append(',')
+                    .append(csvField(result.stage)).append(',').append(result.samples).append(',')
+                    .append(format(result.captureFpsMean)).append(',').append(format(result.captureFpsP95)).append(',')
+                    .append(format(result.encoderFpsMean)).append(',').append(format(result.encoderFpsP95)).append(',')
+                    .append(format(result.cpuTotalMean)).append(',').append(format(result.cpuTotalP95)).append(',')
+                    .append(format(result.cpuAppMean)).append(',').append(format(result.cpuAppP95)).append('\n');
+        }
+        return builder.toString();
+    }
+
+    static String toJson(List<StageResult> results, String deviceKey, String tier) {
+        StringBuilder builder = new StringBuilder(256 + results.size() * 256);
+        builder.append("{\"device\":").append(jsonString(deviceKey))
+                .append(",\"tier\":").append(jsonString(tier))
+                .append(",\"stages\":[");
+        for (int i = 0; i < results.size(); i++) {
+            StageResult result = results.get(i);
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"stage\":").append(jsonString(result.stage))
+                    .append(",\"samples\":").append(result.samples)
+                    .append(",\"captureFps\":").append(jsonStats(result.captureFpsMean, result.captureFpsP95))
+                    .append(",\"encoderFps\":").append(jsonStats(result.encoderFpsMean, result.encoderFpsP95))
+                    .append(",\"cpuTotal\":").append(jsonStats(result.cpuTotalMean, result.cpuTotalP95))
+                    .append(",\"cpuApp\":").append(jsonStats(result.cpuAppMean, result.cpuAppP95))
+                    .append('}');
+        }
+        return builder.append("]}").toString();
+    }
+
+    private static String jsonStats(double mean, double p95) {
+        return "{\"mean\":" + (Double.isNaN(mean) ? "null" : format(mean))
+                + ",\"p95\":" + (Double.isNaN(p95) ? "null" : format(p95)) + "}";
+    }
+
+    private static String jsonString(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static String csvField(String value) {
+        return value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "" : String.format(Locale.US, "%.1f", value);
+    }
+
+    private static double[] toArray(List<Double> values) {
+        double[] array = new double[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    static double mean(double[] values) {
+        if (values.length == 0) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    /**
+     * Nearest-rank percentile, q in (0, 1]
+     */
+    static double percentile(double[] values, double q) {
+        if (values.length == 0) {
+            return Double.NaN;
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(q * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+}
@@ -0,0 +1,364 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.agora.rtc2.Constants;
+import io.agora.rtc2.IRtcEngineEventHandler;
+
+/**
+ * Effect Quality Governor
+ * Responsible for keeping the published frame rate up when the enabled
+ * effects cost more than the device can afford. Local video and RTC stats
+ * are folded into samples; sustained overload steps one rung down a ladder
+ * of cheaper effect settings, sustained headroom steps back up. Between the
+ * overload and healthy thresholds nothing changes, and stepping up waits for
+ * a cool-down that doubles whenever a restored rung has to be dropped again.
+ * A rung whose effect is off is skipped, degrading always takes the first
+ * applicable rung not applied yet and restoring the last one applied.
+ * Samples are evaluated on the main thread; {@link #onSample} can be fed
+ * synthetic samples directly.
+ */
+public class EffectQualityGovernor {
+    private static final String TAG = "EffectQualityGovernor";
+    private static final int DEFAULT_TARGET_FPS = 30;
+
+    /**
+     * Thresholds, the defaults fit the 30 fps capture of this example
+     */
+    public static class Config {
+        // Overloaded below this share of the target frame rate or above this CPU usage
+        public float overloadFpsRatio = 0.8f;
+        public double overloadCpuPercent = 85;
+        // Healthy at or above this share of the target frame rate and below this CPU usage
+        public float healthyFpsRatio = 0.95f;
+        public double healthyCpuPercent = 65;
+        // Consecutive samples needed before stepping, stats arrive every 2 seconds
+        public int degradeSamples = 2;
+        public int restoreSamples = 5;
+        public long restoreCooldownMs = 10000;
+        public long maxRestoreCooldownMs = 160000;
+    }
+
+    /**
+     * One evaluation input, built from onLocalVideoStats and the latest onRtcStats
+     */
+    public static final class Sample {
+        public final long timeMs;
+        public final int captureFps;
+        public final int encoderFps;
+        public final int targetFps;
+        // Negative when no RTC stats arrived yet
+        public final double cpuTotalPercent;
+        public final double cpuAppPercent;
+
+        public Sample(long timeMs, int captureFps, int encoderFps, int targetFps,
+                      double cpuTotalPercent, double cpuAppPercent) {
+            this.timeMs = timeMs;
+            this.captureFps = captureFps;
+            this.encoderFps = encoderFps;
+            this.targetFps = targetFps > 0 ? targetFps : DEFAULT_TARGET_FPS;
+            this.cpuTotalPercent = cpuTotalPercent;
+            this.cpuAppPercent = cpuAppPercent;
+        }
+
+        @Override
+        public String toString() {
+            return "encoderFps=" + encoderFps + "/" + targetFps + ", captureFps=" + captureFps
+                    + ", cpu=" + (cpuTotalPercent < 0 ? "n/a" : Math.round(cpuTotalPercent) + "%")
+                    + ", appCpu=" + (cpuAppPercent < 0 ? "n/a" : Math.round(cpuAppPercent) + "%");
+        }
+    }
+
+    /**
+     * Changes one effect setting
+     */
+    public interface Action {
+        void run();
+    }
+
+    /**
+     * Tells whether a rung would change anything, e.g. its effect is enabled
+     */
+    public interface Condition {
+        boolean isApplicable();
+    }
+
+    /**
+     * Notified after every step, on the main thread
+     */
+    public interface Listener {
+        void onLevelChanged(int level, String stepName, boolean degraded, Sample trigger);
+    }
+
+    private static final class Step {
+        final String name;
+        final Condition applicable;
+        final Action degrade;
+        final Action restore;
+        boolean applied;
+
+        Step(String name, Condition applicable, Action degrade, Action restore) {
+            this.name = name;
+            this.applicable = applicable;
+            this.degrade = degrade;
+            this.restore = restore;
+        }
+    }
+
+    private final Config config;
+    private final List<Step> ladder = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Listener listener;
+
+    // Number of rungs currently applied, 0 is full quality
+    private int level = 0;
+    private int overloadStreak = 0;
+    private int healthyStreak = 0;
+    private long lastChangeMs = Long.MIN_VALUE;
+    private long lastRestoreMs = Long.MIN_VALUE;
+    private long restoreCooldownMs;
+    private long degradeCount = 0;
+    private long restoreCount = 0;
+    private boolean paused = false;
+
+    // Written by the SDK callback thread
+    private volatile double cpuTotalPercent = -1;
+    private volatile double cpuAppPercent = -1;
+
+    private final IRtcEngineEventHandler statsHandler = new IRtcEngineEventHandler() {
+        @Override
+        public void onRtcStats(RtcStats stats) {
+            cpuTotalPercent = stats.cpuTotalUsage;
+            cpuAppPercent = stats.cpuAppUsage;
+        }
+
+        @Override
+        public void onLocalVideoStats(Constants.VideoSourceType source, LocalVideoStats stats) {
+            if (source != Constants.VideoSourceType.VIDEO_SOURCE_CAMERA_PRIMARY) {
+                return;
+            }
+            Sample sample = new Sample(SystemClock.elapsedRealtime(), stats.captureFrameRate,
+                    stats.encoderOutputFrameRate, stats.targetFrameRate, cpuTotalPercent, cpuAppPercent);
+            mainHandler.post(() -> onSample(sample));
+        }
+    };
+
+    public EffectQualityGovernor() {
+        this(new Config());
+    }
+
+    public EffectQualityGovernor(Config config) {
+        this.config = config;
+        this.restoreCooldownMs = config.restoreCooldownMs;
+    }
+
+    /**
+     * Append a rung that always applies, rungs are degraded in the order they are added
+     */
+    public EffectQualityGovernor addStep(String name, Action degrade, Action restore) {
+        return addStep(name, null, degrade, restore);
+    }
+
+    /**
+     * Append a rung that is skipped while applicable returns false
+     */
+    public EffectQualityGovernor addStep(String name, Condition applicable, Action degrade, Action restore) {
+        ladder.add(new Step(name, applicable, degrade, restore));
+        return this;
+    }
+
+    /**
+     * Add the default ladder: denoise high quality to fast, low-light
+     * enhancement off, virtual background segmentation off
+     */
+    public EffectQualityGovernor addDefaultSteps(BeautyFeatureManager beautyManager) {
+        addStep("denoise HQ->fast",
+                beautyManager::isDenoiseEnabled,
+                () -> beautyManager.setDenoiseFastMode(true),
+                () -> beautyManager.setDenoiseFastMode(false));
+        addStep("low-light off",
+                beautyManager::isLowLightEnabled,
+                () -> beautyManager.setLowLightSuppressed(true),
+                () -> beautyManager.setLowLightSuppressed(false));
+        addStep("segmentation off",
+                () -> beautyManager.getVirtualBackgroundSource() != null,
+                () -> beautyManager.setVirtualBackgroundSuppressed(true),
+                () -> beautyManager.setVirtualBackgroundSuppressed(false));
+        return this;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Get the event handler feeding the governor, register it with RtcEngine.addHandler
+     */
+    public IRtcEngineEventHandler getEventHandler() {
+        return statsHandler;
+    }
+
+    /**
+     * Evaluate one sample, may step the ladder down or up by one rung
+     */
+    public void onSample(Sample sample) {
+        if (paused) {
+            return;
+        }
+        boolean cpuKnown = sample.cpuTotalPercent >= 0;
+        boolean overloaded = sample.encoderFps < sample.targetFps * config.overloadFpsRatio
+                || cpuKnown && sample.cpuTotalPercent > config.overloadCpuPercent;
+        boolean healthy = sample.encoderFps >= sample.targetFps * config.healthyFpsRatio
+                && (!cpuKnown || sample.cpuTotalPercent < config.healthyCpuPercent);
+
+        if (overloaded) {
+            overloadStreak++;
+            healthyStreak = 0;
+            if (overloadStreak >= config.degradeSamples) {
+                Step step = nextDegradeStep();
+                if (step != null) {
+                    degrade(step, sample);
+                }
+            }
+        } else if (healthy) {
+            healthyStreak++;
+            overloadStreak = 0;
+            if (healthyStreak >= config.restoreSamples && level > 0
+                    && sample.timeMs - lastChangeMs >= restoreCooldownMs) {
+                restore(sample);
+            }
+        } else {
+            // Inside the hysteresis band, keep the current rung
+            overloadStreak = 0;
+            healthyStreak = 0;
+        }
+    }
+
+    /**
+     * Get the first rung not applied yet whose effect is on, null when none is left
+     */
+    private Step nextDegradeStep() {
+        for (Step step : ladder) {
+            if (!step.applied && isApplicable(step)) {
+                return step;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the last rung applied, null at full quality
+     */
+    private Step lastAppliedStep() {
+        for (int i = ladder.size() - 1; i >= 0; i--) {
+            if (ladder.get(i).applied) {
+                return ladder.get(i);
+            }
+        }
+        return null;
+    }
+
+    private boolean isApplicable(Step step) {
+        try {
+            return step.applicable == null || step.applicable.isApplicable();
+        } catch (Exception e) {
+            Log.e(TAG, "Error checking step " + step.name + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void degrade(Step step, Sample sample) {
+        // Dropping a rung soon after restoring it means the restore was premature
+        if (lastRestoreMs != Long.MIN_VALUE && sample.timeMs - lastRestoreMs < restoreCooldownMs) {
+            restoreCooldownMs = Math.min(restoreCooldownMs * 2, config.maxRestoreCooldownMs);
+        }
+        runAction(step.degrade, step.name);
+        step.applied = true;
+        level++;
+        degradeCount++;
+        onStepped(step, true, sample);
+    }
+
+    private void restore(Sample sample) {
+        Step step = lastAppliedStep();
+        runAction(step.restore, step.name);
+        step.applied = false;
+        level--;
+        restoreCount++;
+        lastRestoreMs = sample.timeMs;
+        onStepped(step, false, sample);
+    }
+
+    private void onStepped(Step step, boolean degraded, Sample sample) {
+        overloadStreak = 0;
+        healthyStreak = 0;
+        lastChangeMs = sample.timeMs;
+        Log.i(TAG, (degraded ? "Degraded" : "Restored") + " \"" + step.name + "\", level " + level + "/"
+                + ladder.size() + ", " + sample + (degraded ? "" : ", next restore cool-down " + restoreCooldownMs + " ms"));
+        if (listener != null) {
+            listener.onLevelChanged(level, step.name, degraded, sample);
+        }
+    }
+
+    private void runAction(Action action, String name) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying step " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Restore every rung and clear the history, e.g. when leaving the channel
+     */
+    public void reset() {
+        for (int i = ladder.size() - 1; i >= 0; i--) {
+            Step step = ladder.get(i);
+            if (step.applied) {
+                runAction(step.restore, step.name);
+                step.applied = false;
+            }
+        }
+        level = 0;
+        overloadStreak = 0;
+        healthyStreak = 0;
+        lastChangeMs = Long.MIN_VALUE;
+        lastRestoreMs = Long.MIN_VALUE;
+        restoreCooldownMs = config.restoreCooldownMs;
+    }
+
+    /**
+     * Ignore samples while paused, e.g. while the effect costs are profiled.
+     * Streaks start over when resumed.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        overloadStreak = 0;
+        healthyStreak = 0;
+    }
+
+    /**
+     * Get the number of rungs currently applied, 0 is full quality
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    public long getDegradeCount() {
+        return degradeCount;
+    }
+
+    public long getRestoreCount() {
+        return restoreCount;
+    }
+
+    public long getRestoreCooldownMs() {
+        return restoreCooldownMs;
+    }
+}
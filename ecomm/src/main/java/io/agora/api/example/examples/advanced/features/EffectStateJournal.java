@@ -0,0 +1,303 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.agora.api.example.bean.BeautyPreset;
+import io.agora.rtc2.video.VirtualBackgroundSource;
+
+/**
+ * Effect State Journal
+ * Responsible for surviving engine destruction and process death with the
+ * effect state intact. Changes reported by BeautyFeatureManager and
+ * FilterManager are debounced, captured on the main thread into one compact
+ * binary record and written on a background thread. The record is read in
+ * the background as soon as the journal is created, which the activity does
+ * in onCreate, and replayed on the next engine init as the minimal call
+ * sequence. The main thread never waits for the read: a record still being
+ * read is replayed when it arrives.
+ */
+public class EffectStateJournal {
+    private static final String TAG = "EffectStateJournal";
+    private static final String JOURNAL_FILE = "effect_state.journal";
+    private static final int RECORD_MAGIC = 0x45464a31;
+    private static final int RECORD_VERSION = 1;
+    private static final long CAPTURE_DELAY_MS = 1000;
+
+    private static volatile EffectStateJournal instance;
+
+    /**
+     * A journal record, the effect state plus the virtual background
+     */
+    public static final class Record {
+        public final long savedAt;
+        public final BeautyPreset state;
+        // Null when the virtual background is off
+        public final VirtualBackgroundSource virtualBackground;
+
+        Record(long savedAt, BeautyPreset state, VirtualBackgroundSource virtualBackground) {
+            this.savedAt = savedAt;
+            this.state = state;
+            this.virtualBackground = virtualBackground;
+        }
+    }
+
+    private final File journalFile;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Future<Record> pendingRead;
+    // Latest record captured in this process, newer than the file while a write is queued
+    private volatile Record lastRecord;
+
+    private BeautyFeatureManager beautyManager;
+    private FilterManager filterManager;
+    private final Runnable captureRunnable = this::capture;
+    private final Runnable changeListener = this::onStateChanged;
+    private boolean restoring = false;
+    // Incremented on every restore, a replay waiting for the read is dropped by a newer one
+    private int restoreGeneration = 0;
+    private long writeCount = 0;
+
+    EffectStateJournal(File journalFile) {
+        this.journalFile = journalFile;
+        this.pendingRead = writer.submit(this::read);
+    }
+
+    /**
+     * Get the process-wide journal, its record starts loading in the background on first use
+     */
+    public static EffectStateJournal getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (EffectStateJournal.class) {
+                if (instance == null) {
+                    instance = new EffectStateJournal(new File(context.getApplicationContext().getFilesDir(), JOURNAL_FILE));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Replay the journal into freshly created managers, call right after
+     * engine init. Effects that are off cost no engine call. When the record
+     * is still being read the replay is posted to the main thread once it is
+     * there, unless the effects were changed or restored again meanwhile.
+     */
+    public void restore(BeautyFeatureManager beautyManager, FilterManager filterManager) {
+        long start = System.nanoTime();
+        int generation = ++restoreGeneration;
+        Record record = lastRecord;
+        if (record != null || pendingRead.isDone()) {
+            replay(record != null ? record : readResult(), beautyManager, filterManager, start);
+            return;
+        }
+        
+        // The writer thread finishes the read before it gets here
+        writer.execute(() -> {
+            Record read = readResult();
+            mainHandler.post(() -> {
+                if (generation != restoreGeneration || lastRecord != null) {
+                    Log.d(TAG, "Effect state changed before the journal was read, not restoring");
+                    return;
+                }
+                replay(read, beautyManager, filterManager, start);
+            });
+        });
+        Log.d(TAG, "Journal still loading, effect state is restored when read");
+    }
+    
+    /**
+     * Get the record read at creation, only call once the read is done
+     */
+    private Record readResult() {
+        try {
+            return pendingRead.get();
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading journal: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private void replay(Record record, BeautyFeatureManager beautyManager, FilterManager filterManager, long start) {
+        if (record == null) {
+            Log.d(TAG, "No effect state to restore");
+            return;
+        }
+        long waitNanos = System.nanoTime() - start;
+
+        EngineCommandExecutor executor = EngineCommandExecutor.getInstance();
+        long submittedBefore = executor.getSubmittedCount();
+        restoring = true;
+        try {
+            BeautyPresetManager.applyPreset(record.state, beautyManager, filterManager);
+            if (record.virtualBackground != null && beautyManager != null) {
+                beautyManager.restoreVirtualBackground(record.virtualBackground);
+            }
+        } finally {
+            restoring = false;
+        }
+        long queuedNanos = System.nanoTime() - start;
+        long calls = executor.getSubmittedCount() - submittedBefore;
+        // The marker runs after every restore command, the whole batch has reached the engine then
+        executor.submit(null, () -> 0, result -> Log.i(TAG, "Effect state restored: " + calls
+                + " engine calls, read after " + waitNanos / 1000 + " us, queued " + queuedNanos / 1000
+                + " us, applied after " + (System.nanoTime() - start) / 1000 + " us"));
+    }
+
+    /**
+     * Journal the state of these managers from now on
+     */
+    public void attach(BeautyFeatureManager beautyManager, FilterManager filterManager) {
+        if (this.beautyManager != null) {
+            this.beautyManager.setStateListener(null);
+        }
+        if (this.filterManager != null) {
+            this.filterManager.setStateListener(null);
+        }
+        this.beautyManager = beautyManager;
+        this.filterManager = filterManager;
+        if (beautyManager != null) {
+            beautyManager.setStateListener(changeListener);
+        }
+        if (filterManager != null) {
+            filterManager.setStateListener(changeListener);
+        }
+    }
+
+    /**
+     * Write a pending change now, e.g. before the engine is destroyed
+     */
+    public void flush() {
+        mainHandler.removeCallbacks(captureRunnable);
+        capture();
+    }
+
+    private void onStateChanged() {
+        if (restoring) {
+            return;
+        }
+        // Slider drags report every frame, one capture per quiet second is enough
+        mainHandler.removeCallbacks(captureRunnable);
+        mainHandler.postDelayed(captureRunnable, CAPTURE_DELAY_MS);
+    }
+
+    private void capture() {
+        if (beautyManager == null && filterManager == null) {
+            return;
+        }
+        BeautyPreset state = BeautyPresetManager.captureState(beautyManager, filterManager);
+        VirtualBackgroundSource virtualBackground = beautyManager != null
+                ? beautyManager.getVirtualBackgroundSource() : null;
+        Record record = new Record(System.currentTimeMillis(), state, virtualBackground);
+        lastRecord = record;
+        byte[] bytes;
+        try {
+            bytes = encode(record);
+        } catch (IOException e) {
+            Log.e(TAG, "Error encoding journal record: " + e.getMessage());
+            return;
+        }
+        writer.execute(() -> write(bytes));
+    }
+
+    static byte[] encode(Record record) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(RECORD_MAGIC);
+        out.writeByte(RECORD_VERSION);
+        out.writeLong(record.savedAt);
+        record.state.writeTo(out);
+        VirtualBackgroundSource background = record.virtualBackground;
+        if (background == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(background.backgroundSourceType);
+            out.writeInt(background.color);
+            out.writeByte(background.blurDegree);
+            out.writeUTF(background.source != null ? background.source : "");
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    static Record decode(DataInputStream in) throws IOException {
+        if (in.readInt() != RECORD_MAGIC || in.readUnsignedByte() != RECORD_VERSION) {
+            return null;
+        }
+        long savedAt = in.readLong();
+        BeautyPreset state = BeautyPreset.readFrom(in);
+        VirtualBackgroundSource background = null;
+        int type = in.readUnsignedByte();
+        if (type != 0) {
+            background = new VirtualBackgroundSource();
+            background.backgroundSourceType = type;
+            background.color = in.readInt();
+            background.blurDegree = in.readByte();
+            String source = in.readUTF();
+            background.source = source.isEmpty() ? null : source;
+        }
+        return new Record(savedAt, state, background);
+    }
+
+    private Record read() {
+        if (!journalFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            Record record = decode(in);
+            if (record == null) {
+                Log.w(TAG, "Ignoring journal in unknown format");
+            }
+            return record;
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading journal: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(byte[] bytes) {
+        File tmpFile = new File(journalFile.getPath() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+                out.write(bytes);
+                out.getFD().sync();
+            }
+            if (!tmpFile.renameTo(journalFile)) {
+                tmpFile.delete();
+                Log.e(TAG, "Failed to replace journal");
+                return;
+            }
+            writeCount++;
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing journal: " + e.getMessage());
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Get the number of records written, read on the writer thread
+     */
+    long getWriteCount() {
+        return writeCount;
+    }
+}
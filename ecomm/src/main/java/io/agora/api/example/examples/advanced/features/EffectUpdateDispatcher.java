@@ -0,0 +1,209 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Effect Update Dispatcher
+ * Responsible for coalescing rapid effect updates, such as slider drags, into
+ * at most one engine call per effect type and display frame. Each effect type
+ * has a slot holding the latest desired state; dirty slots are sent on the
+ * next Choreographer frame, or immediately on {@link #flush()}.
+ * Must be used from the main thread.
+ */
+public class EffectUpdateDispatcher {
+    private static final String TAG = "EffectUpdateDispatcher";
+
+    /**
+     * Sends a state to the engine
+     */
+    public interface Sender<T> {
+        void send(T state);
+    }
+
+    /**
+     * Runs callbacks on the next display frame, the Choreographer outside of tests
+     */
+    interface FrameScheduler {
+        void postFrameCallback(Choreographer.FrameCallback callback);
+
+        void removeFrameCallback(Choreographer.FrameCallback callback);
+    }
+
+    private static final FrameScheduler CHOREOGRAPHER = new FrameScheduler() {
+        @Override
+        public void postFrameCallback(Choreographer.FrameCallback callback) {
+            Choreographer.getInstance().postFrameCallback(callback);
+        }
+
+        @Override
+        public void removeFrameCallback(Choreographer.FrameCallback callback) {
+            Choreographer.getInstance().removeFrameCallback(callback);
+        }
+    };
+
+    /**
+     * Latest desired state of one effect type
+     */
+    public final class Slot<T> {
+        private final String name;
+        private final Sender<T> sender;
+        private T state;
+        private boolean dirty;
+        private long eventCount;
+        private long sendCount;
+
+        private Slot(String name, Sender<T> sender) {
+            this.name = name;
+            this.sender = sender;
+        }
+
+        /**
+         * Replace the desired state, it is sent on the next display frame
+         */
+        public void submit(T state) {
+            this.state = state;
+            this.dirty = true;
+            eventCount++;
+            scheduleFrame();
+        }
+
+        /**
+         * Drop a pending state, e.g. when the effect is being switched off
+         */
+        public void discard() {
+            dirty = false;
+        }
+
+        private void sendIfDirty() {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            sendCount++;
+            try {
+                sender.send(state);
+            } catch (Exception e) {
+                Log.e(TAG, "Error sending " + name + " update: " + e.getMessage());
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isDirty() {
+            return dirty;
+        }
+
+        public long getEventCount() {
+            return eventCount;
+        }
+
+        public long getSendCount() {
+            return sendCount;
+        }
+    }
+
+    private final List<Slot<?>> slots = new ArrayList<>();
+    private final FrameScheduler scheduler;
+    private boolean frameScheduled = false;
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> {
+        frameScheduled = false;
+        sendDirtySlots();
+    };
+
+    public EffectUpdateDispatcher() {
+        this(CHOREOGRAPHER);
+    }
+
+    EffectUpdateDispatcher(FrameScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Create the slot for one effect type
+     */
+    public <T> Slot<T> createSlot(String name, Sender<T> sender) {
+        Slot<T> slot = new Slot<>(name, sender);
+        slots.add(slot);
+        return slot;
+    }
+
+    /**
+     * Send every pending state now, e.g. when the user releases a slider, so the
+     * final value never waits for or depends on another frame
+     */
+    public void flush() {
+        cancelFrame();
+        sendDirtySlots();
+        Log.d(TAG, "Flushed: " + this);
+    }
+
+    /**
+     * Drop pending states without sending them
+     */
+    public void cancel() {
+        cancelFrame();
+        for (Slot<?> slot : slots) {
+            slot.dirty = false;
+        }
+    }
+
+    private void scheduleFrame() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            scheduler.postFrameCallback(frameCallback);
+        }
+    }
+
+    private void cancelFrame() {
+        if (frameScheduled) {
+            scheduler.removeFrameCallback(frameCallback);
+            frameScheduled = false;
+        }
+    }
+
+    private void sendDirtySlots() {
+        for (Slot<?> slot : slots) {
+            slot.sendIfDirty();
+        }
+    }
+
+    /**
+     * Get the number of updates received over all slots
+     */
+    public long getEventCount() {
+        long count = 0;
+        for (Slot<?> slot : slots) {
+            count += slot.eventCount;
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of engine calls issued over all slots
+     */
+    public long getSendCount() {
+        long count = 0;
+        for (Slot<?> slot : slots) {
+            count += slot.sendCount;
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Slot<?> slot : slots) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(slot.name).append(' ').append(slot.eventCount).append("->").append(slot.sendCount);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,242 @@
+package io.agora.api.example.examples.advanced.features;
+
+import io.agora.api.example.examples.advanced.device.DeviceTier;
+
+/**
+ * Encoder Profile Ladder
+ * Responsible for choosing the published resolution and frame rate from a
+ * ladder of encoder profiles. The device tier picks the starting rung, which
+ * is also the best rung the device is allowed; the uplink then moves the
+ * profile down and back up. A rung is left downward when the encoder target
+ * bitrate falls well below what it needs, the uplink quality is bad or the
+ * encoder cannot keep the frame rate; it is only regained after sustained
+ * good samples and a dwell that doubles whenever a step up has to be taken
+ * back. Plain Java without engine or Android calls, so recorded stats
+ * traces can be replayed through {@link #onSample}.
+ */
+public class EncoderProfileLadder {
+
+    /**
+     * One encoder setting, requiredKbps is the standard bitrate of this
+     * resolution and frame rate
+     */
+    public static final class Profile {
+        public final String name;
+        public final int width;
+        public final int height;
+        public final int frameRate;
+        public final int requiredKbps;
+
+        public Profile(String name, int width, int height, int frameRate, int requiredKbps) {
+            this.name = name;
+            this.width = width;
+            this.height = height;
+            this.frameRate = frameRate;
+            this.requiredKbps = requiredKbps;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Best first
+     */
+    public static final Profile[] DEFAULT_PROFILES = {
+        new Profile("1080p30", 1920, 1080, 30, 3150),
+        new Profile("720p30", 1280, 720, 30, 1710),
+        new Profile("720p24", 1280, 720, 24, 1500),
+        new Profile("540p24", 960, 540, 24, 1100)
+    };
+
+    /**
+     * Thresholds, network quality uses the SDK scale: 1 excellent, 2 good,
+     * 3 poor, 4 bad, 5 very bad, 6 down, 0 unknown
+     */
+    public static class Config {
+        // Step down below this share of the rung's bitrate, step up at or above this share
+        public float downBitrateRatio = 0.75f;
+        public float upBitrateRatio = 0.95f;
+        public int downQuality = 4;
+        public int upQuality = 2;
+        // Below the governor's 0.8, effects are stepped down before the resolution
+        public float downFpsRatio = 0.7f;
+        public float upFpsRatio = 0.9f;
+        // Consecutive samples needed before stepping, local video stats arrive every 2 seconds
+        public int downSamples = 2;
+        public int upSamples = 5;
+        // Minimum time on a rung before any step, and before a step up
+        public long minDwellMs = 6000;
+        public long upDwellMs = 20000;
+        public long maxUpDwellMs = 160000;
+    }
+
+    /**
+     * One evaluation input, uplink and quality are the latest values seen
+     */
+    public static final class Sample {
+        public final long timeMs;
+        // Encoder target bitrate from onUplinkNetworkInfoUpdated, negative when unknown
+        public final int uplinkKbps;
+        // Transmit quality of the local user from onNetworkQuality, 0 when unknown
+        public final int txQuality;
+        public final int encoderFps;
+        public final int targetFps;
+
+        public Sample(long timeMs, int uplinkKbps, int txQuality, int encoderFps, int targetFps) {
+            this.timeMs = timeMs;
+            this.uplinkKbps = uplinkKbps;
+            this.txQuality = txQuality;
+            this.encoderFps = encoderFps;
+            this.targetFps = targetFps;
+        }
+    }
+
+    private final Profile[] profiles;
+    private final int ceiling;
+    private final Config config;
+
+    private int rung;
+    private int downStreak = 0;
+    private int upStreak = 0;
+    private long lastChangeMs = Long.MIN_VALUE;
+    private long lastUpMs = Long.MIN_VALUE;
+    private long upDwellMs;
+    private long stepDownCount = 0;
+    private long stepUpCount = 0;
+
+    public EncoderProfileLadder(Profile[] profiles, int ceiling, Config config) {
+        this.profiles = profiles;
+        this.ceiling = Math.max(0, Math.min(ceiling, profiles.length - 1));
+        this.config = config;
+        this.rung = this.ceiling;
+        this.upDwellMs = config.upDwellMs;
+    }
+
+    /**
+     * Create the default ladder for a device tier: high-tier devices start at
+     * 1080p30, mid-tier at 720p30 and low-tier at 720p24
+     */
+    public static EncoderProfileLadder forTier(DeviceTier tier) {
+        int ceiling;
+        switch (tier) {
+            case HIGH:
+                ceiling = 0;
+                break;
+            case MID:
+                ceiling = 1;
+                break;
+            default:
+                ceiling = 2;
+                break;
+        }
+        return new EncoderProfileLadder(DEFAULT_PROFILES, ceiling, new Config());
+    }
+
+    /**
+     * Evaluate one sample, returns the new rung or -1 when the profile stays
+     */
+    public int onSample(Sample sample) {
+        Profile current = profiles[rung];
+        boolean bitrateKnown = sample.uplinkKbps >= 0;
+        int targetFps = sample.targetFps > 0 ? sample.targetFps : current.frameRate;
+
+        boolean congested = bitrateKnown && sample.uplinkKbps < current.requiredKbps * config.downBitrateRatio
+                || sample.txQuality >= config.downQuality
+                || sample.encoderFps < targetFps * config.downFpsRatio;
+        boolean clear = (!bitrateKnown || sample.uplinkKbps >= current.requiredKbps * config.upBitrateRatio)
+                && sample.txQuality != 0 && sample.txQuality <= config.upQuality
+                && sample.encoderFps >= targetFps * config.upFpsRatio;
+
+        // The bandwidth estimate ramps up after joining, the starting rung gets a full dwell too
+        if (lastChangeMs == Long.MIN_VALUE) {
+            lastChangeMs = sample.timeMs;
+        }
+        long sinceChange = sample.timeMs - lastChangeMs;
+        if (congested) {
+            downStreak++;
+            upStreak = 0;
+            if (downStreak >= config.downSamples && rung < profiles.length - 1 && sinceChange >= config.minDwellMs) {
+                return stepDown(sample);
+            }
+        } else if (clear) {
+            upStreak++;
+            downStreak = 0;
+            if (upStreak >= config.upSamples && rung > ceiling && sinceChange >= upDwellMs) {
+                return stepUp(sample);
+            }
+        } else {
+            // Inside the hysteresis band, keep the current rung
+            downStreak = 0;
+            upStreak = 0;
+        }
+        return -1;
+    }
+
+    private int stepDown(Sample sample) {
+        // Losing a rung soon after regaining it means the step up was premature
+        if (lastUpMs != Long.MIN_VALUE && sample.timeMs - lastUpMs < upDwellMs) {
+            upDwellMs = Math.min(upDwellMs * 2, config.maxUpDwellMs);
+        }
+        int target = rung + 1;
+        // A known bitrate can skip rungs it cannot carry either
+        if (sample.uplinkKbps >= 0) {
+            while (target < profiles.length - 1
+                    && sample.uplinkKbps < profiles[target].requiredKbps * config.downBitrateRatio) {
+                target++;
+            }
+        }
+        rung = target;
+        stepDownCount++;
+        onStepped(sample);
+        return rung;
+    }
+
+    private int stepUp(Sample sample) {
+        rung--;
+        stepUpCount++;
+        lastUpMs = sample.timeMs;
+        onStepped(sample);
+        return rung;
+    }
+
+    private void onStepped(Sample sample) {
+        downStreak = 0;
+        upStreak = 0;
+        lastChangeMs = sample.timeMs;
+    }
+
+    /**
+     * Go back to the starting rung and clear the history, e.g. before joining again
+     */
+    public void reset() {
+        rung = ceiling;
+        downStreak = 0;
+        upStreak = 0;
+        lastChangeMs = Long.MIN_VALUE;
+        lastUpMs = Long.MIN_VALUE;
+        upDwellMs = config.upDwellMs;
+    }
+
+    public int getRung() {
+        return rung;
+    }
+
+    public Profile getProfile() {
+        return profiles[rung];
+    }
+
+    public long getStepDownCount() {
+        return stepDownCount;
+    }
+
+    public long getStepUpCount() {
+        return stepUpCount;
+    }
+
+    public long getUpDwellMs() {
+        return upDwellMs;
+    }
+}
@@ -0,0 +1,320 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Engine Command Executor
+ * Responsible for running RtcEngine setters off the UI thread: one ordered
+ * queue drained by a single dedicated thread. A command submitted under a key
+ * replaces a still-queued command with the same key, so only the latest
+ * zoom, focus or effect state is sent. Completion callbacks run on the main
+ * thread, and execution time of every command is recorded in a histogram.
+ */
+public class EngineCommandExecutor {
+    private static final String TAG = "EngineCommandExecutor";
+    private static final int STATS_INTERVAL_COMMANDS = 200;
+
+    /**
+     * Upper bounds of the latency histogram buckets in microseconds, the last
+     * bucket collects everything slower
+     */
+    public static final long[] LATENCY_BUCKETS_US = {
+        50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, Long.MAX_VALUE
+    };
+
+    // Command keys, a queued command is replaced by a newer one with the same key
+    public static final String KEY_BEAUTY = "beauty";
+    public static final String KEY_FACE_SHAPE = "faceShape";
+    public static final String KEY_FACE_AREA = "faceArea";
+    public static final String KEY_COLOR_ENHANCE = "colorEnhance";
+    public static final String KEY_MAKEUP = "makeup";
+    public static final String KEY_LOW_LIGHT = "lowLight";
+    public static final String KEY_DENOISE = "denoise";
+    public static final String KEY_VIRTUAL_BACKGROUND = "virtualBackground";
+    public static final String KEY_FILTER = "filter";
+    public static final String KEY_ZOOM = "zoom";
+    public static final String KEY_FOCUS_POSITION = "focusPosition";
+    public static final String KEY_AUTO_FOCUS_FACE = "autoFocusFace";
+    public static final String KEY_ENCODER = "encoder";
+
+    private static volatile EngineCommandExecutor instance;
+
+    /**
+     * An engine call, returns the SDK result code
+     */
+    public interface Command {
+        int run();
+    }
+
+    /**
+     * Receives the result code of a command on the main thread
+     */
+    public interface Callback {
+        void onComplete(int result);
+    }
+
+    private static final class Pending {
+        final String key;
+        final Command command;
+        final Callback callback;
+        final long submitNanos;
+        boolean done;
+        int result;
+
+        Pending(String key, Command command, Callback callback) {
+            this.key = key;
+            this.command = command;
+            this.callback = callback;
+            this.submitNanos = System.nanoTime();
+        }
+    }
+
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    // Queued commands that a later command with the same key may replace
+    private final Map<String, Pending> collapsible = new HashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Thread worker;
+    private Pending running;
+
+    private final long[] histogram = new long[LATENCY_BUCKETS_US.length];
+    private long submittedCount;
+    private long collapsedCount;
+    private long executedCount;
+    private long totalRunNanos;
+    private long maxRunNanos;
+    private long totalWaitNanos;
+
+    private EngineCommandExecutor() {
+        worker = new Thread(this::drainLoop, TAG);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Get the process-wide executor, shared by every manager holding the engine
+     */
+    public static EngineCommandExecutor getInstance() {
+        if (instance == null) {
+            synchronized (EngineCommandExecutor.class) {
+                if (instance == null) {
+                    instance = new EngineCommandExecutor();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Queue a command without completion callback
+     */
+    public void submit(String key, Command command) {
+        submit(key, command, null);
+    }
+
+    /**
+     * Queue a command. With a non-null key it replaces the queued command with
+     * the same key, whose callback is then dropped; the command moves to the
+     * end of the queue so submission order is kept.
+     */
+    public synchronized void submit(String key, Command command, Callback callback) {
+        Pending pending = new Pending(key, command, callback);
+        submittedCount++;
+        if (key != null) {
+            Pending superseded = collapsible.put(key, pending);
+            if (superseded != null) {
+                queue.remove(superseded);
+                collapsedCount++;
+            }
+        }
+        queue.addLast(pending);
+        notifyAll();
+    }
+
+    /**
+     * Run a command behind everything queued and wait for its result, for the
+     * rare calls whose result decides what happens next. Queued commands with
+     * the same key are dropped, as they are superseded.
+     */
+    public int call(String key, Command command) throws InterruptedException {
+        Pending pending = new Pending(key, command, null);
+        synchronized (this) {
+            submittedCount++;
+            if (key != null) {
+                Pending superseded = collapsible.remove(key);
+                if (superseded != null) {
+                    queue.remove(superseded);
+                    collapsedCount++;
+                }
+            }
+            queue.addLast(pending);
+            notifyAll();
+            while (!pending.done) {
+                wait();
+            }
+        }
+        return pending.result;
+    }
+
+    /**
+     * Drop every queued command and wait for the running one, called before
+     * the engine is destroyed so no command reaches a dead engine
+     */
+    public synchronized void cancelAll() {
+        int dropped = queue.size();
+        queue.clear();
+        collapsible.clear();
+        boolean interrupted = false;
+        while (running != null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (dropped > 0) {
+            Log.d(TAG, "Dropped " + dropped + " queued commands");
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            Pending pending;
+            synchronized (this) {
+                while (queue.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                pending = queue.pollFirst();
+                if (pending.key != null && collapsible.get(pending.key) == pending) {
+                    collapsible.remove(pending.key);
+                }
+                running = pending;
+            }
+
+            long start = System.nanoTime();
+            int result;
+            try {
+                result = pending.command.run();
+            } catch (Exception e) {
+                Log.e(TAG, "Error running command " + pending.key + ": " + e.getMessage());
+                result = Integer.MIN_VALUE;
+            }
+            long runNanos = System.nanoTime() - start;
+
+            synchronized (this) {
+                record(runNanos, start - pending.submitNanos);
+                pending.result = result;
+                pending.done = true;
+                running = null;
+                notifyAll();
+                if (executedCount % STATS_INTERVAL_COMMANDS == 0) {
+                    Log.d(TAG, toString());
+                }
+            }
+
+            if (pending.callback != null) {
+                Callback callback = pending.callback;
+                int finalResult = result;
+                mainHandler.post(() -> callback.onComplete(finalResult));
+            }
+        }
+    }
+
+    private void record(long runNanos, long waitNanos) {
+        long micros = runNanos / 1000;
+        int bucket = 0;
+        while (micros > LATENCY_BUCKETS_US[bucket]) {
+            bucket++;
+        }
+        histogram[bucket]++;
+        executedCount++;
+        totalRunNanos += runNanos;
+        totalWaitNanos += waitNanos;
+        maxRunNanos = Math.max(maxRunNanos, runNanos);
+    }
+
+    /**
+     * Get a copy of the execution time histogram, bucket i counts commands that
+     * took at most LATENCY_BUCKETS_US[i] microseconds
+     */
+    public synchronized long[] getLatencyHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Get the execution time below which the given fraction of commands
+     * finished, as a bucket upper bound in microseconds
+     */
+    public synchronized long getLatencyPercentileMicros(double fraction) {
+        long target = (long) Math.ceil(executedCount * fraction);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target && seen > 0) {
+                return LATENCY_BUCKETS_US[i];
+            }
+        }
+        return 0;
+    }
+
+    public synchronized long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    public synchronized long getCollapsedCount() {
+        return collapsedCount;
+    }
+
+    public synchronized long getExecutedCount() {
+        return executedCount;
+    }
+
+    public synchronized long getMaxRunMicros() {
+        return maxRunNanos / 1000;
+    }
+
+    public synchronized void resetStats() {
+        Arrays.fill(histogram, 0);
+        submittedCount = 0;
+        collapsedCount = 0;
+        executedCount = 0;
+        totalRunNanos = 0;
+        maxRunNanos = 0;
+        totalWaitNanos = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("submitted=").append(submittedCount)
+                .append(" collapsed=").append(collapsedCount)
+                .append(" executed=").append(executedCount);
+        if (executedCount > 0) {
+            builder.append(" avgRun=").append(totalRunNanos / executedCount / 1000).append("us")
+                    .append(" maxRun=").append(maxRunNanos / 1000).append("us")
+                    .append(" avgWait=").append(totalWaitNanos / executedCount / 1000).append("us");
+        }
+        builder.append(" histogram[us]={");
+        for (int i = 0; i < histogram.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(i == histogram.length - 1 ? ">" + LATENCY_BUCKETS_US[i - 1] : "<=" + LATENCY_BUCKETS_US[i])
+                    .append(':').append(histogram[i]);
+        }
+        return builder.append('}').toString();
+    }
+}
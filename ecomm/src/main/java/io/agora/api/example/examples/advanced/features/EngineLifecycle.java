@@ -0,0 +1,221 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.util.Log;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.agora.rtc2.RtcEngine;
+
+/**
+ * Engine Lifecycle
+ * Responsible for the process-wide state of the RTC engine: whether it is
+ * being created, ready, joining, joined or leaving a channel, together with
+ * the engine instance and the local uid. The state, engine and uid change as
+ * one snapshot with compare-and-set, so the main thread, the prewarm thread
+ * and SDK callback threads always agree on who creates, joins or destroys.
+ * A transition that is not legal from the current state is rejected and
+ * counted instead of being acted on, e.g. a second create while an engine is
+ * alive or a leave without a join. Listeners see every applied transition.
+ */
+public final class EngineLifecycle {
+    private static final String TAG = "EngineLifecycle";
+
+    private static final EngineLifecycle INSTANCE = new EngineLifecycle();
+
+    public enum State {
+        IDLE,
+        CREATING,
+        READY,
+        JOINING,
+        JOINED,
+        LEAVING,
+        DESTROYED
+    }
+
+    /**
+     * Notified on the thread that made the transition. Transitions made at the
+     * same time on different threads may be seen in either order, from and to
+     * tell them apart.
+     */
+    public interface Listener {
+        void onStateChanged(State from, State to);
+    }
+
+    /**
+     * An immutable view of the lifecycle, engine is null unless an engine
+     * exists, uid is 0 unless joined or leaving
+     */
+    public static final class Snapshot {
+        public final State state;
+        public final RtcEngine engine;
+        public final int uid;
+
+        Snapshot(State state, RtcEngine engine, int uid) {
+            this.state = state;
+            this.engine = engine;
+            this.uid = uid;
+        }
+    }
+
+    private static final EnumSet<State> CREATABLE = EnumSet.of(State.IDLE, State.DESTROYED);
+    private static final EnumSet<State> LEAVABLE = EnumSet.of(State.JOINING, State.JOINED);
+    // Destroying also leaves the channel, any state with an engine can go straight down
+    private static final EnumSet<State> DESTROYABLE = EnumSet.of(State.READY, State.JOINING, State.JOINED, State.LEAVING);
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(State.IDLE, null, 0));
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    EngineLifecycle() {
+    }
+
+    public static EngineLifecycle getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Claim the engine creation. Only one caller wins while no engine exists;
+     * false when an engine is alive or already being created.
+     */
+    public boolean beginCreate() {
+        return transition(CREATABLE, State.CREATING, null, 0) != null;
+    }
+
+    /**
+     * The engine created after {@link #beginCreate} is ready
+     */
+    public boolean onCreated(RtcEngine engine) {
+        if (engine == null) {
+            onCreateFailed();
+            return false;
+        }
+        return transition(EnumSet.of(State.CREATING), State.READY, engine, 0) != null;
+    }
+
+    /**
+     * Creation failed, the next caller may try again
+     */
+    public boolean onCreateFailed() {
+        return transition(EnumSet.of(State.CREATING), State.IDLE, null, 0) != null;
+    }
+
+    /**
+     * Claim the join, false unless the engine is ready and not in a channel
+     */
+    public boolean beginJoin() {
+        return transition(EnumSet.of(State.READY), State.JOINING, null, 0) != null;
+    }
+
+    /**
+     * The join was not sent, e.g. joinChannel returned an error
+     */
+    public boolean onJoinFailed() {
+        return transition(EnumSet.of(State.JOINING), State.READY, null, 0) != null;
+    }
+
+    /**
+     * The SDK reported the join with the uid the local user got
+     */
+    public boolean onJoined(int uid) {
+        return transition(EnumSet.of(State.JOINING), State.JOINED, null, uid) != null;
+    }
+
+    /**
+     * Claim the leave, false unless joining or joined
+     */
+    public boolean beginLeave() {
+        return transition(LEAVABLE, State.LEAVING, null, 0) != null;
+    }
+
+    /**
+     * The channel was left, the engine stays ready for the next join
+     */
+    public boolean onLeft() {
+        return transition(EnumSet.of(State.LEAVING), State.READY, null, 0) != null;
+    }
+
+    /**
+     * Claim the engine destruction. Returns the engine the caller has to
+     * destroy, or null when there is none or another caller got it.
+     */
+    public RtcEngine beginDestroy() {
+        Snapshot before = transition(DESTROYABLE, State.DESTROYED, null, 0);
+        return before != null ? before.engine : null;
+    }
+
+    /**
+     * Apply the transition when the current state is one of allowed. The
+     * engine is taken on creation and kept until destroyed, the uid is kept
+     * from joined until left. Returns the replaced snapshot, null when the
+     * transition was rejected.
+     */
+    private Snapshot transition(EnumSet<State> allowed, State to, RtcEngine created, int uid) {
+        while (true) {
+            Snapshot before = current.get();
+            if (!allowed.contains(before.state)) {
+                rejectedCount.incrementAndGet();
+                Log.d(TAG, "Rejected " + before.state + " -> " + to);
+                return null;
+            }
+            RtcEngine nextEngine = before.state == State.CREATING ? created
+                    : to == State.DESTROYED ? null : before.engine;
+            int nextUid = to == State.JOINED ? uid : to == State.LEAVING ? before.uid : 0;
+            if (current.compareAndSet(before, new Snapshot(to, nextEngine, nextUid))) {
+                Log.d(TAG, before.state + " -> " + to);
+                for (Listener listener : listeners) {
+                    try {
+                        listener.onStateChanged(before.state, to);
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error in lifecycle listener: " + e.getMessage());
+                    }
+                }
+                return before;
+            }
+        }
+    }
+
+    public Snapshot getSnapshot() {
+        return current.get();
+    }
+
+    public State getState() {
+        return current.get().state;
+    }
+
+    /**
+     * Get the live engine, null unless created and not destroyed
+     */
+    public RtcEngine getEngine() {
+        return current.get().engine;
+    }
+
+    public boolean isJoined() {
+        return current.get().state == State.JOINED;
+    }
+
+    /**
+     * Get the local uid, 0 unless joined
+     */
+    public int getUid() {
+        return current.get().uid;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Get the number of transitions rejected because they did not fit the state
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
@@ -0,0 +1,197 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.agora.rtc2.Constants;
+import io.agora.rtc2.IRtcEngineEventHandler;
+import io.agora.rtc2.RtcEngine;
+import io.agora.rtc2.RtcEngineConfig;
+
+/**
+ * Engine Prewarmer
+ * Responsible for creating the RTC engine and loading the clear_vision
+ * extension on a background thread as soon as the activity launches, while
+ * the fragment inflates its views. RtcEngineManager attaches to the pending
+ * engine instead of creating one on the main thread; the engine is handed
+ * out once, on the main thread, and the fragment's event handler is added to
+ * it with RtcEngine.addHandler.
+ */
+public final class EnginePrewarmer {
+    private static final String TAG = "EnginePrewarmer";
+    public static final String EXTENSION_PROVIDER = "agora_video_filters_clear_vision";
+    public static final String EXTENSION_NAME = "clear_vision";
+
+    private static volatile EnginePrewarmer instance;
+
+    /**
+     * Handler the engine is created with, the fragment's handler is added once it attaches
+     */
+    private static final IRtcEngineEventHandler STARTUP_HANDLER = new IRtcEngineEventHandler() {
+        @Override
+        public void onError(int err) {
+            Log.w(TAG, "Engine error before attach: " + err + " " + RtcEngine.getErrorDescription(err));
+        }
+    };
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<RtcEngineManager.EngineCallback> waiting = new ArrayList<>();
+
+    private Future<?> pending;
+    private RtcEngine engine;
+    private String error;
+    private boolean done = false;
+    private boolean consumed = false;
+    private long launchMs = -1;
+    private long readyMs = -1;
+
+    private EnginePrewarmer() {
+    }
+
+    public static EnginePrewarmer getInstance() {
+        if (instance == null) {
+            synchronized (EnginePrewarmer.class) {
+                if (instance == null) {
+                    instance = new EnginePrewarmer();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Start creating the engine in the background. Does nothing while an
+     * engine is being created or already alive, prewarmed or not.
+     */
+    public synchronized void start(@NonNull Context context) {
+        if (!EngineLifecycle.getInstance().beginCreate()) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        launchMs = SystemClock.elapsedRealtime();
+        readyMs = -1;
+        engine = null;
+        error = null;
+        done = false;
+        consumed = false;
+        pending = executor.submit(() -> create(appContext));
+    }
+
+    private void create(Context appContext) {
+        long start = SystemClock.elapsedRealtime();
+        SessionTracer tracer = SessionTracer.getInstance(appContext);
+        RtcEngine created = null;
+        String failure = null;
+        try {
+            RtcEngineConfig config = new RtcEngineConfig();
+            config.mContext = appContext;
+            config.mAppId = appContext.getString(io.agora.api.example.ecomm.R.string.agora_app_id);
+            config.mChannelProfile = Constants.CHANNEL_PROFILE_LIVE_BROADCASTING;
+            config.mEventHandler = STARTUP_HANDLER;
+            tracer.mark(SessionTracer.Milestone.ENGINE_CREATE_START);
+            created = RtcEngine.create(config);
+            tracer.mark(SessionTracer.Milestone.ENGINE_CREATED);
+            EngineLifecycle.getInstance().onCreated(created);
+            long createdMs = SystemClock.elapsedRealtime();
+            // A failed load is retried when the engine is handed out
+            boolean extensionEnabled = RtcEngineManager.enableFilterExtension(created);
+            if (extensionEnabled) {
+                tracer.mark(SessionTracer.Milestone.EXTENSION_ENABLED);
+            }
+            Log.d(TAG, "Engine prewarmed: create " + (createdMs - start) + " ms, extension "
+                    + (SystemClock.elapsedRealtime() - createdMs) + " ms" + (extensionEnabled ? "" : " (failed)"));
+        } catch (Exception e) {
+            failure = e.getMessage();
+            Log.e(TAG, "Failed to prewarm RTC Engine: " + failure);
+            // Without an engine the manager creates one itself
+            if (created == null) {
+                EngineLifecycle.getInstance().onCreateFailed();
+            }
+        }
+
+        List<RtcEngineManager.EngineCallback> callbacks;
+        synchronized (this) {
+            engine = created;
+            error = created == null ? (failure != null ? failure : "RtcEngine.create returned null") : null;
+            done = true;
+            readyMs = SystemClock.elapsedRealtime();
+            callbacks = new ArrayList<>(waiting);
+            waiting.clear();
+        }
+        if (!callbacks.isEmpty()) {
+            mainHandler.post(() -> {
+                for (RtcEngineManager.EngineCallback callback : callbacks) {
+                    deliver(callback);
+                }
+            });
+        }
+    }
+
+    /**
+     * Attach to the prewarmed engine. The callback runs on the main thread
+     * when the engine is ready, right away when it already is. Returns false
+     * when no prewarmed engine is pending or it was already handed out.
+     */
+    synchronized boolean attach(RtcEngineManager.EngineCallback callback) {
+        if (pending == null || consumed) {
+            return false;
+        }
+        consumed = true;
+        if (done) {
+            deliver(callback);
+        } else {
+            waiting.add(callback);
+            Log.d(TAG, "Waiting for prewarmed engine");
+        }
+        return true;
+    }
+
+    private void deliver(RtcEngineManager.EngineCallback callback) {
+        RtcEngine ready;
+        String failure;
+        synchronized (this) {
+            ready = engine;
+            failure = error;
+        }
+        // The engine may have been destroyed before anyone attached to it
+        if (ready != null && ready != EngineLifecycle.getInstance().getEngine()) {
+            ready = null;
+            failure = "Prewarmed engine was destroyed";
+        }
+        if (ready != null) {
+            callback.onEngineInitialized(ready);
+        } else {
+            callback.onEngineError(failure);
+        }
+    }
+
+    /**
+     * Get the elapsed realtime the prewarm started at, -1 when it never ran
+     */
+    public synchronized long getLaunchTime() {
+        return launchMs;
+    }
+
+    /**
+     * Get the elapsed realtime the engine became ready at, -1 while it is not
+     */
+    public synchronized long getReadyTime() {
+        return readyMs;
+    }
+}
@@ -2,7 +2,9 @@ package io.agora.api.example.examples.advanced.features;
 
 import android.content.Context;
 import android.net.Uri;
-import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.OpenableColumns;
 import android.util.Log;
 import android.widget.Toast;
 
@@ -10,8 +12,22 @@ import androidx.annotation.NonNull;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import io.agora.api.example.examples.advanced.device.DeviceTier;
+import io.agora.api.example.examples.advanced.features.lut.BinaryLutFile;
+import io.agora.api.example.examples.advanced.features.lut.CompositeLutCache;
+import io.agora.api.example.examples.advanced.features.lut.CubeLut;
+import io.agora.api.example.examples.advanced.features.lut.CubeWriter;
+import io.agora.api.example.examples.advanced.features.lut.FilterCatalog;
+import io.agora.api.example.examples.advanced.features.lut.FilterStore;
+import io.agora.api.example.examples.advanced.features.lut.LutResampler;
 import io.agora.rtc2.RtcEngine;
 import io.agora.rtc2.video.FilterEffectOptions;
 
@@ -21,22 +37,80 @@ import io.agora.rtc2.video.FilterEffectOptions;
  */
 public class FilterManager {
     private static final String TAG = "FilterManager";
+    private static final String FILTER_DIR = "filters";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String COMPOSITE_DIR = "composite";
+    private static final int COMPOSITE_CACHE_ENTRIES = 8;
+    private static final long FILTER_STORE_MAX_BYTES = 64L * 1024 * 1024;
+    private static final String LEGACY_IMPORT_PATTERN = "filter_\\d+\\.cube.*";
+    // The camera may still be starting, give up on a preview frame after this
+    private static final long FRAME_GRAB_TIMEOUT_MS = 3000;
+    
+    private static final String CATALOG_FILE = "catalog.idx";
+    
+    private static FilterStore filterStore = null;
+    private static FilterCatalog filterCatalog = null;
     
     private final Context context;
     private final RtcEngine engine;
+    private final DeviceTier deviceTier;
     private String selectedFilterPath = null;
+    private CubeLut activeLut = null;
+    private LutFrameObserver cpuRenderer = null;
+    private boolean frameObserverRegistered = false;
+    private boolean frameGrabPending = false;
+    private final Runnable frameGrabTimeout = () -> {
+        if (frameGrabPending) {
+            Log.w(TAG, "No preview frame after " + FRAME_GRAB_TIMEOUT_MS + " ms, cancelling the grab");
+            cancelFrameGrab();
+        }
+    };
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean cpuFallbackEnabled = true;
+    private CompositeLutCache compositeCache = null;
+    private List<String> activeChain = null;
     private FilterEffectOptions filterEffectOptions = new FilterEffectOptions();
+    private final EngineCommandExecutor commandExecutor = EngineCommandExecutor.getInstance();
+    // Baking and file work that must stay off the UI thread
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Bumped on every filter selection, background results for an older one are dropped
+    private volatile int filterRequestId = 0;
+    
+    // Strength fast path: the path resolved for the active filter, and slider
+    // updates coalesced to one engine call per display frame
+    private String resolvedFilterPath = null;
+    // Strength last requested for the active filter, before it is baked into a composite
+    private float appliedStrength = 0.5f;
+    // Notified on the main thread whenever the applied filter or strength changes
+    private Runnable stateListener = null;
+    private final EffectUpdateDispatcher.Slot<Float> strengthSlot;
+    private long strengthRequestCount = 0;
+    private long strengthEngineCallCount = 0;
     
     public FilterManager(@NonNull Context context, @NonNull RtcEngine engine) {
+        this(context, engine, new EffectUpdateDispatcher());
+    }
+    
+    /**
+     * @param strengthDispatcher coalesces slider strength updates to display frames
+     */
+    FilterManager(@NonNull Context context, @NonNull RtcEngine engine, @NonNull EffectUpdateDispatcher strengthDispatcher) {
         this.context = context;
         this.engine = engine;
+        this.deviceTier = DeviceTier.detect(context);
+        this.strengthSlot = strengthDispatcher.createSlot("filterStrength", this::applyFilterStrength);
     }
     
     /**
-     * Get file path from URI
+     * Get file path from URI, null if the file is not a valid .cube LUT
      */
     public String getPathFromUri(Uri uri) {
         try {
+            String filePath = null;
             String[] projection = {android.provider.MediaStore.MediaColumns.DATA};
             android.database.Cursor cursor = context.getContentResolver().query(uri, projection, null, null, null);
             
@@ -44,16 +118,36 @@ public class FilterManager {
                 try {
                     if (cursor.moveToFirst()) {
                         int columnIndex = cursor.getColumnIndexOrThrow(android.provider.MediaStore.MediaColumns.DATA);
-                        String filePath = cursor.getString(columnIndex);
-                        cursor.close();
-                        return filePath;
+                        filePath = cursor.getString(columnIndex);
                     }
                 } finally {
                     cursor.close();
                 }
             }
             
-            return copyFileToAppDirectory(uri);
+            String displayName = null;
+            if (filePath == null || !new File(filePath).canRead()) {
+                displayName = queryDisplayName(uri);
+                filePath = copyFileToAppDirectory(uri, displayName);
+            }
+            if (filePath == null) {
+                return null;
+            }
+            
+            CubeLut lut = loadCompiledLut(filePath);
+            if (lut == null) {
+                Log.e(TAG, "Rejected invalid cube file: " + filePath);
+                if (displayName != null) {
+                    getFilterStore(context).remove(new File(filePath));
+                }
+                return null;
+            }
+            if (displayName != null) {
+                File file = new File(filePath);
+                getFilterCatalog().put(new FilterCatalog.Entry(displayName, getFilterStore(context).getHash(file),
+                        lut.getSize(), FilterCatalog.Source.IMPORTED, 0, file));
+            }
+            return filePath;
             
         } catch (Exception e) {
             Log.e(TAG, "Error getting path from URI: " + e.getMessage());
@@ -62,31 +156,21 @@ public class FilterManager {
     }
     
     /**
-     * Copy file to app directory
+     * Import a picked file into the content-addressed filter store, re-importing
+     * the same content reuses the stored copy
      */
-    private String copyFileToAppDirectory(Uri uri) {
-        try {
-            File appDir = new File(context.getExternalFilesDir(null), "filters");
-            if (!appDir.exists()) {
-                appDir.mkdirs();
-            }
-            
-            String fileName = "filter_" + System.currentTimeMillis() + ".cube";
-            File destFile = new File(appDir, fileName);
-            
-            InputStream inputStream = context.getContentResolver().openInputStream(uri);
-            FileOutputStream outputStream = new FileOutputStream(destFile);
-            
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                outputStream.write(buffer, 0, length);
+    private String copyFileToAppDirectory(Uri uri, String displayName) {
+        try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
+            if (inputStream == null) {
+                Log.e(TAG, "Cannot open " + uri);
+                return null;
             }
             
-            inputStream.close();
-            outputStream.close();
-            
-            Log.d(TAG, "File copied to: " + destFile.getAbsolutePath());
+            FilterStore store = getFilterStore(context);
+            long start = System.nanoTime();
+            File destFile = store.importStream(displayName, inputStream);
+            Log.d(TAG, "Imported " + displayName + " as " + destFile.getName() + " in "
+                    + (System.nanoTime() - start) / 1000 + " us, " + store);
             return destFile.getAbsolutePath();
             
         } catch (Exception e) {
@@ -95,34 +179,42 @@ public class FilterManager {
         }
     }
     
+    private String queryDisplayName(Uri uri) {
+        String[] projection = {OpenableColumns.DISPLAY_NAME};
+        try (android.database.Cursor cursor = context.getContentResolver().query(uri, projection, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                int columnIndex = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+                if (columnIndex >= 0 && !cursor.isNull(columnIndex)) {
+                    return cursor.getString(columnIndex);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot query display name: " + e.getMessage());
+        }
+        return uri.getLastPathSegment();
+    }
+    
     /**
-     * Copy resource file to storage
+     * Copy resource file to storage and compile it to the binary LUT format once
      */
     public String copyAssetCubeToStorage(String assetFileName) {
+        LutPreloader.LutAsset preloaded = LutPreloader.getInstance(context).findByAssetName(assetFileName);
+        if (preloaded != null) {
+            return preloaded.getPath();
+        }
+        
         try {
-            File appDir = new File(context.getExternalFilesDir(null), "filters");
-            if (!appDir.exists()) {
-                appDir.mkdirs();
-            }
-            
-            File destFile = new File(appDir, assetFileName);
+            File destFile = new File(getFilterDirectory(), assetFileName);
             
             if (destFile.exists()) {
                 Log.d(TAG, "Local cube file already exists: " + destFile.getAbsolutePath());
                 return destFile.getAbsolutePath();
             }
             
-            InputStream inputStream = context.getAssets().open("lut/" + assetFileName);
-            FileOutputStream outputStream = new FileOutputStream(destFile);
-            
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                outputStream.write(buffer, 0, length);
+            try (InputStream inputStream = context.getAssets().open("lut/" + assetFileName)) {
+                copyStream(inputStream, destFile);
             }
-            
-            inputStream.close();
-            outputStream.close();
+            loadCompiledLut(destFile.getAbsolutePath());
             
             Log.d(TAG, "Local cube file copied to: " + destFile.getAbsolutePath());
             return destFile.getAbsolutePath();
@@ -134,7 +226,168 @@ public class FilterManager {
     }
     
     /**
-     * Apply filter
+     * Load the compiled binary LUT for a .cube file, compiling it on first use.
+     * Compiled tables live next to the copied cubes in the filters directory,
+     * bundled assets already preloaded are served from memory.
+     * Returns null if the cube fails to parse or validate.
+     */
+    public CubeLut loadCompiledLut(String cubePath) {
+        if (cubePath == null || cubePath.startsWith("built_in_")) {
+            return null;
+        }
+        
+        LutPreloader.LutAsset preloaded = LutPreloader.getInstance(context).findByPath(cubePath);
+        if (preloaded != null) {
+            return preloaded.getLut();
+        }
+        
+        File cubeFile = new File(cubePath);
+        File compiledFile = getCompiledFile(context, cubeFile);
+        try {
+            long start = System.nanoTime();
+            CubeLut lut = BinaryLutFile.loadOrCompile(cubeFile, compiledFile);
+            Log.d(TAG, "Compiled LUT loaded: " + compiledFile.getName() + " (" + lut.getSize() + "^3) in "
+                    + (System.nanoTime() - start) / 1000 + " us");
+            return lut;
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading compiled LUT for " + cubePath + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Get a LUT sized for the device tier. Grids larger than the tier allows are
+     * trilinearly resampled once and cached as a cube plus compiled copy next to
+     * the originals; smaller grids are returned as they are. Does file work,
+     * runs on the background thread.
+     */
+    private CubeLut fitToDeviceTier(String cubePath, CubeLut lut) {
+        int target = deviceTier.getMaxLutSize();
+        if (lut.getSize() <= target) {
+            return lut;
+        }
+        
+        File cubeFile = new File(cubePath);
+        File tierCube = getTierCubeFile(cubePath, target);
+        File tierCompiled = getCompiledFile(context, tierCube);
+        try {
+            if (tierCube.exists() && tierCube.lastModified() >= cubeFile.lastModified()) {
+                return BinaryLutFile.loadOrCompile(tierCube, tierCompiled);
+            }
+            long start = System.nanoTime();
+            CubeLut resampled = LutResampler.resample(lut, target);
+            CubeWriter.write(resampled, tierCube);
+            BinaryLutFile.write(resampled, tierCompiled);
+            Log.d(TAG, "Resampled " + cubeFile.getName() + " from " + lut.getSize() + "^3 to " + target + "^3 for "
+                    + deviceTier + " tier in " + (System.nanoTime() - start) / 1000 + " us");
+            return resampled;
+        } catch (IOException e) {
+            Log.e(TAG, "Error resampling LUT, using full size: " + e.getMessage());
+            return lut;
+        }
+    }
+    
+    /**
+     * Get the cube file holding the resampled copy of a cube at the given grid size
+     */
+    private File getTierCubeFile(String cubePath, int size) {
+        return new File(getFilterDirectory(), BinaryLutFile.sourceKey(new File(cubePath)) + "_" + size + ".cube");
+    }
+    
+    /**
+     * Get the device tier used to size LUT grids
+     */
+    public DeviceTier getDeviceTier() {
+        return deviceTier;
+    }
+    
+    private File getFilterDirectory() {
+        return getFilterDirectory(context);
+    }
+    
+    /**
+     * Get the app-private directory holding copied and compiled filters
+     */
+    static File getFilterDirectory(Context context) {
+        File appDir = new File(context.getExternalFilesDir(null), FILTER_DIR);
+        if (!appDir.exists()) {
+            appDir.mkdirs();
+        }
+        return appDir;
+    }
+    
+    /**
+     * Get the process-wide store for imported filters, created on first use.
+     * Files left over from the old timestamp naming are deleted once.
+     */
+    static synchronized FilterStore getFilterStore(Context context) {
+        if (filterStore == null) {
+            File filterDir = getFilterDirectory(context);
+            File[] legacy = filterDir.listFiles((dir, name) -> name.matches(LEGACY_IMPORT_PATTERN));
+            if (legacy != null) {
+                for (File file : legacy) {
+                    file.delete();
+                }
+            }
+            filterStore = new FilterStore(filterDir, FILTER_STORE_MAX_BYTES);
+            filterStore.setRemovalListener(hash -> getFilterCatalog(context).removeImported(hash));
+            Log.d(TAG, "Filter store opened, removed " + (legacy != null ? legacy.length : 0)
+                    + " legacy imports, " + filterStore);
+        }
+        return filterStore;
+    }
+    
+    /**
+     * Get the process-wide catalog of installed filters, its index is read once
+     * on first use
+     */
+    static synchronized FilterCatalog getFilterCatalog(Context context) {
+        if (filterCatalog == null) {
+            long start = System.nanoTime();
+            filterCatalog = new FilterCatalog(new File(getFilterDirectory(context), CATALOG_FILE));
+            Log.d(TAG, "Filter catalog loaded: " + filterCatalog.size() + " entries in "
+                    + (System.nanoTime() - start) / 1000 + " us");
+        }
+        return filterCatalog;
+    }
+    
+    /**
+     * Get the catalog of installed filters, bundled and imported
+     */
+    public FilterCatalog getFilterCatalog() {
+        return getFilterCatalog(context);
+    }
+    
+    /**
+     * Get the compiled binary LUT file for a cube file, keyed by its path so a
+     * picked cube never reuses the compiled copy of a bundled one with the same name
+     */
+    static File getCompiledFile(Context context, File cubeFile) {
+        return new File(getFilterDirectory(context), BinaryLutFile.compiledName(cubeFile));
+    }
+    
+    /**
+     * Copy a stream to a file through a temporary sibling, so an interrupted
+     * copy never leaves a truncated file that looks already copied
+     */
+    static void copyStream(InputStream inputStream, File destFile) throws IOException {
+        File tmpFile = new File(destFile.getPath() + ".tmp");
+        try (OutputStream outputStream = new FileOutputStream(tmpFile)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int length;
+            while ((length = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, length);
+            }
+        }
+        if (!tmpFile.renameTo(destFile)) {
+            tmpFile.delete();
+            throw new IOException("Failed to move copied file to " + destFile);
+        }
+    }
+    
+    /**
+     * Apply filter. False when there is no engine or the cube is invalid, an
+     * engine refusal is handled later by the CPU renderer.
      */
     public boolean applyFilter(String filterPath, float strength) {
         if (engine == null) {
@@ -142,65 +395,369 @@ public class FilterManager {
             return false;
         }
         
+        // Validate custom cubes before the engine sees them, a broken file would
+        // otherwise only surface as a non-zero return code
+        CubeLut lut = null;
+        if (filterPath != null && !filterPath.startsWith("built_in_")) {
+            lut = loadCompiledLut(filterPath);
+            if (lut == null) {
+                Log.e(TAG, "Rejected invalid cube file, not sending to engine: " + filterPath);
+                return false;
+            }
+        }
+        
+        filterRequestId++;
         selectedFilterPath = filterPath;
+        activeChain = null;
+        appliedStrength = strength;
+        notifyStateChanged();
+        if (lut != null) {
+            getFilterStore(context).touch(new File(filterPath));
+            getFilterCatalog().markUsed(filterPath, System.currentTimeMillis());
+            if (lut.getSize() > deviceTier.getMaxLutSize()) {
+                return sendFittedFilter(filterPath, lut);
+            }
+        }
+        return sendFilter(filterPath, lut, strength);
+    }
+    
+    /**
+     * Resample a LUT larger than the device tier allows on the background
+     * thread and send the resampled copy when ready, at the strength applied
+     * by then. The copy is cached on disk, so later uses only load it. The
+     * previous filter stays on screen meanwhile.
+     */
+    private boolean sendFittedFilter(String filterPath, CubeLut lut) {
+        int requestId = filterRequestId;
+        backgroundExecutor.execute(() -> {
+            if (requestId != filterRequestId) {
+                return;
+            }
+            CubeLut deviceLut = fitToDeviceTier(filterPath, lut);
+            String devicePath = deviceLut != lut
+                    ? getTierCubeFile(filterPath, deviceLut.getSize()).getAbsolutePath() : filterPath;
+            mainHandler.post(() -> {
+                if (requestId == filterRequestId && engine != null) {
+                    sendFilter(devicePath, deviceLut, appliedStrength);
+                }
+            });
+        });
+        return true;
+    }
+    
+    /**
+     * Apply an ordered chain of cube files, e.g. a base correction followed by a look.
+     * The chain and strength are baked into one composite LUT, cached by
+     * (chain, quantized strength), and sent to the engine at full strength.
+     * A cached composite is sent right away; a missing one is baked on the
+     * background thread and sent when ready, unless another filter was picked
+     * meanwhile. The previous filter stays on screen until then.
+     */
+    public boolean applyFilterChain(List<String> cubePaths, float strength) {
+        if (engine == null) {
+            Log.e(TAG, "Engine is null, cannot apply filter chain");
+            return false;
+        }
+        if (cubePaths == null || cubePaths.isEmpty()) {
+            Log.e(TAG, "Empty filter chain");
+            return false;
+        }
+        if (cubePaths.size() == 1) {
+            return applyFilter(cubePaths.get(0), strength);
+        }
+        
+        int requestId = ++filterRequestId;
+        List<String> chain = new ArrayList<>(cubePaths);
+        selectedFilterPath = chain.get(chain.size() - 1);
+        activeChain = chain;
+        appliedStrength = strength;
+        notifyStateChanged();
+        
+        CompositeLutCache cache = getCompositeCache();
+        CompositeLutCache.Composite cached = cache.get(chain, strength);
+        if (cached != null) {
+            return sendFilter(cached.getFile().getAbsolutePath(), cached.getLut(), 1.0f);
+        }
+        
+        backgroundExecutor.execute(() -> {
+            // Only the latest request is worth baking, a drag queues one per frame
+            if (requestId != filterRequestId) {
+                return;
+            }
+            try {
+                long start = System.nanoTime();
+                CompositeLutCache.Composite composite = cache.getOrCreate(chain, strength, this::loadCompiledLut);
+                Log.d(TAG, "Composite LUT baked in " + (System.nanoTime() - start) / 1000 + " us, " + cache);
+                mainHandler.post(() -> {
+                    if (requestId == filterRequestId && engine != null) {
+                        sendFilter(composite.getFile().getAbsolutePath(), composite.getLut(), 1.0f);
+                    }
+                });
+            } catch (IOException e) {
+                Log.e(TAG, "Error building composite LUT: " + e.getMessage());
+            }
+        });
+        return true;
+    }
+
+    
+    /**
+     * Get the composite LUT cache, holding hit, miss and eviction counters
+     */
+    public CompositeLutCache getCompositeCache() {
+        if (compositeCache == null) {
+            compositeCache = new CompositeLutCache(new File(getFilterDirectory(), COMPOSITE_DIR),
+                    COMPOSITE_CACHE_ENTRIES, deviceTier.getMaxLutSize());
+        }
+        return compositeCache;
+    }
+    
+    /**
+     * Send a resolved filter to the engine without waiting for the result.
+     * The filter counts as applied right away; when the extension refuses a
+     * custom LUT the CPU renderer takes over once the result arrives, unless
+     * another filter was selected meanwhile.
+     */
+    private boolean sendFilter(String filterPath, CubeLut lut, float strength) {
+        int requestId = filterRequestId;
+        activeLut = lut;
+        resolvedFilterPath = filterPath;
         filterEffectOptions.path = filterPath;
         filterEffectOptions.strength = strength;
+        stopCpuRenderer();
+        
+        submitFilterOptions(true, filterEffectOptions, ret -> {
+            if (requestId != filterRequestId || engine == null) {
+                return;
+            }
+            if (ret == 0) {
+                Log.d(TAG, "Filter applied successfully: " + filterPath + " (strength: " + strength + ")");
+            } else if (startCpuRenderer(lut, strength)) {
+                Log.w(TAG, "Extension refused filter (error code: " + ret + "), rendering LUT on CPU: " + filterPath);
+            } else {
+                Log.e(TAG, "Failed to apply filter, error code: " + ret);
+            }
+        });
+        return true;
+    }
+    
+    /**
+     * Queue a filter update on the engine command thread. The options are
+     * copied, so later changes to the shared instance do not leak into it.
+     */
+    private void submitFilterOptions(boolean enabled, FilterEffectOptions options,
+                                     EngineCommandExecutor.Callback callback) {
+        RtcEngine target = engine;
+        FilterEffectOptions copy = copyOptions(options);
+        commandExecutor.submit(EngineCommandExecutor.KEY_FILTER,
+                () -> target.setFilterEffectOptions(enabled, copy), callback);
+    }
+    
+    private static FilterEffectOptions copyOptions(FilterEffectOptions options) {
+        FilterEffectOptions copy = new FilterEffectOptions();
+        copy.path = options.path;
+        copy.strength = options.strength;
+        return copy;
+    }
+    
+    /**
+     * Render a LUT through the raw video frame observer instead of the extension
+     */
+    private boolean startCpuRenderer(CubeLut lut, float strength) {
+        if (!cpuFallbackEnabled || lut == null || engine == null) {
+            return false;
+        }
         
-        int ret = engine.setFilterEffectOptions(true, filterEffectOptions);
-        if (ret == 0) {
-            Log.d(TAG, "Filter applied successfully: " + filterPath + " (strength: " + strength + ")");
+        try {
+            LutFrameObserver observer = getFrameObserver();
+            observer.setLut(lut);
+            observer.setStrength(strength);
+            if (!observer.isEnabled()) {
+                submitFilterOptions(false, filterEffectOptions, null);
+                if (!registerFrameObserver(true)) {
+                    return false;
+                }
+                observer.setEnabled(true);
+            }
             return true;
-        } else {
-            Log.e(TAG, "Failed to apply filter, error code: " + ret);
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting CPU LUT renderer: " + e.getMessage());
             return false;
         }
     }
     
     /**
-     * Get filter path
+     * Unregister the CPU renderer, its worker threads stay parked for reuse
      */
-    public String getFilterPath() {
-        String[] possiblePaths = {
-            "built_in_whiten_filter",
-            "built_in_smooth_filter",
-            Environment.getExternalStorageDirectory() + "/Android/data/io.agora.api.example.ecomm/files/grayscale.cube",
-            Environment.getExternalStorageDirectory() + "/Android/data/io.agora.api.example.ecomm/files/filter.cube"
-        };
-
-        for (String path : possiblePaths) {
-            if (path.startsWith("built_in_")) {
-                Log.d(TAG, "Using built-in filter: " + path);
-                return path;
-            } else {
-                File file = new File(path);
-                if (file.exists()) {
-                    Log.d(TAG, "Found filter file: " + path);
-                    return path;
-                }
+    private void stopCpuRenderer() {
+        if (cpuRenderer != null && cpuRenderer.isEnabled()) {
+            cpuRenderer.setEnabled(false);
+            if (!frameGrabPending) {
+                registerFrameObserver(false);
             }
+            Log.d(TAG, "CPU LUT renderer stopped");
         }
-
-        Log.d(TAG, "No custom filter found, using built-in filter");
+    }
+    
+    /**
+     * Grab one downscaled preview frame, before any CPU LUT is applied.
+     * The callback runs on the capture thread. Without a frame within
+     * FRAME_GRAB_TIMEOUT_MS the grab is cancelled and the observer unregistered,
+     * the callback is then never called.
+     */
+    public boolean grabPreviewFrame(int width, LutFrameObserver.FrameCallback callback) {
+        if (engine == null) {
+            return false;
+        }
+        
+        LutFrameObserver observer = getFrameObserver();
+        frameGrabPending = true;
+        observer.requestFrame(width, (argb, frameWidth, frameHeight) -> {
+            mainHandler.post(this::finishFrameGrab);
+            callback.onFrame(argb, frameWidth, frameHeight);
+        });
+        mainHandler.removeCallbacks(frameGrabTimeout);
+        if (!registerFrameObserver(true)) {
+            cancelFrameGrab();
+            return false;
+        }
+        mainHandler.postDelayed(frameGrabTimeout, FRAME_GRAB_TIMEOUT_MS);
+        return true;
+    }
+    
+    private void cancelFrameGrab() {
+        if (cpuRenderer != null) {
+            cpuRenderer.cancelFrameRequest();
+        }
+        finishFrameGrab();
+    }
+    
+    /**
+     * End a grab, the observer stays registered only while the CPU renderer needs it
+     */
+    private void finishFrameGrab() {
+        mainHandler.removeCallbacks(frameGrabTimeout);
+        frameGrabPending = false;
+        if (cpuRenderer != null && !cpuRenderer.isEnabled()) {
+            registerFrameObserver(false);
+        }
+    }
+    
+    private LutFrameObserver getFrameObserver() {
+        if (cpuRenderer == null) {
+            cpuRenderer = new LutFrameObserver();
+        }
+        return cpuRenderer;
+    }
+    
+    private boolean registerFrameObserver(boolean register) {
+        if (engine == null || frameObserverRegistered == register) {
+            return true;
+        }
+        int ret = engine.registerVideoFrameObserver(register ? cpuRenderer : null);
+        if (ret != 0) {
+            Log.e(TAG, "Failed to " + (register ? "register" : "unregister") + " frame observer, error code: " + ret);
+            return false;
+        }
+        frameObserverRegistered = register;
+        return true;
+    }
+    
+    /**
+     * Get the filter to use when none is resolved yet: the selected or most
+     * recently used catalog filter, else the built-in whitening filter.
+     * Served from the in-memory catalog, storage is not probed.
+     */
+    public String getFilterPath() {
+        FilterCatalog catalog = getFilterCatalog();
+        FilterCatalog.Entry entry = selectedFilterPath != null ? catalog.findByPath(selectedFilterPath) : null;
+        if (entry == null) {
+            entry = catalog.getMostRecent();
+        }
+        if (entry != null && entry.getLastUsed() > 0) {
+            Log.d(TAG, "Using catalog filter: " + entry);
+            return entry.getPath();
+        }
+        
+        Log.d(TAG, "No custom filter used yet, using built-in filter");
         return "built_in_whiten_filter";
     }
     
     /**
-     * Update filter strength
+     * Update filter strength while the slider moves. Updates are coalesced to at
+     * most one engine call per display frame, the latest value wins.
      */
     public void updateFilterStrength(float strength) {
+        strengthRequestCount++;
+        strengthSlot.submit(strength);
+    }
+    
+    /**
+     * Apply the final strength when the slider is released, immediately and
+     * replacing any update still waiting for the next frame
+     */
+    public void commitFilterStrength(float strength) {
+        strengthRequestCount++;
+        strengthSlot.discard();
+        applyFilterStrength(strength);
+        Log.d(TAG, "Filter strength committed: " + strength + ", " + strengthRequestCount + " updates -> "
+                + strengthEngineCallCount + " engine calls");
+    }
+    
+    /**
+     * Get the number of strength updates requested
+     */
+    public long getStrengthRequestCount() {
+        return strengthRequestCount;
+    }
+    
+    /**
+     * Get the number of strength updates that reached the engine
+     */
+    public long getStrengthEngineCallCount() {
+        return strengthEngineCallCount;
+    }
+    
+    private void applyFilterStrength(float strength) {
+        appliedStrength = strength;
+        notifyStateChanged();
+        if (activeChain != null) {
+            // Strength is baked into the composite, switch to the cached level
+            strengthEngineCallCount++;
+            applyFilterChain(activeChain, strength);
+            return;
+        }
+        if (isCpuRendererActive()) {
+            cpuRenderer.setStrength(strength);
+            return;
+        }
+        
+        // Resolve the path once per active filter instead of stat-ing storage on every tick
+        if (resolvedFilterPath == null) {
+            resolvedFilterPath = getFilterPath();
+        }
         filterEffectOptions.strength = strength;
-        filterEffectOptions.path = getFilterPath();
+        filterEffectOptions.path = resolvedFilterPath;
         
         if (engine != null) {
-            int ret = engine.setFilterEffectOptions(true, filterEffectOptions);
-            Log.d(TAG, "Filter strength updated: " + strength + ", ret=" + ret);
-
-            if (ret != 0) {
+            strengthEngineCallCount++;
+            String path = filterEffectOptions.path;
+            submitFilterOptions(true, filterEffectOptions, ret -> {
+                Log.d(TAG, "Filter strength updated: " + strength + ", ret=" + ret);
+                // Ignore the result once another filter has been resolved meanwhile
+                if (ret == 0 || engine == null || !path.equals(resolvedFilterPath)) {
+                    return;
+                }
                 Log.e(TAG, "Failed to set filter effect, error code: " + ret);
+                if (startCpuRenderer(activeLut, strength)) {
+                    Log.d(TAG, "Rendering selected LUT on CPU instead of built-in filter");
+                    return;
+                }
                 filterEffectOptions.path = "built_in_whiten_filter";
-                ret = engine.setFilterEffectOptions(true, filterEffectOptions);
-                Log.d(TAG, "Fallback to built-in filter, ret=" + ret);
-            }
+                resolvedFilterPath = filterEffectOptions.path;
+                submitFilterOptions(true, filterEffectOptions,
+                        fallbackRet -> Log.d(TAG, "Fallback to built-in filter, ret=" + fallbackRet));
+            });
         }
     }
     
@@ -209,8 +766,15 @@ public class FilterManager {
      */
     public void disableFilter() {
         if (engine != null) {
-            engine.setFilterEffectOptions(false, filterEffectOptions);
+            strengthSlot.discard();
+            submitFilterOptions(false, filterEffectOptions, null);
+            stopCpuRenderer();
+            filterRequestId++;
             selectedFilterPath = null;
+            resolvedFilterPath = null;
+            activeChain = null;
+            activeLut = null;
+            notifyStateChanged();
             Log.d(TAG, "Filter disabled");
         }
     }
@@ -229,6 +793,108 @@ public class FilterManager {
         this.selectedFilterPath = path;
     }
     
+    /**
+     * Get the filter currently sent to the engine as it was selected, null when
+     * no filter is active. For a chain this is its last cube.
+     */
+    public String getAppliedFilterPath() {
+        if (resolvedFilterPath == null) {
+            return null;
+        }
+        return selectedFilterPath != null ? selectedFilterPath : resolvedFilterPath;
+    }
+    
+    /**
+     * Get the strength of the active filter
+     */
+    public float getAppliedFilterStrength() {
+        return appliedStrength;
+    }
+    
+    /**
+     * Set a listener notified whenever the applied filter or strength changes
+     */
+    public void setStateListener(Runnable listener) {
+        this.stateListener = listener;
+    }
+    
+    private void notifyStateChanged() {
+        if (stateListener != null) {
+            stateListener.run();
+        }
+    }
+    
+    /**
+     * Create a sender for the strength of the active filter that may be used
+     * from any thread and leaves the manager state untouched, e.g. for the
+     * frames of a preset transition. Null when no filter is active or the
+     * strength is baked into a composite.
+     */
+    EffectUpdateDispatcher.Sender<Float> createStrengthSender() {
+        if (engine == null || resolvedFilterPath == null || activeChain != null) {
+            return null;
+        }
+        if (isCpuRendererActive()) {
+            LutFrameObserver observer = cpuRenderer;
+            return observer::setStrength;
+        }
+        FilterEffectOptions options = copyOptions(filterEffectOptions);
+        options.path = resolvedFilterPath;
+        return strength -> {
+            options.strength = strength;
+            submitFilterOptions(true, options, null);
+        };
+    }
+    
+    /**
+     * Get the compiled LUT of the currently selected filter, null for built-in filters
+     */
+    public CubeLut getActiveLut() {
+        return activeLut;
+    }
+    
+    /**
+     * Enable or disable the CPU LUT renderer used when the extension refuses a custom LUT
+     */
+    public void setCpuFallbackEnabled(boolean enabled) {
+        this.cpuFallbackEnabled = enabled;
+        if (!enabled) {
+            stopCpuRenderer();
+        }
+    }
+    
+    /**
+     * Check whether the selected LUT is currently rendered on the CPU
+     */
+    public boolean isCpuRendererActive() {
+        return cpuRenderer != null && cpuRenderer.isEnabled();
+    }
+    
+    /**
+     * Release the CPU renderer threads, call before the engine is destroyed
+     */
+    public void release() {
+        stopCpuRenderer();
+        mainHandler.removeCallbacks(frameGrabTimeout);
+        frameGrabPending = false;
+        registerFrameObserver(false);
+        if (cpuRenderer != null) {
+            cpuRenderer.release();
+            cpuRenderer = null;
+        }
+        filterRequestId++;
+        backgroundExecutor.shutdown();
+        if (filterStore != null) {
+            filterStore.flush();
+        }
+        if (filterCatalog != null) {
+            filterCatalog.flush();
+        }
+        if (compositeCache != null) {
+            compositeCache.clear();
+        }
+    }
+    
     /**
      * Get filter effect options
      */
@@ -0,0 +1,280 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.agora.api.example.examples.advanced.features.lut.CubeLut;
+
+/**
+ * Filter Thumbnail Renderer
+ * Responsible for rendering filter previews: every LUT is applied to one
+ * downscaled preview frame on a bounded background pool, and the resulting
+ * bitmaps are kept in a byte-bounded LRU shared by all dialogs
+ */
+public class FilterThumbnailRenderer {
+    private static final String TAG = "FilterThumbnail";
+    public static final int THUMBNAIL_WIDTH = 160;
+    private static final int CACHE_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_THREADS = 3;
+    private static final long FRAME_TIMEOUT_MS = 500;
+    private static final int SYNTHETIC_HEIGHT = 90;
+
+    private static volatile FilterThumbnailRenderer instance;
+
+    /**
+     * Receives a finished thumbnail on the main thread
+     */
+    public interface Callback {
+        void onThumbnailReady(String key, Bitmap bitmap);
+    }
+
+    private final LruCache<String, Bitmap> cache = new LruCache<String, Bitmap>(CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getByteCount();
+        }
+    };
+    private final Map<String, Callback> pending = new HashMap<>();
+    private final ExecutorService pool;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CountDownLatch frameReady = new CountDownLatch(1);
+    private volatile Frame frame;
+
+    /**
+     * A preview frame, replaced as a whole so a render never mixes two frames
+     */
+    private static final class Frame {
+        final int[] pixels;
+        final int width;
+        final int height;
+        final boolean synthetic;
+
+        Frame(int[] pixels, int width, int height, boolean synthetic) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.synthetic = synthetic;
+        }
+    }
+
+    private FilterThumbnailRenderer() {
+        int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger count = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, TAG + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the process-wide renderer, so the cache survives dialogs and fragments
+     */
+    public static FilterThumbnailRenderer getInstance() {
+        if (instance == null) {
+            synchronized (FilterThumbnailRenderer.class) {
+                if (instance == null) {
+                    instance = new FilterThumbnailRenderer();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Check whether a preview frame has been set
+     */
+    public boolean hasPreviewFrame() {
+        return frame != null;
+    }
+
+    /**
+     * Check whether thumbnails are rendered on a camera frame rather than the
+     * synthetic chart used while none had arrived
+     */
+    public boolean hasCameraFrame() {
+        Frame current = frame;
+        return current != null && !current.synthetic;
+    }
+
+    /**
+     * Set the camera frame thumbnails are rendered on. The first camera frame
+     * is kept so cached thumbnails stay consistent, it replaces the synthetic
+     * chart if that was used meanwhile. Safe to call from any thread.
+     *
+     * @return true when the chart was replaced: cached thumbnails are dropped
+     * and thumbnails on screen should be rendered again
+     */
+    public boolean setPreviewFrame(int[] argb, int width, int height) {
+        synchronized (this) {
+            Frame current = frame;
+            if (current != null && !current.synthetic) {
+                return false;
+            }
+            frame = new Frame(argb, width, height, false);
+            frameReady.countDown();
+            Log.d(TAG, "Preview frame set: " + width + "x" + height + (current != null ? ", replacing synthetic chart" : ""));
+            if (current == null) {
+                return false;
+            }
+        }
+        cache.evictAll();
+        return true;
+    }
+
+    /**
+     * Get a cached thumbnail, null if it still has to be rendered
+     */
+    public Bitmap getCached(String key) {
+        return cache.get(key);
+    }
+
+    /**
+     * Render a thumbnail, the callback runs on the main thread once it is ready.
+     * A cached thumbnail is delivered immediately; a request for a key already
+     * being rendered only replaces the callback.
+     */
+    public void render(String key, CubeLut lut, Callback callback) {
+        Bitmap cached = cache.get(key);
+        if (cached != null) {
+            callback.onThumbnailReady(key, cached);
+            return;
+        }
+
+        synchronized (pending) {
+            boolean running = pending.containsKey(key);
+            pending.put(key, callback);
+            if (running) {
+                return;
+            }
+        }
+
+        pool.execute(() -> {
+            try {
+                Frame source = awaitFrame();
+                long start = System.nanoTime();
+                int[] pixels = renderPixels(lut, source);
+                Bitmap bitmap = Bitmap.createBitmap(pixels, source.width, source.height, Bitmap.Config.ARGB_8888);
+                long micros = (System.nanoTime() - start) / 1000;
+                mainHandler.post(() -> deliver(key, bitmap, source, micros));
+            } catch (Exception e) {
+                Log.e(TAG, "Error rendering thumbnail " + key + ": " + e.getMessage());
+                synchronized (pending) {
+                    pending.remove(key);
+                }
+            }
+        });
+    }
+
+    private void deliver(String key, Bitmap bitmap, Frame source, long micros) {
+        // A thumbnail of the chart rendered while the camera frame arrived is shown, not cached
+        if (source == frame) {
+            cache.put(key, bitmap);
+        }
+        Callback callback;
+        synchronized (pending) {
+            callback = pending.remove(key);
+        }
+        Log.d(TAG, "Thumbnail rendered in " + micros + " us, cache " + cache.size() / 1024 + "/"
+                + cache.maxSize() / 1024 + " KB, hits=" + cache.hitCount() + " misses=" + cache.missCount()
+                + " evictions=" + cache.evictionCount());
+        if (callback != null) {
+            callback.onThumbnailReady(key, bitmap);
+        }
+    }
+
+    /**
+     * Wait for the preview frame, falling back to a synthetic color chart when
+     * no camera frame arrives in time
+     */
+    private Frame awaitFrame() throws InterruptedException {
+        if (!frameReady.await(FRAME_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            synchronized (this) {
+                if (frame == null) {
+                    Log.w(TAG, "No preview frame after " + FRAME_TIMEOUT_MS + " ms, using synthetic chart");
+                    frame = new Frame(createSyntheticFrame(THUMBNAIL_WIDTH, SYNTHETIC_HEIGHT),
+                            THUMBNAIL_WIDTH, SYNTHETIC_HEIGHT, true);
+                    frameReady.countDown();
+                }
+            }
+        }
+        return frame;
+    }
+
+    private int[] renderPixels(CubeLut lut, Frame frame) {
+        int[] source = frame.pixels;
+        int[] pixels = new int[source.length];
+        float[] min = lut.getDomainMin();
+        float[] max = lut.getDomainMax();
+        float[] color = new float[3];
+        for (int i = 0; i < source.length; i++) {
+            int argb = source[i];
+            float r = ((argb >> 16) & 0xFF) / 255f;
+            float g = ((argb >> 8) & 0xFF) / 255f;
+            float b = (argb & 0xFF) / 255f;
+            lut.sample(min[0] + r * (max[0] - min[0]), min[1] + g * (max[1] - min[1]),
+                    min[2] + b * (max[2] - min[2]), color);
+            pixels[i] = 0xFF000000 | (toByte(color[0]) << 16) | (toByte(color[1]) << 8) | toByte(color[2]);
+        }
+        return pixels;
+    }
+
+    private static int toByte(float value) {
+        int level = Math.round(value * 255f);
+        return level < 0 ? 0 : level > 255 ? 255 : level;
+    }
+
+    /**
+     * Hue sweep across, light to dark down, so every look has something to change
+     */
+    private static int[] createSyntheticFrame(int width, int height) {
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            float lightness = 1f - (y + 0.5f) / height;
+            for (int x = 0; x < width; x++) {
+                float hue = 6f * x / width;
+                int sector = (int) hue;
+                float f = hue - sector;
+                float r;
+                float g;
+                float b;
+                switch (sector) {
+                    case 0: r = 1; g = f; b = 0; break;
+                    case 1: r = 1 - f; g = 1; b = 0; break;
+                    case 2: r = 0; g = 1; b = f; break;
+                    case 3: r = 0; g = 1 - f; b = 1; break;
+                    case 4: r = f; g = 0; b = 1; break;
+                    default: r = 1; g = 0; b = 1 - f; break;
+                }
+                // Blend toward grey so mid rows carry skin-like, desaturated tones
+                pixels[y * width + x] = 0xFF000000
+                        | (toByte((0.5f * r + 0.25f) * lightness * 1.3f) << 16)
+                        | (toByte((0.5f * g + 0.25f) * lightness * 1.3f) << 8)
+                        | toByte((0.5f * b + 0.25f) * lightness * 1.3f);
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Drop all cached thumbnails
+     */
+    public void clear() {
+        cache.evictAll();
+    }
+}
@@ -0,0 +1,270 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+
+import io.agora.api.example.examples.advanced.features.lut.CubeLut;
+import io.agora.api.example.examples.advanced.features.lut.LutKernel;
+import io.agora.base.NV21Buffer;
+import io.agora.base.VideoFrame;
+import io.agora.rtc2.video.IVideoFrameObserver;
+
+/**
+ * LUT Frame Observer
+ * Responsible for applying a custom LUT on the CPU to captured frames, used as a
+ * fallback when the clear_vision extension refuses the cube file, and for
+ * grabbing single downscaled preview frames
+ */
+public class LutFrameObserver implements IVideoFrameObserver {
+    private static final String TAG = "LutFrameObserver";
+    private static final int MAX_THREADS = 4;
+    private static final int STATS_INTERVAL_FRAMES = 150;
+
+    /**
+     * Receives a grabbed preview frame as ARGB pixels, called on the capture thread
+     */
+    public interface FrameCallback {
+        void onFrame(int[] argb, int width, int height);
+    }
+
+    private final LutKernel kernel;
+    private volatile CubeLut lut;
+    private volatile float strength;
+    private volatile boolean enabled;
+    private volatile FrameCallback pendingGrab;
+    private volatile int grabWidth;
+    private long skippedFrames;
+
+    public LutFrameObserver() {
+        int threads = Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+        kernel = new LutKernel(threads);
+    }
+
+    /**
+     * Set the LUT to render, the kernel tables are rebuilt on the capture thread
+     */
+    public void setLut(CubeLut lut) {
+        this.lut = lut;
+    }
+
+    public void setStrength(float strength) {
+        this.strength = strength;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stop the worker threads, the observer must be unregistered first
+     */
+    public void release() {
+        enabled = false;
+        kernel.release();
+    }
+
+    /**
+     * Grab the next captured frame, before any LUT is applied, downscaled to the
+     * given width with rotation applied
+     */
+    public void requestFrame(int width, FrameCallback callback) {
+        this.grabWidth = width;
+        this.pendingGrab = callback;
+    }
+
+    /**
+     * Drop a frame request no frame has been captured for yet
+     */
+    public void cancelFrameRequest() {
+        pendingGrab = null;
+    }
+
+    @Override
+    public boolean onCaptureVideoFrame(int sourceType, VideoFrame videoFrame) {
+        FrameCallback grab = pendingGrab;
+        if (grab != null) {
+            pendingGrab = null;
+            grabFrame(videoFrame, grab);
+        }
+
+        CubeLut current = lut;
+        if (!enabled || current == null) {
+            return true;
+        }
+
+        try {
+            if (kernel.getLut() != current) {
+                kernel.setLut(current);
+            }
+
+            VideoFrame.Buffer buffer = videoFrame.getBuffer();
+            if (buffer instanceof NV21Buffer) {
+                kernel.applyNv21(((NV21Buffer) buffer).getByteArray(), buffer.getWidth(), buffer.getHeight(), strength);
+            } else if (buffer instanceof VideoFrame.I420Buffer) {
+                applyI420((VideoFrame.I420Buffer) buffer);
+            } else {
+                // Texture frames would need a per-frame I420 conversion, leave them untouched
+                skippedFrames++;
+                return true;
+            }
+
+            if (kernel.getFrameCount() >= STATS_INTERVAL_FRAMES) {
+                Log.d(TAG, "CPU LUT " + buffer.getWidth() + "x" + buffer.getHeight() + ": "
+                        + kernel.getAverageFrameNanos() + " ns/frame over " + kernel.getFrameCount()
+                        + " frames, skipped " + skippedFrames);
+                kernel.resetStats();
+                skippedFrames = 0;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying CPU LUT: " + e.getMessage());
+        }
+        return true;
+    }
+
+    private void applyI420(VideoFrame.I420Buffer buffer) {
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
+        ByteBuffer dataY = buffer.getDataY();
+        ByteBuffer dataU = buffer.getDataU();
+        ByteBuffer dataV = buffer.getDataV();
+        int strideY = buffer.getStrideY();
+        int strideU = buffer.getStrideU();
+        int strideV = buffer.getStrideV();
+
+        if (dataY.hasArray() && dataU.hasArray() && dataV.hasArray()
+                && dataY.arrayOffset() == 0 && dataU.arrayOffset() == 0 && dataV.arrayOffset() == 0) {
+            kernel.applyI420(dataY.array(), strideY, dataU.array(), strideU, dataV.array(), strideV,
+                    width, height, strength);
+            return;
+        }
+
+        // Direct buffers are mapped in place, row by row
+        kernel.applyI420(dataY, strideY, dataU, strideU, dataV, strideV, width, height, strength);
+    }
+
+    private void grabFrame(VideoFrame videoFrame, FrameCallback callback) {
+        try {
+            VideoFrame.Buffer buffer = videoFrame.getBuffer();
+            byte[] nv21 = null;
+            VideoFrame.I420Buffer i420 = null;
+            if (buffer instanceof NV21Buffer) {
+                nv21 = ((NV21Buffer) buffer).getByteArray();
+            } else if (buffer instanceof VideoFrame.I420Buffer) {
+                i420 = (VideoFrame.I420Buffer) buffer;
+            } else {
+                Log.w(TAG, "Cannot grab preview from texture frame");
+                return;
+            }
+
+            int srcWidth = buffer.getWidth();
+            int srcHeight = buffer.getHeight();
+            int rotation = ((videoFrame.getRotation() % 360) + 360) % 360;
+            boolean swap = rotation == 90 || rotation == 270;
+            int rotatedWidth = swap ? srcHeight : srcWidth;
+            int rotatedHeight = swap ? srcWidth : srcHeight;
+            int width = Math.min(grabWidth, rotatedWidth);
+            int height = Math.max(1, (int) ((long) rotatedHeight * width / rotatedWidth));
+            int[] argb = new int[width * height];
+
+            for (int oy = 0; oy < height; oy++) {
+                int ry = (int) ((long) oy * rotatedHeight / height);
+                for (int ox = 0; ox < width; ox++) {
+                    int rx = (int) ((long) ox * rotatedWidth / width);
+                    // Map the rotated (upright) position back to the sensor frame
+                    int sx;
+                    int sy;
+                    if (rotation == 90) {
+                        sx = ry;
+                        sy = srcHeight - 1 - rx;
+                    } else if (rotation == 180) {
+                        sx = srcWidth - 1 - rx;
+                        sy = srcHeight - 1 - ry;
+                    } else if (rotation == 270) {
+                        sx = srcWidth - 1 - ry;
+                        sy = rx;
+                    } else {
+                        sx = rx;
+                        sy = ry;
+                    }
+
+                    int y;
+                    int u;
+                    int v;
+                    if (nv21 != null) {
+                        int chroma = srcWidth * srcHeight + (sy / 2) * srcWidth + (sx / 2) * 2;
+                        y = nv21[sy * srcWidth + sx] & 0xFF;
+                        v = nv21[chroma] & 0xFF;
+                        u = nv21[chroma + 1] & 0xFF;
+                    } else {
+                        y = i420.getDataY().get(sy * i420.getStrideY() + sx) & 0xFF;
+                        u = i420.getDataU().get((sy / 2) * i420.getStrideU() + sx / 2) & 0xFF;
+                        v = i420.getDataV().get((sy / 2) * i420.getStrideV() + sx / 2) & 0xFF;
+                    }
+                    argb[oy * width + ox] = yuvToArgb(y, u, v);
+                }
+            }
+            callback.onFrame(argb, width, height);
+        } catch (Exception e) {
+            Log.e(TAG, "Error grabbing preview frame: " + e.getMessage());
+        }
+    }
+
+    private static int yuvToArgb(int y, int u, int v) {
+        int c = 298 * (y - 16);
+        int d = u - 128;
+        int e = v - 128;
+        int r = clamp((c + 409 * e + 128) >> 8);
+        int g = clamp((c - 100 * d - 208 * e + 128) >> 8);
+        int b = clamp((c + 516 * d + 128) >> 8);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+
+    @Override
+    public boolean onPreEncodeVideoFrame(int sourceType, VideoFrame videoFrame) {
+        return true;
+    }
+
+    @Override
+    public boolean onMediaPlayerVideoFrame(VideoFrame videoFrame, int mediaPlayerId) {
+        return true;
+    }
+
+    @Override
+    public boolean onRenderVideoFrame(String channelId, int uid, VideoFrame videoFrame) {
+        return true;
+    }
+
+    @Override
+    public int getVideoFrameProcessMode() {
+        return PROCESS_MODE_READ_WRITE;
+    }
+
+    @Override
+    public int getVideoFormatPreference() {
+        return VIDEO_PIXEL_I420;
+    }
+
+    @Override
+    public boolean getRotationApplied() {
+        return false;
+    }
+
+    @Override
+    public boolean getMirrorApplied() {
+        return false;
+    }
+
+    @Override
+    public int getObservedFramePosition() {
+        return POSITION_POST_CAPTURER;
+    }
+}
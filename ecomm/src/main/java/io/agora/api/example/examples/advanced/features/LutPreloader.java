@@ -0,0 +1,234 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.agora.api.example.examples.advanced.features.lut.BinaryLutFile;
+import io.agora.api.example.examples.advanced.features.lut.CubeLut;
+import io.agora.api.example.examples.advanced.features.lut.FilterCatalog;
+import io.agora.api.example.examples.advanced.features.lut.FilterStore;
+
+/**
+ * LUT Preloader
+ * Responsible for copying, parsing and validating the bundled LUT assets on a
+ * background thread at activity start, publishing them as an in-memory
+ * registry that the UI reads without touching storage, and loading the
+ * filter catalog and keeping its bundled entries current
+ */
+public class LutPreloader {
+    private static final String TAG = "LutPreloader";
+    private static final String ASSET_DIR = "lut";
+    private static final String CUBE_EXTENSION = ".cube";
+
+    private static volatile LutPreloader instance;
+
+    /**
+     * A bundled LUT that is copied, validated and ready to apply
+     */
+    public static final class LutAsset {
+        private final String assetName;
+        private final String path;
+        private final CubeLut lut;
+        private final long loadMicros;
+
+        LutAsset(String assetName, String path, CubeLut lut, long loadMicros) {
+            this.assetName = assetName;
+            this.path = path;
+            this.lut = lut;
+            this.loadMicros = loadMicros;
+        }
+
+        /**
+         * Get the asset file name, e.g. "OrangeAndBlue - converted with Color.cube"
+         */
+        public String getAssetName() {
+            return assetName;
+        }
+
+        /**
+         * Get the absolute path of the copied cube file
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public CubeLut getLut() {
+            return lut;
+        }
+
+        public long getLoadMicros() {
+            return loadMicros;
+        }
+    }
+
+    private final Context context;
+    private final ExecutorService executor;
+    private volatile List<LutAsset> assets = Collections.emptyList();
+    private volatile boolean finished = false;
+    private boolean started = false;
+
+    private LutPreloader(Context context) {
+        this.context = context;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, TAG);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the process-wide preloader
+     */
+    public static LutPreloader getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (LutPreloader.class) {
+                if (instance == null) {
+                    instance = new LutPreloader(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Start preloading in the background, later calls are ignored
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        executor.execute(this::preloadAll);
+    }
+
+    private void preloadAll() {
+        long start = System.nanoTime();
+        FilterCatalog catalog = FilterManager.getFilterCatalog(context);
+        String[] names;
+        try {
+            names = context.getAssets().list(ASSET_DIR);
+        } catch (IOException e) {
+            Log.e(TAG, "Error listing LUT assets: " + e.getMessage());
+            finished = true;
+            return;
+        }
+        if (names == null) {
+            names = new String[0];
+        }
+        Arrays.sort(names);
+
+        File filterDir = FilterManager.getFilterDirectory(context);
+        List<String> cubeNames = new ArrayList<>();
+        for (String name : names) {
+            if (name.endsWith(CUBE_EXTENSION)) {
+                cubeNames.add(name);
+                preload(name, filterDir, catalog);
+            }
+        }
+        int removed = catalog.retain(FilterCatalog.Source.ASSET, cubeNames);
+        if (removed > 0) {
+            Log.d(TAG, "Removed " + removed + " assets no longer bundled from the catalog");
+        }
+
+        finished = true;
+        Log.d(TAG, "Preloaded " + assets.size() + " of " + names.length + " LUT assets in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    private void preload(String name, File filterDir, FilterCatalog catalog) {
+        long start = System.nanoTime();
+        try {
+            File destFile = new File(filterDir, name);
+            boolean copied = false;
+            if (!destFile.exists()) {
+                try (InputStream inputStream = context.getAssets().open(ASSET_DIR + "/" + name)) {
+                    FilterManager.copyStream(inputStream, destFile);
+                }
+                copied = true;
+            }
+            CubeLut lut = BinaryLutFile.loadOrCompile(destFile, FilterManager.getCompiledFile(context, destFile));
+            long micros = (System.nanoTime() - start) / 1000;
+            publish(new LutAsset(name, destFile.getAbsolutePath(), lut, micros));
+            register(catalog, name, destFile, lut, copied);
+            Log.d(TAG, "Preloaded " + name + " (" + lut.getSize() + "^3" + (copied ? ", copied" : "") + ") in " + micros + " us");
+        } catch (IOException e) {
+            Log.e(TAG, "Skipping invalid LUT asset " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add an asset to the catalog, hashing it only when it is new or was just copied
+     */
+    private void register(FilterCatalog catalog, String name, File destFile, CubeLut lut, boolean copied) throws IOException {
+        FilterCatalog.Entry entry = catalog.findByPath(destFile.getAbsolutePath());
+        if (entry != null && !copied && entry.getSource() == FilterCatalog.Source.ASSET
+                && entry.getGridSize() == lut.getSize()) {
+            return;
+        }
+        catalog.put(new FilterCatalog.Entry(name, FilterStore.digest(destFile), lut.getSize(),
+                FilterCatalog.Source.ASSET, 0, destFile));
+    }
+
+    /**
+     * Publish a new immutable snapshot so readers never see a list being modified
+     */
+    private void publish(LutAsset asset) {
+        List<LutAsset> next = new ArrayList<>(assets);
+        next.add(asset);
+        assets = Collections.unmodifiableList(next);
+    }
+
+    /**
+     * Get the assets loaded so far, in name order
+     */
+    public List<LutAsset> getAssets() {
+        return assets;
+    }
+
+    /**
+     * Find a loaded asset by its file name, null if not loaded (yet)
+     */
+    public LutAsset findByAssetName(String assetName) {
+        for (LutAsset asset : assets) {
+            if (asset.assetName.equals(assetName)) {
+                return asset;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find a loaded asset by its copied cube path, null if not loaded (yet)
+     */
+    public LutAsset findByPath(String path) {
+        for (LutAsset asset : assets) {
+            if (asset.path.equals(path)) {
+                return asset;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check whether every bundled asset has been processed
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+}
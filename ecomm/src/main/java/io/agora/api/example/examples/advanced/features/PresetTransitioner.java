@@ -0,0 +1,243 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.agora.api.example.bean.BeautyPreset;
+
+/**
+ * Preset Transitioner
+ * Responsible for moving from the current effect state to a preset over a
+ * fixed duration instead of jumping. On/off switches, styles, colors and the
+ * filter file take the preset value when the transition starts; beauty
+ * levels, face shape intensity, makeup strengths, color enhance and filter
+ * strength are interpolated on a scheduler thread at a capped rate, sending
+ * only the effect groups whose values moved. The last frame is the preset
+ * itself, applied on the main thread so the managers end in the preset state.
+ * Starting a new transition pre-empts the running one from where it stopped.
+ * start() and cancel() must be called from the main thread.
+ */
+public class PresetTransitioner {
+    private static final String TAG = "PresetTransitioner";
+    public static final int MAX_UPDATE_RATE_HZ = 30;
+    public static final long DEFAULT_DURATION_MS = 600;
+    private static final int INTERPOLATED_GROUPS = BeautyPreset.GROUP_BEAUTY | BeautyPreset.GROUP_FACE_SHAPE
+            | BeautyPreset.GROUP_MAKEUP | BeautyPreset.GROUP_COLOR_ENHANCE | BeautyPreset.GROUP_FILTER_STRENGTH;
+
+    private final BeautyFeatureManager beautyManager;
+    private final FilterManager filterManager;
+    private final ScheduledExecutorService scheduler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Object lock = new Object();
+    // Incremented on every start and cancel, frames of an older transition are dropped
+    private int generation;
+    private ScheduledFuture<?> running;
+    // Last frame sent by the running transition, where a pre-empting one starts from
+    private BeautyPreset lastFrame;
+
+    private long transitionCount;
+    private long preemptedCount;
+    private long frameCount;
+    private long groupSendCount;
+
+    public PresetTransitioner(BeautyFeatureManager beautyManager, FilterManager filterManager) {
+        this.beautyManager = beautyManager;
+        this.filterManager = filterManager;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Transition to a preset over the default duration
+     */
+    public void start(BeautyPreset target) {
+        start(target, DEFAULT_DURATION_MS);
+    }
+
+    /**
+     * Transition to a preset over the given duration, a duration of 0 applies it at once
+     */
+    public void start(BeautyPreset target, long durationMs) {
+        BeautyPreset from;
+        int gen;
+        synchronized (lock) {
+            gen = ++generation;
+            if (running != null) {
+                running.cancel(false);
+                running = null;
+                preemptedCount++;
+            }
+            from = lastFrame != null ? lastFrame
+                    : BeautyPresetManager.captureState(beautyManager, filterManager);
+            lastFrame = null;
+            transitionCount++;
+        }
+
+        BeautyPreset first = new BeautyPreset();
+        int groups = interpolate(from, target, 0f, first) & target.diff(from) & INTERPOLATED_GROUPS;
+        long periodMs = 1000 / MAX_UPDATE_RATE_HZ;
+        int steps = (int) ((durationMs + periodMs - 1) / periodMs);
+        if (groups == 0 || steps <= 1) {
+            BeautyPresetManager.applyPreset(target, beautyManager, filterManager);
+            return;
+        }
+
+        // Switches, styles and the filter file change now, levels start where they are
+        first.name = target.name;
+        BeautyPresetManager.applyPreset(first, beautyManager, filterManager);
+        EffectUpdateDispatcher.Sender<Float> strengthSender =
+                filterManager != null ? filterManager.createStrengthSender() : null;
+
+        Runnable tick = new Runnable() {
+            private int step = 0;
+            private BeautyPreset previous = first;
+
+            @Override
+            public void run() {
+                step++;
+                if (step >= steps) {
+                    finish(gen, target);
+                    return;
+                }
+                BeautyPreset frame = new BeautyPreset();
+                interpolate(from, target, (float) step / steps, frame);
+                int changed = frame.diff(previous) & groups;
+                synchronized (lock) {
+                    if (gen != generation) {
+                        return;
+                    }
+                    beautyManager.sendTransitionFrame(frame, changed);
+                    if ((changed & BeautyPreset.GROUP_FILTER_STRENGTH) != 0 && strengthSender != null) {
+                        strengthSender.send(frame.filterStrength);
+                    }
+                    lastFrame = frame;
+                    frameCount++;
+                    groupSendCount += Integer.bitCount(changed);
+                }
+                previous = frame;
+            }
+        };
+        synchronized (lock) {
+            if (gen == generation) {
+                lastFrame = first;
+                running = scheduler.scheduleAtFixedRate(tick, periodMs, periodMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        Log.d(TAG, "Transition to " + target.name + " over " + durationMs + " ms, " + steps
+                + " steps, interpolating " + BeautyPreset.describe(groups));
+    }
+
+    private void finish(int gen, BeautyPreset target) {
+        synchronized (lock) {
+            if (gen != generation) {
+                return;
+            }
+            if (running != null) {
+                running.cancel(false);
+            }
+        }
+        mainHandler.post(() -> {
+            synchronized (lock) {
+                if (gen != generation) {
+                    return;
+                }
+                running = null;
+                lastFrame = null;
+            }
+            BeautyPresetManager.applyPreset(target, beautyManager, filterManager);
+            Log.d(TAG, "Transition to " + target.name + " finished, " + this);
+        });
+    }
+
+    /**
+     * Stop the running transition where it is, e.g. when the user moves a
+     * slider. The engine keeps the last frame sent.
+     */
+    public void cancel() {
+        synchronized (lock) {
+            generation++;
+            if (running != null) {
+                running.cancel(false);
+                running = null;
+            }
+            lastFrame = null;
+        }
+    }
+
+    public boolean isRunning() {
+        synchronized (lock) {
+            return running != null;
+        }
+    }
+
+    /**
+     * Stop the running transition and the scheduler thread
+     */
+    public void release() {
+        cancel();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Build the frame at position t between two states into out. Discrete
+     * values come from the target; levels are interpolated only for effects
+     * enabled in both states, and filter strength only for the same filter.
+     * Returns the mask of groups with interpolated values.
+     */
+    static int interpolate(BeautyPreset from, BeautyPreset to, float t, BeautyPreset out) {
+        out.copyFrom(to);
+        int groups = 0;
+        if (from.beautyEnabled && to.beautyEnabled) {
+            out.lighteningLevel = lerp(from.lighteningLevel, to.lighteningLevel, t);
+            out.rednessLevel = lerp(from.rednessLevel, to.rednessLevel, t);
+            out.sharpnessLevel = lerp(from.sharpnessLevel, to.sharpnessLevel, t);
+            out.smoothnessLevel = lerp(from.smoothnessLevel, to.smoothnessLevel, t);
+            groups |= BeautyPreset.GROUP_BEAUTY;
+        }
+        if (from.faceShapeEnabled && to.faceShapeEnabled && from.shapeStyle == to.shapeStyle) {
+            out.styleIntensity = Math.round(lerp(from.styleIntensity, to.styleIntensity, t));
+            groups |= BeautyPreset.GROUP_FACE_SHAPE;
+        }
+        if (from.makeUp.enable_mu && to.makeUp.enable_mu) {
+            out.makeUp.browStrength = lerp(from.makeUp.browStrength, to.makeUp.browStrength, t);
+            out.makeUp.lashStrength = lerp(from.makeUp.lashStrength, to.makeUp.lashStrength, t);
+            out.makeUp.shadowStrength = lerp(from.makeUp.shadowStrength, to.makeUp.shadowStrength, t);
+            out.makeUp.pupilStrength = lerp(from.makeUp.pupilStrength, to.makeUp.pupilStrength, t);
+            out.makeUp.blushStrength = lerp(from.makeUp.blushStrength, to.makeUp.blushStrength, t);
+            out.makeUp.lipStrength = lerp(from.makeUp.lipStrength, to.makeUp.lipStrength, t);
+            groups |= BeautyPreset.GROUP_MAKEUP;
+        }
+        if (from.colorEnhanceEnabled && to.colorEnhanceEnabled) {
+            out.colorStrength = lerp(from.colorStrength, to.colorStrength, t);
+            out.skinProtect = lerp(from.skinProtect, to.skinProtect, t);
+            groups |= BeautyPreset.GROUP_COLOR_ENHANCE;
+        }
+        if (to.filterPath != null && to.filterPath.equals(from.filterPath)) {
+            out.filterStrength = lerp(from.filterStrength, to.filterStrength, t);
+            groups |= BeautyPreset.GROUP_FILTER_STRENGTH;
+        }
+        return groups;
+    }
+
+    private static float lerp(float from, float to, float t) {
+        return from + (to - from) * t;
+    }
+
+    @Override
+    public String toString() {
+        synchronized (lock) {
+            return "transitions=" + transitionCount + " preempted=" + preemptedCount
+                    + " frames=" + frameCount + " groupSends=" + groupSendCount;
+        }
+    }
+}
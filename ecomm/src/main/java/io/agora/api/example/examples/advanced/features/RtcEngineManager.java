@@ -1,14 +1,20 @@
 package io.agora.api.example.examples.advanced.features;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import io.agora.api.example.examples.advanced.device.DeviceCapabilityCache;
+import io.agora.api.example.examples.advanced.device.DeviceTier;
 import io.agora.rtc2.Constants;
 import io.agora.rtc2.IRtcEngineEventHandler;
 import io.agora.rtc2.RtcEngine;
 import io.agora.rtc2.RtcEngineConfig;
+import io.agora.rtc2.video.SimulcastStreamConfig;
 import io.agora.rtc2.video.VideoEncoderConfiguration;
 
 import static io.agora.rtc2.video.VideoEncoderConfiguration.STANDARD_BITRATE;
@@ -21,71 +27,184 @@ public class RtcEngineManager {
     private static final String TAG = "RtcEngineManager";
     
     private final Context context;
-    private RtcEngine engine;
-    private boolean isInitialized = false;
-    private int myUid = 0;
-    private boolean isJoined = false;
+    private final DeviceCapabilityCache capabilityCache;
+    private final SessionTracer tracer;
+    // 引擎实例、频道状态和uid都保存在进程级的状态机中，Fragment重建后直接可用
+    private final EngineLifecycle lifecycle = EngineLifecycle.getInstance();
     
-    // Static variables to save Engine instance and state
-    private static RtcEngine staticEngine = null;
-    private static boolean engineInitialized = false;
-    private static boolean staticJoined = false;
-    private static int staticMyUid = 0;
+    /**
+     * 小流默认参数：16:9，约为主流的1/16像素
+     */
+    public static final int DEFAULT_LOW_STREAM_WIDTH = 480;
+    public static final int DEFAULT_LOW_STREAM_HEIGHT = 270;
+    public static final int DEFAULT_LOW_STREAM_FRAME_RATE = 15;
+    public static final int DEFAULT_LOW_STREAM_KBPS = 400;
+    // 观看窗口不超过小流尺寸的这个倍数时订阅小流
+    private static final float LOW_STREAM_MAX_UPSCALE = 1.5f;
+    
+    // 小流配置，进频道前设置
+    private boolean dualStreamEnabled = true;
+    private int lowStreamWidth = DEFAULT_LOW_STREAM_WIDTH;
+    private int lowStreamHeight = DEFAULT_LOW_STREAM_HEIGHT;
+    private int lowStreamFrameRate = DEFAULT_LOW_STREAM_FRAME_RATE;
+    private int lowStreamKbps = DEFAULT_LOW_STREAM_KBPS;
+    
+    // 编码档位，进频道时按设备档位选起点，之后随上行网络升降
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private EncoderProfileLadder encoderLadder;
+    // 同一引擎上只保留一个管理器的编码统计回调，新管理器进频道时接管，避免重复调用 onEncoderSample
+    private static RtcEngineManager encoderStatsOwner = null;
+    private static RtcEngine encoderStatsEngine = null;
+    // 已注册到引擎的界面事件回调，避免重复注册
+    private IRtcEngineEventHandler boundEventHandler = null;
+    private RtcEngine boundEventEngine = null;
+    // The engine the clear_vision extension was enabled on, a failed load is retried when the engine is handed out
+    private static volatile RtcEngine extensionEngine = null;
+    // SDK回调线程写入的最新上行数据
+    private volatile int uplinkKbps = -1;
+    private volatile int txQuality = 0;
+    
+    private final IRtcEngineEventHandler encoderStatsHandler = new IRtcEngineEventHandler() {
+        @Override
+        public void onUplinkNetworkInfoUpdated(UplinkNetworkInfo info) {
+            uplinkKbps = info.video_encoder_target_bitrate_bps / 1000;
+        }
+        
+        @Override
+        public void onNetworkQuality(int uid, int txQuality, int rxQuality) {
+            // uid 0 是本地用户
+            if (uid == 0) {
+                RtcEngineManager.this.txQuality = txQuality;
+            }
+        }
+        
+        @Override
+        public void onLocalVideoStats(Constants.VideoSourceType source, LocalVideoStats stats) {
+            if (source != Constants.VideoSourceType.VIDEO_SOURCE_CAMERA_PRIMARY) {
+                return;
+            }
+            EncoderProfileLadder.Sample sample = new EncoderProfileLadder.Sample(SystemClock.elapsedRealtime(),
+                    uplinkKbps, txQuality, stats.encoderOutputFrameRate, stats.targetFrameRate);
+            mainHandler.post(() -> onEncoderSample(sample));
+        }
+    };
     
     public interface EngineCallback {
         void onEngineInitialized(RtcEngine engine);
+        
+        /**
+         * No engine could be created. Also follows onEngineInitialized when
+         * the engine works but the clear_vision extension could not be enabled.
+         */
         void onEngineError(String error);
+        
+        /**
+         * False once the receiver is gone, e.g. a detached Fragment. A
+         * prewarmed engine arriving then is kept without its event handler.
+         */
+        default boolean isAttached() {
+            return true;
+        }
     }
     
     public RtcEngineManager(@NonNull Context context) {
         this.context = context;
+        this.capabilityCache = DeviceCapabilityCache.getInstance(context);
+        this.tracer = SessionTracer.getInstance(context);
     }
     
     /**
      * Initialize RTC engine
+     * Attaches to the engine prewarmed at activity launch when there is one,
+     * reuses the live engine, otherwise creates the engine on the calling thread
      */
     public void initializeEngine(IRtcEngineEventHandler eventHandler, EngineCallback callback) {
         try {
-            // First try to restore saved Engine instance
-            restoreEngine();
-            
-            // If Engine exists and is valid, use it directly
-            if (engine != null && engineInitialized) {
-                Log.d(TAG, "Using existing RTC Engine instance");
-                if (callback != null) {
-                    callback.onEngineInitialized(engine);
+            // Take the engine created in the background at launch, the callback follows on the main thread
+            EnginePrewarmer prewarmer = EnginePrewarmer.getInstance();
+            if (prewarmer.attach(new EngineCallback() {
+                @Override
+                public void onEngineInitialized(RtcEngine prewarmed) {
+                    onEngineReady(prewarmed, eventHandler, callback);
+                }
+                
+                @Override
+                public void onEngineError(String error) {
+                    Log.w(TAG, "Engine prewarm failed, creating it now: " + error);
+                    createEngine(eventHandler, callback);
                 }
+            })) {
                 return;
             }
             
-            // If engine already exists, destroy it first
+            // If Engine exists, use it directly, also while joined after the Fragment was recreated
+            RtcEngine engine = lifecycle.getEngine();
             if (engine != null) {
-                Log.d(TAG, "Destroying existing RTC Engine before reinitializing");
-                engine.leaveChannel();
-                RtcEngine.destroy();
-                engine = null;
+                Log.d(TAG, "Using existing RTC Engine instance, state: " + lifecycle.getState());
+                // The engine may have been adopted by a Fragment that was already gone
+                bindEventHandler(engine, eventHandler);
+                capabilityCache.probeAsync(engine);
+                deliverEngine(engine, callback);
+                return;
             }
             
+            createEngine(eventHandler, callback);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to initialize RTC Engine: " + e.getMessage());
+            if (callback != null) {
+                callback.onEngineError("Failed to initialize RTC Engine: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Create the engine and load the extension on the calling thread
+     */
+    private void createEngine(IRtcEngineEventHandler eventHandler, EngineCallback callback) {
+        // Only one caller creates, a live engine is never torn down just to be created again
+        if (!lifecycle.beginCreate()) {
+            RtcEngine existing = lifecycle.getEngine();
+            Log.d(TAG, "Not creating RTC Engine, state: " + lifecycle.getState());
+            if (existing != null) {
+                deliverEngine(existing, callback);
+            } else if (callback != null) {
+                callback.onEngineError("RTC Engine is being created");
+            }
+            return;
+        }
+        RtcEngine engine = null;
+        try {
+            long start = SystemClock.elapsedRealtime();
             RtcEngineConfig config = new RtcEngineConfig();
             config.mContext = context.getApplicationContext();
             config.mAppId = context.getString(io.agora.api.example.ecomm.R.string.agora_app_id);
             config.mChannelProfile = Constants.CHANNEL_PROFILE_LIVE_BROADCASTING;
             config.mEventHandler = eventHandler;
             
+            tracer.mark(SessionTracer.Milestone.ENGINE_CREATE_START);
             engine = RtcEngine.create(config);
+            tracer.mark(SessionTracer.Milestone.ENGINE_CREATED);
+            boundEventHandler = eventHandler;
+            boundEventEngine = engine;
+            lifecycle.onCreated(engine);
             Log.d(TAG, "RTC Engine initialized successfully");
             
-            // Save Engine instance
-            preserveEngine();
-            
             // Enable video filter extension
-            engine.enableExtension("agora_video_filters_clear_vision", "clear_vision", true);
-            
-            if (callback != null) {
-                callback.onEngineInitialized(engine);
+            if (enableFilterExtension(engine)) {
+                tracer.mark(SessionTracer.Milestone.EXTENSION_ENABLED);
             }
+            Log.d(TAG, "Engine created on the main thread in " + (SystemClock.elapsedRealtime() - start) + " ms");
+            
+            // Probe device capabilities off the main thread, or load them from the cache
+            capabilityCache.probeAsync(engine);
+            
+            deliverEngine(engine, callback);
             
         } catch (Exception e) {
+            // An engine that exists stays live, the extension is enabled again when it is handed out
+            if (engine == null) {
+                lifecycle.onCreateFailed();
+            }
             Log.e(TAG, "Failed to initialize RTC Engine: " + e.getMessage());
             if (callback != null) {
                 callback.onEngineError("Failed to initialize RTC Engine: " + e.getMessage());
@@ -93,16 +212,94 @@ public class RtcEngineManager {
         }
     }
     
+    /**
+     * Adopt the prewarmed engine, it was created with a placeholder event handler
+     */
+    private void onEngineReady(RtcEngine prewarmed, IRtcEngineEventHandler eventHandler, EngineCallback callback) {
+        // A detached receiver would leak through its handler, the engine stays in the lifecycle for the next one
+        if (callback != null && !callback.isAttached()) {
+            Log.d(TAG, "Prewarmed RTC Engine ready after the receiver was detached, handler not added");
+            return;
+        }
+        bindEventHandler(prewarmed, eventHandler);
+        capabilityCache.probeAsync(prewarmed);
+        
+        EnginePrewarmer prewarmer = EnginePrewarmer.getInstance();
+        long now = SystemClock.elapsedRealtime();
+        Log.d(TAG, "Prewarmed RTC Engine attached " + (now - prewarmer.getLaunchTime()) + " ms after launch, ready after "
+                + (prewarmer.getReadyTime() - prewarmer.getLaunchTime()) + " ms");
+        deliverEngine(prewarmed, callback);
+    }
+    
+    /**
+     * Enable the clear_vision extension and record the engine it is enabled on,
+     * false when the SDK refused it
+     */
+    static boolean enableFilterExtension(RtcEngine engine) {
+        try {
+            int result = engine.enableExtension(EnginePrewarmer.EXTENSION_PROVIDER, EnginePrewarmer.EXTENSION_NAME, true);
+            if (result != 0) {
+                Log.e(TAG, "Failed to enable extension: " + result + " " + RtcEngine.getErrorDescription(result));
+                return false;
+            }
+            extensionEngine = engine;
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to enable extension: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Hand the engine to the callback, enabling the extension again when the
+     * load where the engine was created failed. The engine works without it,
+     * beauty, makeup and filters do not, so that is reported as an error.
+     */
+    private void deliverEngine(RtcEngine engine, EngineCallback callback) {
+        boolean extensionEnabled = extensionEngine == engine || enableFilterExtension(engine);
+        if (callback == null) {
+            return;
+        }
+        callback.onEngineInitialized(engine);
+        if (!extensionEnabled) {
+            callback.onEngineError("Video filter extension could not be enabled, effects are unavailable");
+        }
+    }
+    
+    /**
+     * Register the event handler with the engine once, replacing the one this manager registered before
+     */
+    private void bindEventHandler(RtcEngine engine, IRtcEngineEventHandler eventHandler) {
+        if (eventHandler == null || (engine == boundEventEngine && eventHandler == boundEventHandler)) {
+            return;
+        }
+        if (engine == boundEventEngine && boundEventHandler != null) {
+            engine.removeHandler(boundEventHandler);
+        }
+        engine.addHandler(eventHandler);
+        boundEventHandler = eventHandler;
+        boundEventEngine = engine;
+    }
+    
     /**
      * Join channel
+     * Returns false when the join was not sent, e.g. the engine is missing,
+     * another join is in progress or the last leave has not finished yet
      */
-    public void joinChannel(String channelId, String token) {
+    public boolean joinChannel(String channelId, String token) {
+        RtcEngine engine = lifecycle.getEngine();
         if (engine == null) {
             Log.e(TAG, "Engine is null, cannot join channel");
-            return;
+            return false;
+        }
+        // A second tap while joining or joined must not join again
+        if (!lifecycle.beginJoin()) {
+            Log.w(TAG, "Not joining channel, state: " + lifecycle.getState());
+            return false;
         }
 
         Log.d(TAG, "Joining channel: " + channelId);
+        tracer.mark(SessionTracer.Milestone.JOIN_CHANNEL);
 
                     // Verify engine status
         try {
@@ -111,21 +308,38 @@ public class RtcEngineManager {
             Log.d(TAG, "Engine is responsive");
         } catch (Exception e) {
             Log.e(TAG, "Engine is not responsive: " + e.getMessage());
-            return;
+            lifecycle.onJoinFailed();
+            return false;
         }
 
         engine.setDefaultAudioRoutetoSpeakerphone(true);
         engine.setClientRole(Constants.CLIENT_ROLE_BROADCASTER);
         engine.enableVideo();
         
-        // 设置1080p分辨率
-        VideoEncoderConfiguration.VideoDimensions dimensions = new VideoEncoderConfiguration.VideoDimensions(1920, 1080);
-        engine.setVideoEncoderConfiguration(new VideoEncoderConfiguration(
-                dimensions,
-                VideoEncoderConfiguration.FRAME_RATE.FRAME_RATE_FPS_30,
-                STANDARD_BITRATE,
-                VideoEncoderConfiguration.ORIENTATION_MODE.ORIENTATION_MODE_ADAPTIVE
-        ));
+        // 按设备档位选择起始编码档位
+        if (encoderLadder == null) {
+            encoderLadder = EncoderProfileLadder.forTier(DeviceTier.detect(context));
+        } else {
+            encoderLadder.reset();
+        }
+        uplinkKbps = -1;
+        txQuality = 0;
+        registerEncoderStatsHandler(engine);
+        EncoderProfileLadder.Profile profile = encoderLadder.getProfile();
+        Log.d(TAG, "Encoder profile at join: " + profile);
+        engine.setVideoEncoderConfiguration(buildEncoderConfiguration(profile));
+        
+        // 同时发布小流，小窗口观看的观众订阅小流
+        if (dualStreamEnabled) {
+            SimulcastStreamConfig lowStream = new SimulcastStreamConfig(
+                    new VideoEncoderConfiguration.VideoDimensions(lowStreamWidth, lowStreamHeight),
+                    lowStreamKbps, lowStreamFrameRate);
+            int result = engine.setDualStreamMode(Constants.SimulcastStreamMode.ENABLE_SIMULCAST_STREAM, lowStream);
+            Log.d(TAG, "Low stream " + lowStreamWidth + "x" + lowStreamHeight + "@" + lowStreamFrameRate
+                    + " " + lowStreamKbps + " kbps, result: " + result);
+        } else {
+            engine.setDualStreamMode(Constants.SimulcastStreamMode.DISABLE_SIMULCAST_STREAM, null);
+        }
 
         io.agora.rtc2.ChannelMediaOptions option = new io.agora.rtc2.ChannelMediaOptions();
         option.autoSubscribeAudio = true;
@@ -138,59 +352,227 @@ public class RtcEngineManager {
         Log.d(TAG, "joinChannel result: " + res);
         if (res != 0) {
             Log.e(TAG, "Failed to join channel: " + res + ", error description: " + RtcEngine.getErrorDescription(res));
+            lifecycle.onJoinFailed();
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * 注册本管理器的编码统计回调，同一引擎上其他管理器注册的先移除
+     */
+    private void registerEncoderStatsHandler(RtcEngine engine) {
+        synchronized (RtcEngineManager.class) {
+            if (encoderStatsOwner == this && encoderStatsEngine == engine) {
+                return;
+            }
+            if (encoderStatsOwner != null && encoderStatsEngine == engine) {
+                engine.removeHandler(encoderStatsOwner.encoderStatsHandler);
+                Log.d(TAG, "Encoder stats handler taken over from the previous manager");
+            }
+            engine.addHandler(encoderStatsHandler);
+            encoderStatsOwner = this;
+            encoderStatsEngine = engine;
         }
     }
     
     /**
-     * 离开频道
+     * 移除引擎上注册的编码统计回调，引擎销毁前调用
+     */
+    private static void unregisterEncoderStatsHandler(RtcEngine engine) {
+        synchronized (RtcEngineManager.class) {
+            if (encoderStatsOwner != null && encoderStatsEngine == engine) {
+                engine.removeHandler(encoderStatsOwner.encoderStatsHandler);
+            }
+            encoderStatsOwner = null;
+            encoderStatsEngine = null;
+        }
+    }
+    
+    /**
+     * 用一次本地视频统计评估编码档位，档位变化时重新设置编码参数
+     */
+    private void onEncoderSample(EncoderProfileLadder.Sample sample) {
+        RtcEngine engine = lifecycle.getEngine();
+        if (engine == null || encoderLadder == null || !lifecycle.isJoined()) {
+            return;
+        }
+        if (encoderLadder.onSample(sample) < 0) {
+            return;
+        }
+        EncoderProfileLadder.Profile profile = encoderLadder.getProfile();
+        Log.i(TAG, "Encoder profile -> " + profile + " (uplink " + sample.uplinkKbps + " kbps, tx quality "
+                + sample.txQuality + ", encoder " + sample.encoderFps + "/" + sample.targetFps + " fps)");
+        RtcEngine target = engine;
+        VideoEncoderConfiguration configuration = buildEncoderConfiguration(profile);
+        EngineCommandExecutor.getInstance().submit(EngineCommandExecutor.KEY_ENCODER,
+            () -> target.setVideoEncoderConfiguration(configuration));
+    }
+    
+    private static VideoEncoderConfiguration buildEncoderConfiguration(EncoderProfileLadder.Profile profile) {
+        VideoEncoderConfiguration.FRAME_RATE frameRate;
+        switch (profile.frameRate) {
+            case 15:
+                frameRate = VideoEncoderConfiguration.FRAME_RATE.FRAME_RATE_FPS_15;
+                break;
+            case 24:
+                frameRate = VideoEncoderConfiguration.FRAME_RATE.FRAME_RATE_FPS_24;
+                break;
+            default:
+                frameRate = VideoEncoderConfiguration.FRAME_RATE.FRAME_RATE_FPS_30;
+                break;
+        }
+        return new VideoEncoderConfiguration(
+                new VideoEncoderConfiguration.VideoDimensions(profile.width, profile.height),
+                frameRate,
+                STANDARD_BITRATE,
+                VideoEncoderConfiguration.ORIENTATION_MODE.ORIENTATION_MODE_ADAPTIVE
+        );
+    }
+    
+    /**
+     * 开启或关闭小流发布，下次进频道时生效
+     */
+    public void setDualStreamEnabled(boolean enabled) {
+        this.dualStreamEnabled = enabled;
+    }
+    
+    /**
+     * 设置小流的分辨率、帧率和码率，下次进频道时生效
+     */
+    public void setLowStreamConfig(int width, int height, int frameRate, int kbps) {
+        this.lowStreamWidth = width;
+        this.lowStreamHeight = height;
+        this.lowStreamFrameRate = frameRate;
+        this.lowStreamKbps = kbps;
+    }
+    
+    /**
+     * 按当前小流配置和观看窗口尺寸选择订阅的流
+     */
+    public Constants.VideoStreamType selectStreamType(int viewWidth, int viewHeight) {
+        return selectStreamType(viewWidth, viewHeight, lowStreamWidth, lowStreamHeight);
+    }
+    
+    /**
+     * 按观看窗口尺寸选择订阅的流：窗口不比小流大太多时用小流，与横竖屏无关
+     */
+    public static Constants.VideoStreamType selectStreamType(int viewWidth, int viewHeight,
+                                                             int lowWidth, int lowHeight) {
+        int viewLong = Math.max(viewWidth, viewHeight);
+        int viewShort = Math.min(viewWidth, viewHeight);
+        int lowLong = Math.max(lowWidth, lowHeight);
+        int lowShort = Math.min(lowWidth, lowHeight);
+        if (viewLong > 0 && viewLong <= lowLong * LOW_STREAM_MAX_UPSCALE
+                && viewShort <= lowShort * LOW_STREAM_MAX_UPSCALE) {
+            return Constants.VideoStreamType.VIDEO_STREAM_LOW;
+        }
+        return Constants.VideoStreamType.VIDEO_STREAM_HIGH;
+    }
+    
+    /**
+     * 获取当前编码档位，进频道前为null
+     */
+    public EncoderProfileLadder.Profile getEncoderProfile() {
+        return encoderLadder != null ? encoderLadder.getProfile() : null;
+    }
+    
+    /**
+     * 离开频道，SDK回调onLeaveChannel或断开连接后才算离开完成
      */
     public void leaveChannel() {
-        if (engine != null) {
-            engine.leaveChannel();
-            isJoined = false;
+        RtcEngine engine = lifecycle.getEngine();
+        // 未进频道时不调用leaveChannel
+        if (engine != null && lifecycle.beginLeave()) {
+            int result = engine.leaveChannel();
+            // 调用失败或SDK已断开时不会再有回调，直接结束
+            if (result != 0 || engine.getConnectionState() == Constants.CONNECTION_STATE_DISCONNECTED) {
+                Log.d(TAG, "leaveChannel result: " + result + ", finishing leave now");
+                onLeaveChannel();
+            }
+        }
+    }
+    
+    /**
+     * SDK离开频道的回调，可在SDK回调线程调用
+     */
+    public void onLeaveChannel() {
+        if (lifecycle.onLeft()) {
             Log.d(TAG, "Left channel");
+            // 结束本次会话的耗时记录并输出统计
+            tracer.endSession();
+            tracer.dump();
         }
     }
     
     /**
-     * 销毁引擎
+     * 连接状态变化，可在SDK回调线程调用。连接失败或未主动离开就断开时离开频道，
+     * 避免状态停在加入中。返回true表示频道已失去，界面需恢复到未加入
      */
-    public void destroyEngine() {
-        if (engine != null) {
-            engine.leaveChannel();
-            RtcEngine.destroy();
-            engine = null;
-            staticEngine = null;
-            engineInitialized = false;
-            staticJoined = false;
-            staticMyUid = 0;
-            isInitialized = false;
-            Log.d(TAG, "RTC Engine destroyed");
+    public boolean onConnectionStateChanged(int state, int reason) {
+        if (state == Constants.CONNECTION_STATE_DISCONNECTED
+                && lifecycle.getState() == EngineLifecycle.State.LEAVING) {
+            onLeaveChannel();
+            return false;
+        }
+        if (state == Constants.CONNECTION_STATE_FAILED || state == Constants.CONNECTION_STATE_DISCONNECTED) {
+            return abandonChannel("connection state " + state + ", reason " + reason);
         }
+        return false;
     }
     
     /**
-     * 保存Engine实例和状态到静态变量
+     * 引擎错误，可在SDK回调线程调用。加入过程中出现无法恢复的错误时放弃加入，
+     * 返回true表示界面需恢复到未加入
      */
-    private void preserveEngine() {
-        if (engine != null) {
-            staticEngine = engine;
-            engineInitialized = true;
-            staticJoined = isJoined;
-            staticMyUid = myUid;
-            Log.d(TAG, "Engine and state preserved to static variable - joined: " + isJoined + ", uid: " + myUid);
+    public boolean onError(int err) {
+        switch (err) {
+            case Constants.ERR_INVALID_APP_ID:
+            case Constants.ERR_INVALID_CHANNEL_NAME:
+            case Constants.ERR_TOKEN_EXPIRED:
+            case Constants.ERR_INVALID_TOKEN:
+                if (lifecycle.getState() == EngineLifecycle.State.JOINING) {
+                    return abandonChannel("error " + err);
+                }
+                return false;
+            default:
+                return false;
         }
     }
     
     /**
-     * 从静态变量恢复Engine实例和状态
+     * 正在加入或已加入时离开频道，SDK仍保留失败的连接，需离开后才能再次加入
      */
-    private void restoreEngine() {
-        if (staticEngine != null && engineInitialized) {
-            engine = staticEngine;
-            isJoined = staticJoined;
-            myUid = staticMyUid;
-            Log.d(TAG, "Engine and state restored from static variable - joined: " + isJoined + ", uid: " + myUid);
+    private boolean abandonChannel(String reason) {
+        EngineLifecycle.State state = lifecycle.getState();
+        if (state != EngineLifecycle.State.JOINING && state != EngineLifecycle.State.JOINED) {
+            return false;
+        }
+        Log.w(TAG, "Channel lost while " + state + ": " + reason);
+        // 不在SDK回调线程中调用引擎
+        mainHandler.post(this::leaveChannel);
+        return true;
+    }
+    
+    /**
+     * 销毁引擎
+     */
+    public void destroyEngine() {
+        // 只有取得销毁权的调用方销毁引擎，重复调用直接返回
+        RtcEngine engine = lifecycle.beginDestroy();
+        if (engine != null) {
+            // 丢弃尚未执行的引擎命令，避免在引擎销毁后调用
+            EngineCommandExecutor.getInstance().cancelAll();
+            unregisterEncoderStatsHandler(engine);
+            if (extensionEngine == engine) {
+                extensionEngine = null;
+            }
+            engine.leaveChannel();
+            RtcEngine.destroy();
+            tracer.endSession();
+            boundEventHandler = null;
+            boundEventEngine = null;
+            Log.d(TAG, "RTC Engine destroyed");
         }
     }
     
@@ -198,52 +580,46 @@ public class RtcEngineManager {
      * 获取RTC引擎实例
      */
     public RtcEngine getEngine() {
-        return engine;
+        return lifecycle.getEngine();
     }
     
     /**
      * 检查引擎是否已初始化
      */
     public boolean isInitialized() {
-        return isInitialized && engine != null;
+        return lifecycle.getEngine() != null;
     }
     
     /**
-     * 设置用户ID
+     * 加入频道成功，记录用户ID
      */
-    public void setMyUid(int uid) {
-        this.myUid = uid;
-        staticMyUid = uid;
+    public void onJoinChannelSuccess(int uid) {
+        if (!lifecycle.onJoined(uid)) {
+            Log.w(TAG, "Join success ignored, state: " + lifecycle.getState());
+        }
     }
     
     /**
      * 获取用户ID
      */
     public int getMyUid() {
-        return myUid;
-    }
-    
-    /**
-     * 设置加入状态
-     */
-    public void setJoined(boolean joined) {
-        this.isJoined = joined;
-        staticJoined = joined;
+        return lifecycle.getUid();
     }
     
     /**
      * 检查是否已加入频道
      */
     public boolean isJoined() {
-        return isJoined;
+        return lifecycle.isJoined();
     }
     
     /**
      * 切换摄像头
      */
     public void switchCamera() {
-        if (engine != null) {
-            engine.switchCamera();
+        RtcEngine target = lifecycle.getEngine();
+        if (target != null) {
+            EngineCommandExecutor.getInstance().submit(null, target::switchCamera);
         }
     }
     
@@ -251,8 +627,10 @@ public class RtcEngineManager {
      * 设置摄像头缩放因子
      */
     public void setCameraZoomFactor(float zoomFactor) {
-        if (engine != null) {
-            engine.setCameraZoomFactor(zoomFactor);
+        RtcEngine target = lifecycle.getEngine();
+        if (target != null) {
+            EngineCommandExecutor.getInstance().submit(EngineCommandExecutor.KEY_ZOOM,
+                () -> target.setCameraZoomFactor(zoomFactor));
         }
     }
     
@@ -260,6 +638,7 @@ public class RtcEngineManager {
      * 获取摄像头最大缩放因子
      */
     public float getCameraMaxZoomFactor() {
+        RtcEngine engine = lifecycle.getEngine();
         if (engine != null) {
             return engine.getCameraMaxZoomFactor();
         }
@@ -270,8 +649,10 @@ public class RtcEngineManager {
      * 设置摄像头自动对焦模式
      */
     public void setCameraAutoFocusFaceModeEnabled(boolean enabled) {
-        if (engine != null) {
-            engine.setCameraAutoFocusFaceModeEnabled(enabled);
+        RtcEngine target = lifecycle.getEngine();
+        if (target != null) {
+            EngineCommandExecutor.getInstance().submit(EngineCommandExecutor.KEY_AUTO_FOCUS_FACE,
+                () -> target.setCameraAutoFocusFaceModeEnabled(enabled));
         }
     }
     
@@ -279,8 +660,10 @@ public class RtcEngineManager {
      * 设置摄像头对焦位置
      */
     public void setCameraFocusPositionInPreview(float x, float y) {
-        if (engine != null) {
-            engine.setCameraFocusPositionInPreview(x, y);
+        RtcEngine target = lifecycle.getEngine();
+        if (target != null) {
+            EngineCommandExecutor.getInstance().submit(EngineCommandExecutor.KEY_FOCUS_POSITION,
+                () -> target.setCameraFocusPositionInPreview(x, y));
         }
     }
     
@@ -288,6 +671,7 @@ public class RtcEngineManager {
      * 设置本地视频
      */
     public void setupLocalVideo(io.agora.rtc2.video.VideoCanvas videoCanvas) {
+        RtcEngine engine = lifecycle.getEngine();
         if (engine != null) {
             engine.setupLocalVideo(videoCanvas);
         }
@@ -297,6 +681,7 @@ public class RtcEngineManager {
      * 设置远程视频
      */
     public void setupRemoteVideo(io.agora.rtc2.video.VideoCanvas videoCanvas) {
+        RtcEngine engine = lifecycle.getEngine();
         if (engine != null) {
             engine.setupRemoteVideo(videoCanvas);
         }
@@ -306,8 +691,10 @@ public class RtcEngineManager {
      * 开始预览
      */
     public void startPreview() {
+        RtcEngine engine = lifecycle.getEngine();
         if (engine != null) {
             engine.startPreview();
+            tracer.mark(SessionTracer.Milestone.PREVIEW_STARTED);
         }
     }
     
@@ -315,6 +702,7 @@ public class RtcEngineManager {
      * 停止预览
      */
     public void stopPreview() {
+        RtcEngine engine = lifecycle.getEngine();
         if (engine != null) {
             engine.stopPreview();
         }
@@ -322,8 +710,14 @@ public class RtcEngineManager {
     
     /**
      * 检查功能是否可用
+     * 优先使用按设备型号和SDK版本缓存的结果，探测完成前才直接查询引擎
      */
     public boolean isFeatureAvailableOnDevice(int feature) {
+        Boolean cached = capabilityCache.isFeatureAvailable(feature);
+        if (cached != null) {
+            return cached;
+        }
+        RtcEngine engine = lifecycle.getEngine();
         if (engine != null) {
             return engine.isFeatureAvailableOnDevice(feature);
         }
@@ -5,6 +5,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 import android.view.SurfaceView;
+import android.view.View;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
 
@@ -26,14 +27,22 @@ public class RtcEventHandler extends IRtcEngineEventHandler {
     
     private final Handler handler;
     private final Context context;
-    private final RtcEngine engine;
+    private volatile RtcEngine engine;
     private final EventCallback callback;
+    private final SessionTracer tracer;
+    // Supplies the configured low stream size, defaults apply until bound
+    private volatile RtcEngineManager engineManager;
+    // Remote stream type last requested, only touched on the main thread
+    private int remoteStreamUid = 0;
+    private Constants.VideoStreamType remoteStreamType = null;
     
     public interface EventCallback {
         void onJoinChannelSuccess(int uid);
         void onUserJoined(int uid);
         void onUserOffline(int uid, int reason);
         void onError(int err);
+        void onConnectionStateChanged(int state, int reason);
+        void onLeaveChannel();
         FrameLayout getLocalVideoContainer();
         FrameLayout getRemoteVideoContainer();
     }
@@ -43,6 +52,21 @@ public class RtcEventHandler extends IRtcEngineEventHandler {
         this.engine = engine;
         this.callback = callback;
         this.handler = new Handler(Looper.getMainLooper());
+        this.tracer = SessionTracer.getInstance(context);
+    }
+    
+    /**
+     * Bind the engine once it exists, this handler is registered with it at creation
+     */
+    public void setEngine(RtcEngine engine) {
+        this.engine = engine;
+    }
+    
+    /**
+     * Bind the manager whose low stream config decides the subscribed stream
+     */
+    public void setEngineManager(RtcEngineManager engineManager) {
+        this.engineManager = engineManager;
     }
     
     @Override
@@ -53,19 +77,49 @@ public class RtcEventHandler extends IRtcEngineEventHandler {
         }
     }
     
+    @Override
+    public void onConnectionStateChanged(int state, int reason) {
+        Log.i(TAG, String.format("onConnectionStateChanged state %d reason %d", state, reason));
+        if (callback != null) {
+            callback.onConnectionStateChanged(state, reason);
+        }
+    }
+    
+    @Override
+    public void onLeaveChannel(RtcStats stats) {
+        Log.i(TAG, "onLeaveChannel");
+        if (callback != null) {
+            callback.onLeaveChannel();
+        }
+    }
+    
     @Override
     public void onJoinChannelSuccess(String channel, int uid, int elapsed) {
         Log.i(TAG, String.format("onJoinChannelSuccess channel %s uid %d", channel, uid));
+        tracer.mark(SessionTracer.Milestone.JOIN_SUCCESS);
         
         if (callback != null) {
             callback.onJoinChannelSuccess(uid);
         }
     }
     
+    @Override
+    public void onFirstLocalVideoFrame(Constants.VideoSourceType source, int width, int height, int elapsed) {
+        if (source == Constants.VideoSourceType.VIDEO_SOURCE_CAMERA_PRIMARY) {
+            tracer.mark(SessionTracer.Milestone.FIRST_LOCAL_FRAME);
+        }
+    }
+    
+    @Override
+    public void onFirstRemoteVideoDecoded(int uid, int width, int height, int elapsed) {
+        tracer.mark(SessionTracer.Milestone.FIRST_REMOTE_FRAME);
+    }
+    
     @Override
     public void onUserJoined(int uid, int elapsed) {
         super.onUserJoined(uid, elapsed);
         Log.i(TAG, "onUserJoined->" + uid);
+        tracer.mark(SessionTracer.Milestone.USER_JOINED);
         
         handler.post(() -> {
             if (callback == null) return;
@@ -93,8 +147,15 @@ public class RtcEventHandler extends IRtcEngineEventHandler {
             remoteContainer.addView(surfaceView, params);
             
             // Setup remote video
-            if (engine != null) {
-                engine.setupRemoteVideo(new VideoCanvas(surfaceView, RENDER_MODE_HIDDEN, uid));
+            RtcEngine target = engine;
+            if (target != null) {
+                target.setupRemoteVideo(new VideoCanvas(surfaceView, RENDER_MODE_HIDDEN, uid));
+                
+                // A small window does not need the full resolution stream
+                remoteStreamType = null;
+                updateRemoteStreamType(uid, remoteWidth, remoteHeight);
+                // Pick again once laid out and whenever the view is resized, e.g. swapped to full screen
+                surfaceView.addOnLayoutChangeListener(remoteLayoutListener(uid));
             }
             
             if (callback != null) {
@@ -111,10 +172,48 @@ public class RtcEventHandler extends IRtcEngineEventHandler {
             if (engine != null) {
                 engine.setupRemoteVideo(new VideoCanvas(null, RENDER_MODE_HIDDEN, uid));
             }
+            if (remoteStreamUid == uid) {
+                remoteStreamType = null;
+            }
             
             if (callback != null) {
                 callback.onUserOffline(uid, reason);
             }
         });
     }
+    
+    private View.OnLayoutChangeListener remoteLayoutListener(int uid) {
+        return (v, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> {
+            int width = right - left;
+            int height = bottom - top;
+            if (width != oldRight - oldLeft || height != oldBottom - oldTop) {
+                updateRemoteStreamType(uid, width, height);
+            }
+        };
+    }
+    
+    /**
+     * Subscribe the stream that fits the remote view, skipped when it is already the one requested
+     */
+    private void updateRemoteStreamType(int uid, int viewWidth, int viewHeight) {
+        RtcEngine target = engine;
+        if (target == null || viewWidth <= 0 || viewHeight <= 0) {
+            return;
+        }
+        RtcEngineManager manager = engineManager;
+        Constants.VideoStreamType streamType = manager != null
+                ? manager.selectStreamType(viewWidth, viewHeight)
+                : RtcEngineManager.selectStreamType(viewWidth, viewHeight,
+                        RtcEngineManager.DEFAULT_LOW_STREAM_WIDTH, RtcEngineManager.DEFAULT_LOW_STREAM_HEIGHT);
+        if (uid == remoteStreamUid && streamType == remoteStreamType) {
+            return;
+        }
+        int result = target.setRemoteVideoStreamType(uid, streamType);
+        Log.d(TAG, "Remote " + uid + " in " + viewWidth + "x" + viewHeight + " view subscribes "
+                + streamType + ", result: " + result);
+        if (result == 0) {
+            remoteStreamUid = uid;
+            remoteStreamType = streamType;
+        }
+    }
 }
@@ -0,0 +1,284 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Session Tracer
+ * Responsible for measuring how long a host waits from engine creation and
+ * the Join tap until going live. Milestones are stamped with the monotonic
+ * elapsed realtime clock, the first stamp of each milestone per session
+ * counts. When a session ends its spans are appended to a ring-buffered log
+ * in app storage and folded into per-span histograms, from which p50, p95
+ * and p99 can be dumped at any time.
+ */
+public final class SessionTracer {
+    private static final String TAG = "SessionTracer";
+    private static final String LOG_FILE = "session_trace.log";
+    public static final int LOG_CAPACITY = 100;
+
+    /**
+     * Upper bounds of the span histogram buckets in milliseconds, the last
+     * bucket collects everything slower
+     */
+    public static final long[] SPAN_BUCKETS_MS = {
+        25, 50, 100, 150, 200, 300, 400, 500, 750, 1000, 1500, 2000, 3000, 5000, 10000, Long.MAX_VALUE
+    };
+
+    public enum Milestone {
+        ENGINE_CREATE_START,
+        ENGINE_CREATED,
+        EXTENSION_ENABLED,
+        PREVIEW_STARTED,
+        JOIN_CHANNEL,
+        JOIN_SUCCESS,
+        FIRST_LOCAL_FRAME,
+        FIRST_REMOTE_FRAME,
+        USER_JOINED
+    }
+
+    /**
+     * A measured interval between two milestones of one session
+     */
+    public enum Span {
+        ENGINE_CREATE("engine create", Milestone.ENGINE_CREATE_START, Milestone.ENGINE_CREATED),
+        ENABLE_EXTENSION("enable extension", Milestone.ENGINE_CREATED, Milestone.EXTENSION_ENABLED),
+        CREATE_TO_PREVIEW("create to preview", Milestone.ENGINE_CREATE_START, Milestone.PREVIEW_STARTED),
+        JOIN_TO_JOINED("join to joined", Milestone.JOIN_CHANNEL, Milestone.JOIN_SUCCESS),
+        JOIN_TO_LOCAL_FRAME("join to first local frame", Milestone.JOIN_CHANNEL, Milestone.FIRST_LOCAL_FRAME),
+        JOIN_TO_REMOTE_FRAME("join to first remote frame", Milestone.JOIN_CHANNEL, Milestone.FIRST_REMOTE_FRAME),
+        JOIN_TO_USER_JOINED("join to remote user", Milestone.JOIN_CHANNEL, Milestone.USER_JOINED);
+
+        public final String label;
+        final Milestone from;
+        final Milestone to;
+
+        Span(String label, Milestone from, Milestone to) {
+            this.label = label;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static volatile SessionTracer instance;
+
+    private final File logFile;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Session log lines, only touched on the writer thread
+    private final ArrayDeque<String> ring = new ArrayDeque<>(LOG_CAPACITY);
+
+    // Stamps of the open session in elapsed realtime nanos, 0 when not reached
+    private final long[] stamps = new long[Milestone.values().length];
+    private final long[][] histograms = new long[Span.values().length][SPAN_BUCKETS_MS.length];
+    private final long[] spanCounts = new long[Span.values().length];
+    private final long[] spanMaxMs = new long[Span.values().length];
+    private long sessionCount = 0;
+
+    SessionTracer(File logFile) {
+        this.logFile = logFile;
+        writer.execute(this::load);
+    }
+
+    /**
+     * Get the process-wide tracer
+     */
+    public static SessionTracer getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (SessionTracer.class) {
+                if (instance == null) {
+                    instance = new SessionTracer(new File(context.getApplicationContext().getFilesDir(), LOG_FILE));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Stamp a milestone now, callable from any thread
+     */
+    public void mark(Milestone milestone) {
+        mark(milestone, SystemClock.elapsedRealtimeNanos());
+    }
+
+    synchronized void mark(Milestone milestone, long nanos) {
+        // Joining again starts a new session, the engine milestones only belong to the first one
+        if (milestone == Milestone.JOIN_CHANNEL && stamps[Milestone.JOIN_CHANNEL.ordinal()] != 0
+                || milestone == Milestone.ENGINE_CREATE_START && hasStamps()) {
+            endSession();
+        }
+        if (stamps[milestone.ordinal()] == 0) {
+            stamps[milestone.ordinal()] = nanos;
+        }
+    }
+
+    private boolean hasStamps() {
+        for (long stamp : stamps) {
+            if (stamp != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Close the open session, e.g. on leaving the channel. Its spans go to
+     * the log and the histograms; a session without spans is dropped.
+     */
+    public synchronized void endSession() {
+        StringBuilder line = new StringBuilder(160);
+        int spans = 0;
+        for (Span span : Span.values()) {
+            long from = stamps[span.from.ordinal()];
+            long to = stamps[span.to.ordinal()];
+            if (from == 0 || to == 0 || to < from) {
+                continue;
+            }
+            long ms = (to - from) / 1000000;
+            record(span, ms);
+            line.append(spans == 0 ? "" : ", ").append(span.label).append('=').append(ms).append("ms");
+            spans++;
+        }
+        Arrays.fill(stamps, 0);
+        if (spans == 0) {
+            return;
+        }
+        sessionCount++;
+        String entry = System.currentTimeMillis() + " " + line;
+        Log.i(TAG, "Session " + sessionCount + ": " + line);
+        writer.execute(() -> append(entry));
+    }
+
+    private void record(Span span, long ms) {
+        int bucket = 0;
+        while (ms > SPAN_BUCKETS_MS[bucket]) {
+            bucket++;
+        }
+        histograms[span.ordinal()][bucket]++;
+        spanCounts[span.ordinal()]++;
+        spanMaxMs[span.ordinal()] = Math.max(spanMaxMs[span.ordinal()], ms);
+    }
+
+    /**
+     * Get the span length below which the given fraction of sessions fell, as
+     * a bucket upper bound in milliseconds, 0 without samples
+     */
+    public synchronized long getPercentileMillis(Span span, double fraction) {
+        long[] histogram = histograms[span.ordinal()];
+        long target = (long) Math.ceil(spanCounts[span.ordinal()] * fraction);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target && seen > 0) {
+                // Never above the slowest span seen, which also bounds the open-ended bucket
+                return Math.min(SPAN_BUCKETS_MS[i], spanMaxMs[span.ordinal()]);
+            }
+        }
+        return 0;
+    }
+
+    public synchronized long getSpanCount(Span span) {
+        return spanCounts[span.ordinal()];
+    }
+
+    /**
+     * Write p50, p95 and p99 of every span to logcat and return the table
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder(512);
+        synchronized (this) {
+            builder.append("sessions=").append(sessionCount);
+            for (Span span : Span.values()) {
+                long count = spanCounts[span.ordinal()];
+                builder.append('\n').append(span.label).append(": n=").append(count);
+                if (count > 0) {
+                    builder.append(" p50<=").append(getPercentileMillis(span, 0.50))
+                            .append("ms p95<=").append(getPercentileMillis(span, 0.95))
+                            .append("ms p99<=").append(getPercentileMillis(span, 0.99))
+                            .append("ms max=").append(spanMaxMs[span.ordinal()]).append("ms");
+                }
+            }
+        }
+        String table = builder.toString();
+        Log.i(TAG, table);
+        return table;
+    }
+
+    /**
+     * Get the logged sessions, oldest first, including earlier runs of the app
+     */
+    public List<String> getLog() {
+        try {
+            return writer.submit(() -> new ArrayList<>(ring)).get();
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading session log: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private void load() {
+        if (!logFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (ring.size() == LOG_CAPACITY) {
+                    ring.removeFirst();
+                }
+                ring.addLast(line);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading session log: " + e.getMessage());
+        }
+    }
+
+    private void append(String entry) {
+        if (ring.size() == LOG_CAPACITY) {
+            ring.removeFirst();
+        }
+        ring.addLast(entry);
+        // The log is small, rewriting it keeps the file a bounded ring
+        File tmpFile = new File(logFile.getPath() + ".tmp");
+        try {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(tmpFile), StandardCharsets.UTF_8))) {
+                for (String line : ring) {
+                    out.write(line);
+                    out.write('\n');
+                }
+            }
+            if (!tmpFile.renameTo(logFile)) {
+                tmpFile.delete();
+                Log.e(TAG, "Failed to replace session log");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing session log: " + e.getMessage());
+            tmpFile.delete();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Binary LUT File
+ * Compact precompiled LUT format, loaded through a memory-mapped {@link FileChannel}.
+ * <p>
+ * Layout (little endian):
+ * <pre>
+ * int     magic        'ALUT'
+ * int     version
+ * int     size         grid points per axis
+ * int     entryCount   size^3
+ * float[3] domainMin
+ * float[3] domainMax
+ * int     titleLength  bytes of UTF-8 title
+ * byte[]  title        zero padded up to HEADER_SIZE
+ * float[] table        entryCount * 3 packed RGB values in .cube order
+ * </pre>
+ */
+public final class BinaryLutFile {
+    public static final String EXTENSION = ".alut";
+
+    private static final int MAGIC = 0x54554C41; // "ALUT" little endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 128;
+    private static final int FIXED_HEADER_SIZE = 44;
+    private static final int MAX_TITLE_BYTES = HEADER_SIZE - FIXED_HEADER_SIZE;
+    private static final int PATH_HASH_BYTES = 8;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private BinaryLutFile() {
+    }
+
+    /**
+     * Write a LUT to disk. The file is written to a temporary sibling and renamed
+     * so a reader never maps a half-written table.
+     */
+    public static void write(CubeLut lut, File dest) throws IOException {
+        int tableBytes = lut.getTable().length * 4;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_SIZE + tableBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] title = lut.getTitle() != null ? lut.getTitle().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int titleLength = Math.min(title.length, MAX_TITLE_BYTES);
+        float[] domainMin = lut.getDomainMin();
+        float[] domainMax = lut.getDomainMax();
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(lut.getSize());
+        buffer.putInt(lut.getEntryCount());
+        for (int i = 0; i < 3; i++) {
+            buffer.putFloat(domainMin[i]);
+        }
+        for (int i = 0; i < 3; i++) {
+            buffer.putFloat(domainMax[i]);
+        }
+        buffer.putInt(titleLength);
+        buffer.put(title, 0, titleLength);
+        buffer.position(HEADER_SIZE);
+        buffer.asFloatBuffer().put(lut.getTable());
+        buffer.position(0);
+
+        File tmp = new File(dest.getPath() + ".tmp");
+        try (RandomAccessFile file = new RandomAccessFile(tmp, "rw");
+             FileChannel channel = file.getChannel()) {
+            file.setLength(0);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        if (!tmp.renameTo(dest)) {
+            tmp.delete();
+            throw new IOException("Failed to move compiled LUT to " + dest);
+        }
+    }
+
+    /**
+     * Load a LUT by memory-mapping the file and bulk copying the grid
+     */
+    public static CubeLut read(File src) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(src, "r");
+             FileChannel channel = file.getChannel()) {
+            long length = channel.size();
+            if (length < HEADER_SIZE) {
+                throw new IOException("Compiled LUT too short: " + src);
+            }
+
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (mapped.getInt() != MAGIC) {
+                throw new IOException("Not a compiled LUT: " + src);
+            }
+            int version = mapped.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported compiled LUT version " + version + ": " + src);
+            }
+            int size = mapped.getInt();
+            int entryCount = mapped.getInt();
+            if (size < 2 || entryCount != size * size * size
+                    || length != HEADER_SIZE + (long) entryCount * 3 * 4) {
+                throw new IOException("Corrupt compiled LUT header: " + src);
+            }
+
+            float[] domainMin = new float[3];
+            float[] domainMax = new float[3];
+            for (int i = 0; i < 3; i++) {
+                domainMin[i] = mapped.getFloat();
+            }
+            for (int i = 0; i < 3; i++) {
+                domainMax[i] = mapped.getFloat();
+            }
+
+            int titleLength = mapped.getInt();
+            String title = null;
+            if (titleLength > 0 && titleLength <= MAX_TITLE_BYTES) {
+                byte[] titleBytes = new byte[titleLength];
+                mapped.get(titleBytes);
+                title = new String(titleBytes, StandardCharsets.UTF_8);
+            }
+
+            float[] table = new float[entryCount * 3];
+            mapped.position(HEADER_SIZE);
+            mapped.asFloatBuffer().get(table);
+            return new CubeLut(title, size, domainMin, domainMax, table);
+        }
+    }
+
+    /**
+     * Load the compiled form of a .cube file, compiling it first when the
+     * compiled copy is missing or older than the source
+     */
+    public static CubeLut loadOrCompile(File cubeFile, File compiled) throws IOException {
+        if (compiled.exists() && compiled.lastModified() >= cubeFile.lastModified()) {
+            try {
+                return read(compiled);
+            } catch (IOException e) {
+                // Fall through and rebuild a corrupt or outdated file
+                compiled.delete();
+            }
+        }
+        CubeLut lut = CubeParser.parse(cubeFile);
+        write(lut, compiled);
+        return lut;
+    }
+
+    /**
+     * Get the cache key of a source file: its name without extension plus a
+     * hash of its absolute path. Sources with the same name in different
+     * directories, e.g. a bundled cube and one picked from storage, never
+     * share a compiled or resampled copy.
+     */
+    public static String sourceKey(File source) {
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] hash = digest.digest(source.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        char[] chars = new char[PATH_HASH_BYTES * 2];
+        for (int i = 0; i < PATH_HASH_BYTES; i++) {
+            chars[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return name + "_" + new String(chars);
+    }
+
+    /**
+     * Get the name of the compiled file for a source file
+     */
+    public static String compiledName(File source) {
+        return sourceKey(source) + EXTENSION;
+    }
+}
@@ -0,0 +1,202 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Composite LUT Cache
+ * Bounded LRU of pre-baked LUT chains keyed by (chain, quantized strength).
+ * Each entry keeps the composite grid in memory and as a .cube file in the
+ * cache directory, the file is deleted when the entry is evicted. Baking runs
+ * outside the cache lock, so lookups from the UI thread never wait for a bake
+ * running on a background thread.
+ */
+public final class CompositeLutCache {
+    /**
+     * Strength is quantized to 1/STRENGTH_STEPS so slider drags reuse entries
+     */
+    public static final int STRENGTH_STEPS = 20;
+
+    private static final String FILE_PREFIX = "composite_";
+    private static final String FILE_SUFFIX = ".cube";
+
+    /**
+     * Loader resolving a chain element path to its parsed LUT
+     */
+    public interface LutLoader {
+        CubeLut load(String path) throws IOException;
+    }
+
+    /**
+     * A cached composite
+     */
+    public static final class Composite {
+        private final File file;
+        private final CubeLut lut;
+
+        Composite(File file, CubeLut lut) {
+            this.file = file;
+            this.lut = lut;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public CubeLut getLut() {
+            return lut;
+        }
+    }
+
+    private final File directory;
+    private final int maxGridSize;
+    private final LinkedHashMap<String, Composite> entries;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private int nextFileId;
+
+    /**
+     * @param maxGridSize composites are baked at the largest chain member size, capped to this
+     */
+    public CompositeLutCache(File directory, final int maxEntries, int maxGridSize) {
+        this.directory = directory;
+        this.maxGridSize = maxGridSize;
+        this.entries = new LinkedHashMap<String, Composite>(maxEntries + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Composite> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                eldest.getValue().getFile().delete();
+                evictionCount++;
+                return true;
+            }
+        };
+        deleteStaleFiles();
+    }
+
+    /**
+     * Get the cached composite for a chain and strength, null on a miss.
+     * Never bakes, cheap enough for the UI thread.
+     */
+    public synchronized Composite get(List<String> chain, float strength) {
+        Composite entry = entries.get(buildKey(chain, quantize(strength)));
+        if (entry != null) {
+            hitCount++;
+        }
+        return entry;
+    }
+
+    /**
+     * Get the composite for a chain and strength, baking and writing it on a
+     * miss. Blocks for the bake, call it off the UI thread.
+     */
+    public Composite getOrCreate(List<String> chain, float strength, LutLoader loader) throws IOException {
+        Composite entry = get(chain, strength);
+        if (entry != null) {
+            return entry;
+        }
+        int level = quantize(strength);
+        String key = buildKey(chain, level);
+
+        List<CubeLut> luts = new ArrayList<>(chain.size());
+        for (String path : chain) {
+            CubeLut lut = loader.load(path);
+            if (lut == null) {
+                throw new IOException("Cannot load LUT in chain: " + path);
+            }
+            luts.add(lut);
+        }
+        int size = 2;
+        for (CubeLut lut : luts) {
+            size = Math.max(size, lut.getSize());
+        }
+        CubeLut composite = LutCompositor.compose(luts, level / (float) STRENGTH_STEPS, Math.min(size, maxGridSize));
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        File file = new File(directory, FILE_PREFIX + nextFileId() + FILE_SUFFIX);
+        CubeWriter.write(composite, file);
+
+        synchronized (this) {
+            missCount++;
+            Composite existing = entries.get(key);
+            if (existing != null) {
+                // Baked by another thread meanwhile, keep the entry already handed out
+                file.delete();
+                return existing;
+            }
+            entry = new Composite(file, composite);
+            entries.put(key, entry);
+            return entry;
+        }
+    }
+
+    private synchronized int nextFileId() {
+        return nextFileId++;
+    }
+
+    /**
+     * Quantize a strength in [0, 1] to a cache level
+     */
+    public static int quantize(float strength) {
+        return Math.round(Math.max(0f, Math.min(1f, strength)) * STRENGTH_STEPS);
+    }
+
+    private static String buildKey(List<String> chain, int level) {
+        StringBuilder key = new StringBuilder();
+        for (String path : chain) {
+            key.append(path).append('|');
+        }
+        return key.append('@').append(level).toString();
+    }
+
+    /**
+     * Drop all entries and their files, counters are kept
+     */
+    public synchronized void clear() {
+        for (Composite entry : entries.values()) {
+            entry.getFile().delete();
+        }
+        entries.clear();
+    }
+
+    private void deleteStaleFiles() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().startsWith(FILE_PREFIX)) {
+                file.delete();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CompositeLutCache{size=" + entries.size() + ", hits=" + hitCount
+                + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+}
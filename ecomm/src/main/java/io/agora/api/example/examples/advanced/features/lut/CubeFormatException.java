@@ -0,0 +1,25 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import java.io.IOException;
+
+/**
+ * Cube Format Exception
+ * Thrown when a .cube file is malformed or fails grid validation
+ */
+public class CubeFormatException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+
+    public CubeFormatException(String message, int line) {
+        super(line > 0 ? message + " at line " + line : message);
+        this.line = line;
+    }
+
+    /**
+     * Get the 1-based line of the error, 0 when it applies to the whole file
+     */
+    public int getLine() {
+        return line;
+    }
+}
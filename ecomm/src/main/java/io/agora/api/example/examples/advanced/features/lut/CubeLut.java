@@ -0,0 +1,132 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+/**
+ * Cube LUT
+ * In-memory representation of a parsed .cube color lookup table.
+ * The table is stored as packed RGB triples in .cube order (red varies fastest).
+ */
+public final class CubeLut {
+    private final String title;
+    private final int size;
+    private final float[] domainMin;
+    private final float[] domainMax;
+    private final float[] table;
+
+    public CubeLut(String title, int size, float[] domainMin, float[] domainMax, float[] table) {
+        if (size < 2) {
+            throw new IllegalArgumentException("LUT size must be at least 2: " + size);
+        }
+        if (table.length != size * size * size * 3) {
+            throw new IllegalArgumentException("Table length " + table.length + " does not match size " + size);
+        }
+        this.title = title;
+        this.size = size;
+        this.domainMin = domainMin.clone();
+        this.domainMax = domainMax.clone();
+        this.table = table;
+    }
+
+    /**
+     * Get LUT title, may be null
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Get grid size per axis
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get number of grid points
+     */
+    public int getEntryCount() {
+        return size * size * size;
+    }
+
+    public float[] getDomainMin() {
+        return domainMin.clone();
+    }
+
+    public float[] getDomainMax() {
+        return domainMax.clone();
+    }
+
+    /**
+     * Get packed RGB table, shared with this instance and must not be modified
+     */
+    public float[] getTable() {
+        return table;
+    }
+
+    /**
+     * Get one component of the grid point at (r, g, b)
+     */
+    public float get(int r, int g, int b, int channel) {
+        return table[((b * size + g) * size + r) * 3 + channel];
+    }
+
+    /**
+     * Sample the LUT at an input color with tetrahedral interpolation.
+     * Inputs are in domain units and clamped to the domain, the RGB result is written to out.
+     */
+    public void sample(float r, float g, float b, float[] out) {
+        float x = toGrid(r, 0);
+        float y = toGrid(g, 1);
+        float z = toGrid(b, 2);
+        int ri = Math.min((int) x, size - 2);
+        int gi = Math.min((int) y, size - 2);
+        int bi = Math.min((int) z, size - 2);
+        float fr = x - ri;
+        float fg = y - gi;
+        float fb = z - bi;
+
+        int dr = 3;
+        int dg = size * 3;
+        int db = size * size * 3;
+        int base = ((bi * size + gi) * size + ri) * 3;
+
+        // Walk from the (0,0,0) corner to the (1,1,1) corner along the
+        // edges of the tetrahedron containing the point, largest fraction first
+        float f1, f2, f3;
+        int a, c;
+        if (fr >= fg) {
+            if (fg >= fb) {
+                f1 = fr; f2 = fg; f3 = fb; a = dr; c = dr + dg;
+            } else if (fr >= fb) {
+                f1 = fr; f2 = fb; f3 = fg; a = dr; c = dr + db;
+            } else {
+                f1 = fb; f2 = fr; f3 = fg; a = db; c = dr + db;
+            }
+        } else {
+            if (fr >= fb) {
+                f1 = fg; f2 = fr; f3 = fb; a = dg; c = dr + dg;
+            } else if (fg >= fb) {
+                f1 = fg; f2 = fb; f3 = fr; a = dg; c = dg + db;
+            } else {
+                f1 = fb; f2 = fg; f3 = fr; a = db; c = dg + db;
+            }
+        }
+        int d = dr + dg + db;
+        for (int channel = 0; channel < 3; channel++) {
+            int i = base + channel;
+            float c0 = table[i];
+            float c1 = table[i + a];
+            float c2 = table[i + c];
+            float c3 = table[i + d];
+            out[channel] = c0 + f1 * (c1 - c0) + f2 * (c2 - c1) + f3 * (c3 - c2);
+        }
+    }
+
+    private float toGrid(float value, int channel) {
+        float t = (value - domainMin[channel]) / (domainMax[channel] - domainMin[channel]);
+        float x = t * (size - 1);
+        if (!(x > 0f)) {
+            return 0f;
+        }
+        return Math.min(x, size - 1);
+    }
+}
@@ -0,0 +1,423 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cube Parser
+ * Streaming parser and validator for Adobe/Resolve .cube text files.
+ * <p>
+ * Bytes are tokenized straight out of a fixed read buffer and numbers are
+ * decoded in place, so parsing allocates nothing per line: only the read
+ * buffer, the output table and the title string.
+ * <p>
+ * Supported keywords: TITLE, LUT_1D_SIZE, LUT_3D_SIZE, DOMAIN_MIN, DOMAIN_MAX,
+ * LUT_1D_INPUT_RANGE and LUT_3D_INPUT_RANGE. Comments start with '#'; other
+ * keywords are skipped. The grid is validated while it is read: entry count,
+ * NaN/Infinity and implausibly large values are rejected with a
+ * {@link CubeFormatException}. The domain keywords describe the input
+ * coordinates, output values may leave [0, 1] as creative and wide-gamut
+ * cubes do; consumers clamp them. A 1D LUT is expanded into an equivalent 3D
+ * grid.
+ */
+public final class CubeParser {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int EOF = -1;
+    private static final int MAX_KEYWORD_LENGTH = 32;
+    // 129^3 RGB floats are already 25 MB, larger grids are not produced by real grading tools
+    private static final int MAX_3D_SIZE = 129;
+    private static final int MAX_1D_SIZE = 65536;
+    private static final int EXPANDED_1D_SIZE = 33;
+    private static final int MAX_SIGNIFICANT_DIGITS = 18;
+    // Outputs may overshoot [0, 1], even scene-referred cubes stay far below this
+    private static final float MAX_OUTPUT_MAGNITUDE = 1000f;
+
+    private static final byte[] KEYWORD_TITLE = ascii("TITLE");
+    private static final byte[] KEYWORD_LUT_1D_SIZE = ascii("LUT_1D_SIZE");
+    private static final byte[] KEYWORD_LUT_3D_SIZE = ascii("LUT_3D_SIZE");
+    private static final byte[] KEYWORD_DOMAIN_MIN = ascii("DOMAIN_MIN");
+    private static final byte[] KEYWORD_DOMAIN_MAX = ascii("DOMAIN_MAX");
+    private static final byte[] KEYWORD_LUT_1D_INPUT_RANGE = ascii("LUT_1D_INPUT_RANGE");
+    private static final byte[] KEYWORD_LUT_3D_INPUT_RANGE = ascii("LUT_3D_INPUT_RANGE");
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] keyword = new byte[MAX_KEYWORD_LENGTH];
+    private int keywordLength;
+    private int position;
+    private int limit;
+    private int line = 1;
+
+    private String title;
+    private int size1d;
+    private int size3d;
+    private final float[] domainMin = {0f, 0f, 0f};
+    private final float[] domainMax = {1f, 1f, 1f};
+    private float[] table;
+    private int count;
+
+    private CubeParser(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Parse and validate a .cube file from disk
+     */
+    public static CubeLut parse(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return parse(in);
+        }
+    }
+
+    /**
+     * Parse and validate a .cube stream, the stream is not closed
+     */
+    public static CubeLut parse(InputStream in) throws IOException {
+        return new CubeParser(in).parse();
+    }
+
+    private CubeLut parse() throws IOException {
+        while (true) {
+            skipBlanks();
+            int c = peek();
+            if (c == EOF) {
+                break;
+            } else if (c == '\n' || c == '\r') {
+                skipNewline(c);
+            } else if (c == '#') {
+                skipLine();
+            } else if (isKeywordStart(c) && table == null) {
+                readKeyword();
+                handleKeyword();
+            } else {
+                readGridRow();
+            }
+        }
+        return finish();
+    }
+
+    private void handleKeyword() throws IOException {
+        if (matches(KEYWORD_TITLE)) {
+            title = readTitle();
+        } else if (matches(KEYWORD_LUT_3D_SIZE)) {
+            size3d = readSize(MAX_3D_SIZE);
+        } else if (matches(KEYWORD_LUT_1D_SIZE)) {
+            size1d = readSize(MAX_1D_SIZE);
+        } else if (matches(KEYWORD_DOMAIN_MIN)) {
+            readTriple(domainMin);
+        } else if (matches(KEYWORD_DOMAIN_MAX)) {
+            readTriple(domainMax);
+        } else if (matches(KEYWORD_LUT_1D_INPUT_RANGE) || matches(KEYWORD_LUT_3D_INPUT_RANGE)) {
+            float min = readNumber();
+            float max = readNumber();
+            for (int i = 0; i < 3; i++) {
+                domainMin[i] = min;
+                domainMax[i] = max;
+            }
+        } else {
+            // Unknown metadata keyword, ignore the rest of the line
+            skipLine();
+            return;
+        }
+        expectEndOfLine();
+    }
+
+    private void readGridRow() throws IOException {
+        if (table == null) {
+            startGrid();
+        }
+        if (count >= table.length) {
+            throw error("Too many grid points, expected " + table.length / 3);
+        }
+        for (int channel = 0; channel < 3; channel++) {
+            float value = readNumber();
+            if (Float.isNaN(value) || Float.isInfinite(value)) {
+                throw error("Non-finite grid value");
+            }
+            if (Math.abs(value) > MAX_OUTPUT_MAGNITUDE) {
+                throw error("Grid value " + value + " out of range");
+            }
+            table[count++] = value;
+        }
+        expectEndOfLine();
+    }
+
+    private void startGrid() throws IOException {
+        if (size1d > 0 && size3d > 0) {
+            throw error("Combined 1D shaper and 3D LUT is not supported");
+        }
+        if (size3d == 0 && size1d == 0) {
+            throw error("Grid data before LUT_3D_SIZE or LUT_1D_SIZE");
+        }
+        for (int i = 0; i < 3; i++) {
+            if (!(domainMin[i] < domainMax[i])) {
+                throw error("DOMAIN_MIN must be below DOMAIN_MAX");
+            }
+        }
+        table = new float[size3d > 0 ? size3d * size3d * size3d * 3 : size1d * 3];
+    }
+
+    private CubeLut finish() throws IOException {
+        if (table == null) {
+            throw new CubeFormatException("No grid data", 0);
+        }
+        if (count != table.length) {
+            throw new CubeFormatException("Expected " + table.length / 3 + " grid points but found " + count / 3, 0);
+        }
+        if (size3d > 0) {
+            return new CubeLut(title, size3d, domainMin, domainMax, table);
+        }
+        return new CubeLut(title, EXPANDED_1D_SIZE, domainMin, domainMax, expand1d(table, size1d));
+    }
+
+    /**
+     * A 1D LUT maps each channel independently, which is exactly a separable 3D grid
+     */
+    private static float[] expand1d(float[] curve, int curveSize) {
+        int n = EXPANDED_1D_SIZE;
+        float[] sampled = new float[n * 3];
+        for (int i = 0; i < n; i++) {
+            float x = (float) i * (curveSize - 1) / (n - 1);
+            int i0 = Math.min((int) x, curveSize - 2);
+            float t = x - i0;
+            for (int channel = 0; channel < 3; channel++) {
+                float a = curve[i0 * 3 + channel];
+                float b = curve[(i0 + 1) * 3 + channel];
+                sampled[i * 3 + channel] = a + (b - a) * t;
+            }
+        }
+
+        float[] grid = new float[n * n * n * 3];
+        int index = 0;
+        for (int b = 0; b < n; b++) {
+            for (int g = 0; g < n; g++) {
+                for (int r = 0; r < n; r++) {
+                    grid[index++] = sampled[r * 3];
+                    grid[index++] = sampled[g * 3 + 1];
+                    grid[index++] = sampled[b * 3 + 2];
+                }
+            }
+        }
+        return grid;
+    }
+
+    // ---- Tokenizer ----
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    private void skipBlanks() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t') {
+            position++;
+            c = peek();
+        }
+    }
+
+    private void skipNewline(int c) throws IOException {
+        position++;
+        if (c == '\r' && peek() == '\n') {
+            position++;
+        }
+        line++;
+    }
+
+    private void skipLine() throws IOException {
+        int c = peek();
+        while (c != '\n' && c != '\r' && c != EOF) {
+            position++;
+            c = peek();
+        }
+    }
+
+    private void expectEndOfLine() throws IOException {
+        skipBlanks();
+        int c = peek();
+        if (c == '#') {
+            skipLine();
+        } else if (c != '\n' && c != '\r' && c != EOF) {
+            throw error("Unexpected trailing characters");
+        }
+    }
+
+    private static boolean isKeywordStart(int c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private void readKeyword() throws IOException {
+        keywordLength = 0;
+        int c = peek();
+        while (isKeywordStart(c) || c == '_' || (c >= '0' && c <= '9')) {
+            if (keywordLength < MAX_KEYWORD_LENGTH) {
+                keyword[keywordLength] = (byte) c;
+            }
+            keywordLength++;
+            position++;
+            c = peek();
+        }
+    }
+
+    private boolean matches(byte[] expected) {
+        if (keywordLength != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < keywordLength; i++) {
+            if (keyword[i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readTitle() throws IOException {
+        skipBlanks();
+        boolean quoted = peek() == '"';
+        if (quoted) {
+            position++;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int c = peek();
+        while (c != '\n' && c != '\r' && c != EOF && !(quoted && c == '"')) {
+            bytes.write(c);
+            position++;
+            c = peek();
+        }
+        if (quoted) {
+            if (c != '"') {
+                throw error("Unterminated TITLE");
+            }
+            position++;
+        }
+        String decoded = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        return quoted ? decoded : decoded.trim();
+    }
+
+    private int readSize(int max) throws IOException {
+        float value = readNumber();
+        int size = (int) value;
+        if (size != value || size < 2 || size > max) {
+            throw error("Invalid LUT size " + value);
+        }
+        return size;
+    }
+
+    private void readTriple(float[] out) throws IOException {
+        for (int i = 0; i < 3; i++) {
+            out[i] = readNumber();
+        }
+    }
+
+    /**
+     * Decode a decimal number in place. Up to 18 significant digits are kept in a
+     * long mantissa and scaled by an exact power of ten, which matches
+     * {@link Float#parseFloat} for the 6-9 digit values found in .cube files.
+     */
+    private float readNumber() throws IOException {
+        skipBlanks();
+        int c = peek();
+        boolean negative = false;
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            position++;
+            c = peek();
+        }
+
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        while (c >= '0' && c <= '9') {
+            if (significant < MAX_SIGNIFICANT_DIGITS) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    significant++;
+                }
+            } else {
+                exponent++;
+            }
+            hasDigits = true;
+            position++;
+            c = peek();
+        }
+        if (c == '.') {
+            position++;
+            c = peek();
+            while (c >= '0' && c <= '9') {
+                if (significant < MAX_SIGNIFICANT_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) {
+                        significant++;
+                    }
+                    exponent--;
+                }
+                hasDigits = true;
+                position++;
+                c = peek();
+            }
+        }
+        if (!hasDigits) {
+            throw error(c == 'n' || c == 'N' || c == 'i' || c == 'I' ? "Non-finite grid value" : "Expected a number");
+        }
+        if (c == 'e' || c == 'E') {
+            position++;
+            c = peek();
+            boolean negativeExponent = false;
+            if (c == '-' || c == '+') {
+                negativeExponent = c == '-';
+                position++;
+                c = peek();
+            }
+            if (c < '0' || c > '9') {
+                throw error("Malformed exponent");
+            }
+            int value = 0;
+            while (c >= '0' && c <= '9') {
+                if (value < 10000) {
+                    value = value * 10 + (c - '0');
+                }
+                position++;
+                c = peek();
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (c != ' ' && c != '\t' && c != '\n' && c != '\r' && c != '#' && c != EOF) {
+            throw error("Malformed number");
+        }
+
+        double result = mantissa;
+        if (exponent < 0) {
+            result = -exponent < POWERS_OF_TEN.length
+                    ? result / POWERS_OF_TEN[-exponent] : result / Math.pow(10, -exponent);
+        } else if (exponent > 0) {
+            result = exponent < POWERS_OF_TEN.length
+                    ? result * POWERS_OF_TEN[exponent] : result * Math.pow(10, exponent);
+        }
+        return (float) (negative ? -result : result);
+    }
+
+    private CubeFormatException error(String message) {
+        return new CubeFormatException(message, line);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
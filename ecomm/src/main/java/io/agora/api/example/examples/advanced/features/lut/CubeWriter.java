@@ -0,0 +1,98 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cube Writer
+ * Writes a {@link CubeLut} as a .cube text file for consumers that only accept
+ * a cube path, such as the clear_vision filter extension.
+ * <p>
+ * Values are formatted with six decimals through a reused byte buffer rather
+ * than String.format, so a 65^3 grid writes in a few milliseconds.
+ */
+public final class CubeWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int DECIMALS = 6;
+    private static final int SCALE = 1000000;
+    // Worst case row: three signed 19-digit values with six decimals, separators and newline
+    private static final int MAX_ROW_BYTES = 96;
+
+    private CubeWriter() {
+    }
+
+    /**
+     * Write a LUT through a temporary sibling file and rename it into place
+     */
+    public static void write(CubeLut lut, File dest) throws IOException {
+        File tmp = new File(dest.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            write(lut, out);
+        }
+        if (!tmp.renameTo(dest)) {
+            tmp.delete();
+            throw new IOException("Failed to move written cube to " + dest);
+        }
+    }
+
+    /**
+     * Write a LUT to a stream, the stream is not closed
+     */
+    public static void write(CubeLut lut, OutputStream out) throws IOException {
+        StringBuilder header = new StringBuilder();
+        if (lut.getTitle() != null) {
+            header.append("TITLE \"").append(lut.getTitle().replace('"', '\'')).append("\"\n");
+        }
+        header.append("LUT_3D_SIZE ").append(lut.getSize()).append('\n');
+        float[] domainMin = lut.getDomainMin();
+        float[] domainMax = lut.getDomainMax();
+        header.append("DOMAIN_MIN ").append(domainMin[0]).append(' ').append(domainMin[1]).append(' ').append(domainMin[2]).append('\n');
+        header.append("DOMAIN_MAX ").append(domainMax[0]).append(' ').append(domainMax[1]).append(' ').append(domainMax[2]).append('\n');
+        header.append('\n');
+        out.write(header.toString().getBytes(StandardCharsets.UTF_8));
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int position = 0;
+        float[] table = lut.getTable();
+        for (int i = 0; i < table.length; i += 3) {
+            if (position > BUFFER_SIZE - MAX_ROW_BYTES) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+            position = appendValue(buffer, position, table[i]);
+            buffer[position++] = ' ';
+            position = appendValue(buffer, position, table[i + 1]);
+            buffer[position++] = ' ';
+            position = appendValue(buffer, position, table[i + 2]);
+            buffer[position++] = '\n';
+        }
+        out.write(buffer, 0, position);
+    }
+
+    private static int appendValue(byte[] buffer, int position, float value) {
+        long scaled = Math.round((double) value * SCALE);
+        if (scaled < 0) {
+            buffer[position++] = '-';
+            scaled = -scaled;
+        }
+        position = appendDigits(buffer, position, scaled / SCALE, 1);
+        buffer[position++] = '.';
+        return appendDigits(buffer, position, scaled % SCALE, DECIMALS);
+    }
+
+    private static int appendDigits(byte[] buffer, int position, long value, int minDigits) {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + digits;
+    }
+}
@@ -0,0 +1,329 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Filter Catalog
+ * Persistent index of the installed filters with name, content hash, grid
+ * size, source and last-used time. The index file is read once; afterwards
+ * every change publishes a new immutable snapshot and queues a background
+ * write of the index, so neither lookups by name, path or recency nor
+ * changes touch the filesystem on the caller's thread.
+ */
+public final class FilterCatalog {
+    private static final String INDEX_HEADER = "filter-catalog 1";
+    private static final char SEPARATOR = '\t';
+    private static final long INDEX_WRITE_DELAY_MS = 1000;
+
+    /**
+     * Where a filter came from
+     */
+    public enum Source {
+        ASSET,
+        IMPORTED
+    }
+
+    /**
+     * An installed filter, immutable
+     */
+    public static final class Entry {
+        private final String name;
+        private final String hash;
+        private final int gridSize;
+        private final Source source;
+        private final long lastUsed;
+        private final File file;
+
+        public Entry(String name, String hash, int gridSize, Source source, long lastUsed, File file) {
+            this.name = name;
+            this.hash = hash;
+            this.gridSize = gridSize;
+            this.source = source;
+            this.lastUsed = lastUsed;
+            this.file = file;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the content hash, null if the file could not be hashed
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        public int getGridSize() {
+            return gridSize;
+        }
+
+        public Source getSource() {
+            return source;
+        }
+
+        /**
+         * Get the time the filter was last applied, 0 if never
+         */
+        public long getLastUsed() {
+            return lastUsed;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getPath() {
+            return file.getAbsolutePath();
+        }
+
+        Entry withLastUsed(long time) {
+            return new Entry(name, hash, gridSize, source, time, file);
+        }
+
+        @Override
+        public String toString() {
+            String shortHash = hash != null ? hash.substring(0, Math.min(8, hash.length())) : "no hash";
+            return name + " (" + source + ", " + gridSize + "^3, " + shortHash + ")";
+        }
+    }
+
+    /**
+     * Immutable view of the catalog with prebuilt lookup tables
+     */
+    private static final class Snapshot {
+        final List<Entry> entries;
+        final List<Entry> recent;
+        final Map<String, Entry> byPath;
+        final Map<String, Entry> byName;
+
+        Snapshot(List<Entry> entries) {
+            this.entries = Collections.unmodifiableList(entries);
+            List<Entry> sorted = new ArrayList<>(entries);
+            Collections.sort(sorted, (a, b) -> Long.compare(b.lastUsed, a.lastUsed));
+            this.recent = Collections.unmodifiableList(sorted);
+            Map<String, Entry> paths = new HashMap<>();
+            Map<String, Entry> names = new HashMap<>();
+            // Most recent first, so a name shared by an asset and an import resolves to the one used last
+            for (Entry entry : sorted) {
+                paths.put(entry.getPath(), entry);
+                if (!names.containsKey(entry.name)) {
+                    names.put(entry.name, entry);
+                }
+            }
+            this.byPath = paths;
+            this.byName = names;
+        }
+    }
+
+    private final File directory;
+    private final File indexFile;
+    private volatile Snapshot snapshot;
+    private final IndexWriter indexWriter = new IndexWriter(this::saveIndex, INDEX_WRITE_DELAY_MS);
+
+    /**
+     * Load the catalog, an index file in the directory of the filters it lists.
+     * A missing or unreadable index starts an empty catalog.
+     */
+    public FilterCatalog(File indexFile) {
+        this.indexFile = indexFile;
+        this.directory = indexFile.getParentFile();
+        this.snapshot = new Snapshot(loadIndex());
+    }
+
+    /**
+     * Get all entries in insertion order
+     */
+    public List<Entry> getEntries() {
+        return snapshot.entries;
+    }
+
+    /**
+     * Get all entries, most recently used first
+     */
+    public List<Entry> getRecent() {
+        return snapshot.recent;
+    }
+
+    /**
+     * Get the most recently used entry, null if the catalog is empty
+     */
+    public Entry getMostRecent() {
+        List<Entry> recent = snapshot.recent;
+        return recent.isEmpty() ? null : recent.get(0);
+    }
+
+    public Entry findByName(String name) {
+        return snapshot.byName.get(name);
+    }
+
+    public Entry findByPath(String path) {
+        return snapshot.byPath.get(path);
+    }
+
+    public int size() {
+        return snapshot.entries.size();
+    }
+
+    /**
+     * Add an entry, replacing the one with the same file and keeping its last-used time
+     */
+    public synchronized void put(Entry entry) {
+        List<Entry> entries = new ArrayList<>(snapshot.entries);
+        for (int i = 0; i < entries.size(); i++) {
+            Entry existing = entries.get(i);
+            if (existing.file.equals(entry.file)) {
+                entries.set(i, entry.lastUsed == 0 ? entry.withLastUsed(existing.lastUsed) : entry);
+                publish(entries);
+                return;
+            }
+        }
+        entries.add(entry);
+        publish(entries);
+    }
+
+    /**
+     * Record that a filter was applied, ignored for files not in the catalog
+     */
+    public synchronized void markUsed(String path, long time) {
+        Entry entry = snapshot.byPath.get(path);
+        if (entry == null) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(snapshot.entries);
+        entries.set(entries.indexOf(entry), entry.withLastUsed(time));
+        publish(entries);
+    }
+
+    /**
+     * Remove the imported entries with a content hash, e.g. after the store
+     * evicted the blob. A bundled asset with the same content stays.
+     */
+    public synchronized int removeImported(String hash) {
+        List<Entry> entries = new ArrayList<>(snapshot.entries);
+        int before = entries.size();
+        entries.removeIf(entry -> entry.source == Source.IMPORTED && hash.equals(entry.hash));
+        if (entries.size() != before) {
+            publish(entries);
+        }
+        return before - entries.size();
+    }
+
+    /**
+     * Remove the entries of a source whose name is not in the given set, e.g.
+     * assets no longer bundled
+     */
+    public synchronized int retain(Source source, List<String> names) {
+        List<Entry> entries = new ArrayList<>(snapshot.entries);
+        int before = entries.size();
+        entries.removeIf(entry -> entry.source == source && !names.contains(entry.name));
+        if (entries.size() != before) {
+            publish(entries);
+        }
+        return before - entries.size();
+    }
+
+    private void publish(List<Entry> entries) {
+        snapshot = new Snapshot(entries);
+        indexWriter.request();
+    }
+
+    /**
+     * Write a pending index change now, in the background. The future
+     * completes once the index is on disk.
+     */
+    public Future<?> flush() {
+        return indexWriter.flush();
+    }
+
+    private List<Entry> loadIndex() {
+        List<Entry> entries = new ArrayList<>();
+        if (!indexFile.exists()) {
+            return entries;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(indexFile), StandardCharsets.UTF_8))) {
+            if (!INDEX_HEADER.equals(reader.readLine())) {
+                return entries;
+            }
+            // Keyed by file so a duplicated line cannot produce two entries
+            Map<File, Entry> byFile = new LinkedHashMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry = parseLine(line);
+                if (entry != null) {
+                    byFile.put(entry.file, entry);
+                }
+            }
+            entries.addAll(byFile.values());
+        } catch (IOException | RuntimeException e) {
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /**
+     * Lines are "name, hash, grid size, source, last used, file name", tab separated
+     */
+    private Entry parseLine(String line) {
+        String[] parts = line.split(String.valueOf(SEPARATOR), -1);
+        if (parts.length != 6) {
+            return null;
+        }
+        // The hash is empty for a file that could not be hashed
+        return new Entry(parts[0], parts[1].isEmpty() ? null : parts[1], Integer.parseInt(parts[2]), Source.valueOf(parts[3]),
+                Long.parseLong(parts[4]), new File(directory, parts[5]));
+    }
+
+    /**
+     * Write the latest snapshot, called on the writer thread
+     */
+    private void saveIndex() {
+        List<Entry> entries = snapshot.entries;
+        File tmpFile = new File(indexFile.getPath() + ".tmp");
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(tmpFile), StandardCharsets.UTF_8))) {
+                writer.write(INDEX_HEADER);
+                writer.write('\n');
+                StringBuilder line = new StringBuilder();
+                for (Entry entry : entries) {
+                    line.setLength(0);
+                    line.append(clean(entry.name)).append(SEPARATOR)
+                            .append(entry.hash != null ? entry.hash : "").append(SEPARATOR)
+                            .append(entry.gridSize).append(SEPARATOR)
+                            .append(entry.source.name()).append(SEPARATOR)
+                            .append(entry.lastUsed).append(SEPARATOR)
+                            .append(clean(entry.file.getName())).append('\n');
+                    writer.write(line.toString());
+                }
+            }
+            if (!tmpFile.renameTo(indexFile)) {
+                tmpFile.delete();
+            }
+        } catch (IOException e) {
+            // The snapshot stays authoritative, the next change or flush retries the write
+            tmpFile.delete();
+        }
+    }
+
+    private static String clean(String value) {
+        return value.replace('\t', ' ').replace('\n', ' ');
+    }
+}
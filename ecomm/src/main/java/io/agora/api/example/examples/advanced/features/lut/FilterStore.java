@@ -0,0 +1,438 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Filter Store
+ * Content-addressed store for imported .cube files. Every import is hashed
+ * with SHA-256 while it is copied, in a single pass, and stored as
+ * {@code <digest>.cube}; importing the same content again only updates the
+ * index. An index file maps display names to digests and keeps blobs in
+ * least-recently-used order, blobs are evicted once the store exceeds its
+ * byte cap. Files derived from a blob, such as compiled tables and resampled
+ * grids, are named with the digest as prefix and are deleted along with it.
+ * Index changes are written in the background after a short quiet period; a
+ * lost write only loses usage order and names, blobs are re-adopted on load.
+ */
+public final class FilterStore {
+    public static final String EXTENSION = ".cube";
+
+    private static final String INDEX_FILE = "store.idx";
+    private static final String INDEX_HEADER = "filter-store 1";
+    private static final long INDEX_WRITE_DELAY_MS = 1000;
+    private static final int DIGEST_CHARS = 64;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Notified when a blob leaves the store, by eviction or removal
+     */
+    public interface RemovalListener {
+        void onRemoved(String hash);
+    }
+
+    private static final class Blob {
+        final long size;
+        long lastUsed;
+
+        Blob(long size, long lastUsed) {
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private final File directory;
+    private final long maxBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // Access ordered, the eldest blob is the least recently imported or used
+    private final LinkedHashMap<String, Blob> blobs = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, String> names = new LinkedHashMap<>();
+    private long totalBytes;
+    private long importCount;
+    private long dedupeCount;
+    private long evictionCount;
+    private RemovalListener removalListener;
+    private final IndexWriter indexWriter = new IndexWriter(this::writeIndex, INDEX_WRITE_DELAY_MS);
+
+    /**
+     * Open a store, loading its index. Blobs on disk missing from the index
+     * (an interrupted import) are adopted, index entries without a blob dropped.
+     */
+    public FilterStore(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        loadIndex();
+    }
+
+    /**
+     * Import a stream under a display name and return the stored blob.
+     * The stream is not closed.
+     */
+    public synchronized File importStream(String name, InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        File tmpFile = new File(directory, "import_" + System.nanoTime() + ".tmp");
+        long size = 0;
+        try {
+            // A file-backed stream (content resolver file descriptors are) is read
+            // straight into the direct buffer; either way every chunk is hashed
+            // and written in the same pass
+            ReadableByteChannel source = in instanceof FileInputStream
+                    ? ((FileInputStream) in).getChannel() : Channels.newChannel(in);
+            try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+                FileChannel target = out.getChannel();
+                buffer.clear();
+                while (source.read(buffer) >= 0) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.rewind();
+                    while (buffer.hasRemaining()) {
+                        size += target.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+
+            String hash = toHex(digest.digest());
+            File blobFile = getBlobFile(hash);
+            importCount++;
+            if (blobs.containsKey(hash) && blobFile.exists()) {
+                dedupeCount++;
+                tmpFile.delete();
+            } else if (!tmpFile.renameTo(blobFile)) {
+                throw new IOException("Failed to move imported filter to " + blobFile);
+            } else {
+                Blob stale = blobs.remove(hash);
+                if (stale != null) {
+                    totalBytes -= stale.size;
+                }
+                blobs.put(hash, new Blob(size, 0));
+                totalBytes += size;
+            }
+
+            Blob blob = blobs.get(hash);
+            blob.lastUsed = System.currentTimeMillis();
+            if (name != null) {
+                names.put(name, hash);
+            }
+            evict(hash);
+            saveIndex();
+            return blobFile;
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    public synchronized void setRemovalListener(RemovalListener listener) {
+        this.removalListener = listener;
+    }
+
+    /**
+     * Find the blob last imported under a display name, null if unknown
+     */
+    public synchronized File findByName(String name) {
+        String hash = names.get(name);
+        return hash != null ? getBlobFile(hash) : null;
+    }
+
+    /**
+     * Get the display names a blob was imported under, empty for foreign files
+     */
+    public synchronized List<String> getNames(File file) {
+        String hash = getHash(file);
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, String> entry : names.entrySet()) {
+            if (entry.getValue().equals(hash)) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check whether a file is a blob of this store
+     */
+    public synchronized boolean contains(File file) {
+        String hash = getHash(file);
+        return hash != null && blobs.containsKey(hash);
+    }
+
+    /**
+     * Mark a blob as used so it is evicted last, ignored for foreign files.
+     * Only memory is touched, the index write is deferred.
+     */
+    public synchronized void touch(File file) {
+        String hash = getHash(file);
+        Blob blob = hash != null ? blobs.get(hash) : null;
+        if (blob != null) {
+            blob.lastUsed = System.currentTimeMillis();
+            saveIndex();
+        }
+    }
+
+    /**
+     * Remove a blob, its derived files and every name pointing at it
+     */
+    public synchronized boolean remove(File file) {
+        String hash = getHash(file);
+        if (hash == null || !blobs.containsKey(hash)) {
+            return false;
+        }
+        removeBlob(hash);
+        saveIndex();
+        return true;
+    }
+
+    /**
+     * Get the digest a blob is stored under, null if the file is not a blob of this store
+     */
+    public String getHash(File file) {
+        if (file == null || !directory.equals(file.getParentFile())) {
+            return null;
+        }
+        String fileName = file.getName();
+        if (fileName.length() != DIGEST_CHARS + EXTENSION.length() || !fileName.endsWith(EXTENSION)) {
+            return null;
+        }
+        String hash = fileName.substring(0, DIGEST_CHARS);
+        return isDigest(hash) ? hash : null;
+    }
+
+    public File getBlobFile(String hash) {
+        return new File(directory, hash + EXTENSION);
+    }
+
+    private void evict(String keepHash) {
+        Iterator<Map.Entry<String, Blob>> iterator = blobs.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            String hash = iterator.next().getKey();
+            if (hash.equals(keepHash)) {
+                continue;
+            }
+            iterator.remove();
+            deleteBlobFiles(hash);
+            evictionCount++;
+        }
+    }
+
+    private void removeBlob(String hash) {
+        blobs.remove(hash);
+        deleteBlobFiles(hash);
+    }
+
+    private void deleteBlobFiles(String hash) {
+        File blobFile = getBlobFile(hash);
+        totalBytes -= blobFile.length();
+        blobFile.delete();
+        // Compiled tables and resampled grids derived from the blob
+        File[] derived = directory.listFiles((dir, fileName) -> fileName.startsWith(hash));
+        if (derived != null) {
+            for (File file : derived) {
+                file.delete();
+            }
+        }
+        names.values().removeIf(hash::equals);
+        if (removalListener != null) {
+            removalListener.onRemoved(hash);
+        }
+    }
+
+    private void loadIndex() {
+        File indexFile = new File(directory, INDEX_FILE);
+        if (indexFile.exists()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(indexFile), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                if (INDEX_HEADER.equals(line)) {
+                    while ((line = reader.readLine()) != null) {
+                        parseIndexLine(line);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // A corrupt index only loses names and usage order, blobs are re-adopted below
+                blobs.clear();
+                names.clear();
+            }
+        }
+
+        // Drop entries whose blob is gone, adopt blobs the index does not know
+        blobs.keySet().removeIf(hash -> !getBlobFile(hash).exists());
+        names.values().removeIf(hash -> !blobs.containsKey(hash));
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String hash = getHash(file);
+                if (hash != null && !blobs.containsKey(hash)) {
+                    blobs.put(hash, new Blob(file.length(), file.lastModified()));
+                }
+            }
+        }
+
+        totalBytes = 0;
+        for (Map.Entry<String, Blob> entry : blobs.entrySet()) {
+            totalBytes += getBlobFile(entry.getKey()).length();
+        }
+    }
+
+    /**
+     * Index lines are "B digest size lastUsed" for blobs in LRU order, then
+     * "N digest name" for names; a name runs to the end of the line
+     */
+    private void parseIndexLine(String line) {
+        String[] parts = line.split(" ", 3);
+        if (parts.length < 3 || !isDigest(parts[1])) {
+            return;
+        }
+        if ("B".equals(parts[0])) {
+            String[] values = parts[2].split(" ");
+            blobs.put(parts[1], new Blob(Long.parseLong(values[0]), Long.parseLong(values[1])));
+        } else if ("N".equals(parts[0])) {
+            names.put(parts[2], parts[1]);
+        }
+    }
+
+    private void saveIndex() {
+        indexWriter.request();
+    }
+
+    /**
+     * Write a pending index change now, in the background. The future
+     * completes once the index is on disk.
+     */
+    public Future<?> flush() {
+        return indexWriter.flush();
+    }
+
+    private synchronized String formatIndex() {
+        StringBuilder builder = new StringBuilder(INDEX_HEADER).append('\n');
+        for (Map.Entry<String, Blob> entry : blobs.entrySet()) {
+            Blob blob = entry.getValue();
+            builder.append("B ").append(entry.getKey()).append(' ').append(blob.size).append(' ')
+                    .append(blob.lastUsed).append('\n');
+        }
+        for (Map.Entry<String, String> entry : names.entrySet()) {
+            builder.append("N ").append(entry.getValue()).append(' ').append(entry.getKey().replace('\n', ' ')).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Write the index on the writer thread, the state is copied under the lock
+     * and written outside it, so the store is never blocked on storage
+     */
+    private void writeIndex() {
+        String content = formatIndex();
+        File indexFile = new File(directory, INDEX_FILE);
+        File tmpFile = new File(directory, INDEX_FILE + ".tmp");
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(tmpFile), StandardCharsets.UTF_8))) {
+                writer.write(content);
+            }
+            if (!tmpFile.renameTo(indexFile)) {
+                tmpFile.delete();
+            }
+        } catch (IOException e) {
+            // The index is rebuilt from the blobs on the next load
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Compute the digest of a file, as used for blob names
+     */
+    public static String digest(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer chunk = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            while (channel.read(chunk) >= 0) {
+                chunk.flip();
+                digest.update(chunk);
+                chunk.clear();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static boolean isDigest(String value) {
+        if (value.length() != DIGEST_CHARS) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return blobs.size();
+    }
+
+    public synchronized long getImportCount() {
+        return importCount;
+    }
+
+    public synchronized long getDedupeCount() {
+        return dedupeCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FilterStore{blobs=" + blobs.size() + ", bytes=" + totalBytes + "/" + maxBytes
+                + ", imports=" + importCount + ", deduped=" + dedupeCount + ", evictions=" + evictionCount
+                + ", indexChanges=" + indexWriter.getRequestCount() + ", indexWrites=" + indexWriter.getWriteCount() + "}";
+    }
+}
@@ -0,0 +1,75 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index Writer
+ * Debounced background writer for an index file. A request schedules the
+ * write after a quiet period and requests meanwhile push it back, so a burst
+ * of changes costs one write. Writes run on one daemon thread shared by all
+ * indexes, never on the thread making the change.
+ */
+final class IndexWriter {
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "IndexWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Runnable write;
+    private final long delayMs;
+    private ScheduledFuture<?> pending;
+    private long requestCount;
+    private long writeCount;
+
+    /**
+     * @param write writes the current state of the index, called on the writer thread
+     */
+    IndexWriter(Runnable write, long delayMs) {
+        this.write = write;
+        this.delayMs = delayMs;
+    }
+
+    /**
+     * Write the index once no further request came for the delay
+     */
+    synchronized void request() {
+        requestCount++;
+        schedule(delayMs);
+    }
+
+    /**
+     * Write a pending change now, still on the writer thread. The future
+     * completes once the index is on disk.
+     */
+    synchronized Future<?> flush() {
+        return schedule(0);
+    }
+
+    private Future<?> schedule(long delay) {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = EXECUTOR.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+        return pending;
+    }
+
+    private void run() {
+        synchronized (this) {
+            writeCount++;
+        }
+        write.run();
+    }
+
+    synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    synchronized long getWriteCount() {
+        return writeCount;
+    }
+}
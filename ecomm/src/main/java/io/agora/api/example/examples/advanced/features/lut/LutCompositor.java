@@ -0,0 +1,53 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import java.util.List;
+
+/**
+ * LUT Compositor
+ * Bakes an ordered chain of LUTs and a strength into a single 3D grid, so a
+ * stacked look costs one lookup per pixel instead of one per LUT.
+ */
+public final class LutCompositor {
+
+    private LutCompositor() {
+    }
+
+    /**
+     * Compose a chain on a unit-domain grid of the given size. Each grid point is
+     * passed through the LUTs in order and then blended with the identity by strength.
+     */
+    public static CubeLut compose(List<CubeLut> chain, float strength, int size) {
+        if (chain.isEmpty()) {
+            throw new IllegalArgumentException("Empty LUT chain");
+        }
+        float amount = Math.max(0f, Math.min(1f, strength));
+        float[] table = new float[size * size * size * 3];
+        float[] color = new float[3];
+        float scale = 1f / (size - 1);
+        int index = 0;
+        for (int b = 0; b < size; b++) {
+            for (int g = 0; g < size; g++) {
+                for (int r = 0; r < size; r++) {
+                    float inR = r * scale;
+                    float inG = g * scale;
+                    float inB = b * scale;
+                    color[0] = inR;
+                    color[1] = inG;
+                    color[2] = inB;
+                    for (int i = 0; i < chain.size(); i++) {
+                        chain.get(i).sample(color[0], color[1], color[2], color);
+                    }
+                    table[index++] = clamp(inR + (color[0] - inR) * amount);
+                    table[index++] = clamp(inG + (color[1] - inG) * amount);
+                    table[index++] = clamp(inB + (color[2] - inB) * amount);
+                }
+            }
+        }
+        return new CubeLut("Composite of " + chain.size() + " LUTs", size,
+                new float[]{0f, 0f, 0f}, new float[]{1f, 1f, 1f}, table);
+    }
+
+    private static float clamp(float value) {
+        return value < 0f ? 0f : value > 1f ? 1f : value;
+    }
+}
@@ -0,0 +1,541 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import java.nio.ByteBuffer;
+
+/**
+ * LUT Kernel
+ * CPU renderer applying a 3D LUT with tetrahedral interpolation and a strength
+ * blend directly on I420 or NV21 planes, in place.
+ * <p>
+ * The LUT is baked once into fixed-point integer tables, each frame is then
+ * converted YUV (BT.601 video range) to RGB per pixel, looked up, and converted
+ * back; chroma is rebuilt from the average of each 2x2 block. Frames are split
+ * into row stripes processed by a fixed set of worker threads plus the calling
+ * thread. Array frames allocate nothing per frame. Direct buffer frames are
+ * processed in place too: each stripe moves its rows through a small scratch
+ * row, so the frame is never copied as a whole. A stripe that throws fails the
+ * frame for the caller, the workers stay alive for the next frame.
+ * <p>
+ * A kernel instance must be driven from a single thread, {@link #release()}
+ * stops the workers.
+ */
+public final class LutKernel {
+    private static final int FRACTION_BITS = 8;
+    private static final int FRACTION_ONE = 1 << FRACTION_BITS;
+    // Grid values are stored as 8-bit levels with 4 extra bits of precision
+    private static final int GRID_SCALE = 255 * 16;
+    private static final int GRID_SHIFT = FRACTION_BITS + 4;
+    private static final int ROUNDING = 1 << (GRID_SHIFT - 1);
+    // Each grid entry packs R, G and B in 21-bit fields of a long, wide enough
+    // for a level times an interpolation weight
+    private static final int FIELD_BITS = 21;
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+
+    private final Worker[] workers;
+    private final Object lock = new Object();
+    private long generation;
+    private int remaining;
+    private boolean released;
+    private Throwable stripeFailure;
+
+    // Prepared LUT
+    private CubeLut lut;
+    private long[] grid;
+    private final int[] redOffset = new int[256];
+    private final int[] greenOffset = new int[256];
+    private final int[] blueOffset = new int[256];
+    private final int[] redFraction = new int[256];
+    private final int[] greenFraction = new int[256];
+    private final int[] blueFraction = new int[256];
+    private int stepGreen;
+    private int stepBlue;
+
+    // Current frame, written before the workers are released
+    private byte[] dataY;
+    private int offsetY;
+    private int strideY;
+    private byte[] dataU;
+    private int offsetU;
+    private byte[] dataV;
+    private int offsetV;
+    private ByteBuffer bufferY;
+    private ByteBuffer bufferU;
+    private ByteBuffer bufferV;
+    private int strideUv;
+    private int pixelStrideUv;
+    private int width;
+    private int height;
+    private int blend;
+    private final int stripes;
+    private final Scratch[] scratch;
+
+    // Statistics
+    private long frameCount;
+    private long totalNanos;
+    private long lastNanos;
+
+    /**
+     * @param threads total parallelism including the calling thread, at least 1
+     */
+    public LutKernel(int threads) {
+        int count = Math.max(1, threads);
+        stripes = count;
+        scratch = new Scratch[count];
+        for (int i = 0; i < count; i++) {
+            scratch[i] = new Scratch();
+        }
+        workers = new Worker[count - 1];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i + 1);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Bake a LUT into the integer lookup tables, allocates only when the grid size changes
+     */
+    public void setLut(CubeLut lut) {
+        int size = lut.getSize();
+        float[] table = lut.getTable();
+        int entries = lut.getEntryCount();
+        if (grid == null || grid.length != entries) {
+            grid = new long[entries];
+        }
+        for (int i = 0; i < entries; i++) {
+            grid[i] = toLevel(table[i * 3])
+                    | toLevel(table[i * 3 + 1]) << FIELD_BITS
+                    | toLevel(table[i * 3 + 2]) << (2 * FIELD_BITS);
+        }
+
+        stepGreen = size;
+        stepBlue = size * size;
+        float[] domainMin = lut.getDomainMin();
+        float[] domainMax = lut.getDomainMax();
+        buildAxis(redOffset, redFraction, size, domainMin[0], domainMax[0], 1);
+        buildAxis(greenOffset, greenFraction, size, domainMin[1], domainMax[1], stepGreen);
+        buildAxis(blueOffset, blueFraction, size, domainMin[2], domainMax[2], stepBlue);
+        this.lut = lut;
+    }
+
+    /**
+     * Get the LUT currently baked into the kernel
+     */
+    public CubeLut getLut() {
+        return lut;
+    }
+
+    private static long toLevel(float value) {
+        return Math.round((value < 0f ? 0f : value > 1f ? 1f : value) * GRID_SCALE);
+    }
+
+    private static void buildAxis(int[] offsets, int[] fractions, int size, float min, float max, int step) {
+        for (int level = 0; level < 256; level++) {
+            float x = (level / 255f - min) / (max - min) * (size - 1);
+            if (!(x > 0f)) {
+                x = 0f;
+            } else if (x > size - 1) {
+                x = size - 1;
+            }
+            int index = Math.min((int) x, size - 2);
+            offsets[level] = index * step;
+            fractions[level] = Math.round((x - index) * FRACTION_ONE);
+        }
+    }
+
+    /**
+     * Apply the LUT to an I420 frame in place
+     */
+    public void applyI420(byte[] y, int strideY, byte[] u, int strideU, byte[] v, int strideV,
+                          int width, int height, float strength) {
+        if (strideU != strideV) {
+            throw new IllegalArgumentException("U and V strides differ: " + strideU + " != " + strideV);
+        }
+        run(y, 0, strideY, u, 0, v, 0, strideU, 1, width, height, strength);
+    }
+
+    /**
+     * Apply the LUT to an I420 frame held in byte buffers, typically direct, in
+     * place. Buffer positions are left untouched.
+     */
+    public void applyI420(ByteBuffer y, int strideY, ByteBuffer u, int strideU, ByteBuffer v, int strideV,
+                          int width, int height, float strength) {
+        if (strideU != strideV) {
+            throw new IllegalArgumentException("U and V strides differ: " + strideU + " != " + strideV);
+        }
+        this.bufferY = y;
+        this.bufferU = u;
+        this.bufferV = v;
+        run(null, 0, strideY, null, 0, null, 0, strideU, 1, width, height, strength);
+    }
+
+    /**
+     * Apply the LUT to a tightly packed NV21 frame in place
+     */
+    public void applyNv21(byte[] data, int width, int height, float strength) {
+        int chroma = width * height;
+        int strideUv = (width + 1) / 2 * 2;
+        // NV21 interleaves V before U
+        run(data, 0, width, data, chroma + 1, data, chroma, strideUv, 2, width, height, strength);
+    }
+
+    private void run(byte[] y, int offsetY, int strideY, byte[] u, int offsetU, byte[] v, int offsetV,
+                     int strideUv, int pixelStrideUv, int width, int height, float strength) {
+        if (grid == null || released) {
+            this.bufferY = null;
+            this.bufferU = null;
+            this.bufferV = null;
+            throw new IllegalStateException(released ? "Kernel released" : "No LUT set");
+        }
+        long start = System.nanoTime();
+
+        this.dataY = y;
+        this.offsetY = offsetY;
+        this.strideY = strideY;
+        this.dataU = u;
+        this.offsetU = offsetU;
+        this.dataV = v;
+        this.offsetV = offsetV;
+        this.strideUv = strideUv;
+        this.pixelStrideUv = pixelStrideUv;
+        this.width = width;
+        this.height = height;
+        this.blend = Math.round(Math.max(0f, Math.min(1f, strength)) * FRACTION_ONE);
+
+        Throwable failure = null;
+        if (blend > 0) {
+            if (workers.length > 0) {
+                synchronized (lock) {
+                    generation++;
+                    remaining = workers.length;
+                    lock.notifyAll();
+                }
+            }
+            try {
+                processStripe(0);
+            } catch (Throwable e) {
+                // Also errors such as OutOfMemoryError, the workers must be waited out before leaving
+                failure = e;
+            }
+            if (workers.length > 0) {
+                boolean interrupted = false;
+                synchronized (lock) {
+                    // Workers still read the frame, so wait them out even when interrupted or failed
+                    while (remaining > 0) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (failure == null) {
+                        failure = stripeFailure;
+                    }
+                    stripeFailure = null;
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        // Drop frame references so the kernel does not pin buffers between frames
+        this.dataY = null;
+        this.dataU = null;
+        this.dataV = null;
+        this.bufferY = null;
+        this.bufferU = null;
+        this.bufferV = null;
+        if (failure != null) {
+            // The frame is partly mapped, the caller decides what to do with it
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw (RuntimeException) failure;
+        }
+
+        lastNanos = System.nanoTime() - start;
+        totalNanos += lastNanos;
+        frameCount++;
+    }
+
+    private void processStripe(int stripe) {
+        int chromaRows = (height + 1) / 2;
+        int first = (int) ((long) chromaRows * stripe / stripes);
+        int last = (int) ((long) chromaRows * (stripe + 1) / stripes);
+        if (dataY == null) {
+            processBufferStripe(scratch[stripe], first, last);
+            return;
+        }
+        for (int row = first; row < last; row++) {
+            int lumaTop = row * 2;
+            processChromaRow(dataY, offsetY + lumaTop * strideY, strideY, height - lumaTop >= 2,
+                    dataU, offsetU + row * strideUv, dataV, offsetV + row * strideUv, pixelStrideUv);
+        }
+    }
+
+    /**
+     * Process the rows of an I420 buffer frame: read the two luma rows and the
+     * chroma row into the stripe scratch, map them and write them back. Each
+     * stripe works on its own views, positions are not shared between threads.
+     */
+    private void processBufferStripe(Scratch rows, int first, int last) {
+        ByteBuffer y = bufferY.duplicate();
+        ByteBuffer u = bufferU.duplicate();
+        ByteBuffer v = bufferV.duplicate();
+        int chromaColumns = (width + 1) / 2;
+        rows.ensure(width, chromaColumns);
+        for (int row = first; row < last; row++) {
+            int lumaTop = row * 2;
+            int lumaRows = Math.min(2, height - lumaTop);
+            for (int i = 0; i < lumaRows; i++) {
+                y.position((lumaTop + i) * strideY);
+                y.get(rows.y, i * width, width);
+            }
+            u.position(row * strideUv);
+            u.get(rows.u, 0, chromaColumns);
+            v.position(row * strideUv);
+            v.get(rows.v, 0, chromaColumns);
+
+            processChromaRow(rows.y, 0, width, lumaRows == 2, rows.u, 0, rows.v, 0, 1);
+
+            for (int i = 0; i < lumaRows; i++) {
+                y.position((lumaTop + i) * strideY);
+                y.put(rows.y, i * width, width);
+            }
+            u.position(row * strideUv);
+            u.put(rows.u, 0, chromaColumns);
+            v.position(row * strideUv);
+            v.put(rows.v, 0, chromaColumns);
+        }
+    }
+
+    private void processChromaRow(byte[] y, int rowY, int strideY, boolean fullRows,
+                                  byte[] u, int rowU, byte[] v, int rowV, int pixelStrideUv) {
+        final int s = blend;
+        final int chromaColumns = (width + 1) / 2;
+        final int fullColumns = width / 2;
+
+        for (int cx = 0; cx < chromaColumns; cx++) {
+            int indexU = rowU + cx * pixelStrideUv;
+            int indexV = rowV + cx * pixelStrideUv;
+            int inU = u[indexU] & 0xFF;
+            int inV = v[indexV] & 0xFF;
+            int d = inU - 128;
+            int e = inV - 128;
+            int redTerm = 409 * e + 128;
+            int greenTerm = -100 * d - 208 * e + 128;
+            int blueTerm = 516 * d + 128;
+
+            int sumR;
+            int sumG;
+            int sumB;
+            int count;
+            int index = rowY + cx * 2;
+            if (fullRows && cx < fullColumns) {
+                // Common case, a complete 2x2 block
+                int p0 = convertPixel(y, index, redTerm, greenTerm, blueTerm, s);
+                int p1 = convertPixel(y, index + 1, redTerm, greenTerm, blueTerm, s);
+                int p2 = convertPixel(y, index + strideY, redTerm, greenTerm, blueTerm, s);
+                int p3 = convertPixel(y, index + strideY + 1, redTerm, greenTerm, blueTerm, s);
+                sumR = (p0 >>> 16) + (p1 >>> 16) + (p2 >>> 16) + (p3 >>> 16);
+                sumG = ((p0 >>> 8) & 0xFF) + ((p1 >>> 8) & 0xFF) + ((p2 >>> 8) & 0xFF) + ((p3 >>> 8) & 0xFF);
+                sumB = (p0 & 0xFF) + (p1 & 0xFF) + (p2 & 0xFF) + (p3 & 0xFF);
+                count = 4;
+            } else {
+                // Partial block on the right or bottom edge of an odd sized frame
+                sumR = 0;
+                sumG = 0;
+                sumB = 0;
+                count = 0;
+                int rows = fullRows ? 2 : 1;
+                int columns = cx < fullColumns ? 2 : 1;
+                for (int dy = 0; dy < rows; dy++) {
+                    for (int dx = 0; dx < columns; dx++) {
+                        int p = convertPixel(y, index + dy * strideY + dx, redTerm, greenTerm, blueTerm, s);
+                        sumR += p >>> 16;
+                        sumG += (p >>> 8) & 0xFF;
+                        sumB += p & 0xFF;
+                        count++;
+                    }
+                }
+            }
+
+            int r = (sumR + count / 2) / count;
+            int g = (sumG + count / 2) / count;
+            int b = (sumB + count / 2) / count;
+            int outU = ((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128;
+            int outV = ((112 * r - 94 * g - 18 * b + 128) >> 8) + 128;
+            if (s < FRACTION_ONE) {
+                outU = inU + (((outU - inU) * s + 128) >> FRACTION_BITS);
+                outV = inV + (((outV - inV) * s + 128) >> FRACTION_BITS);
+            }
+            u[indexU] = (byte) outU;
+            v[indexV] = (byte) outV;
+        }
+    }
+
+    /**
+     * Map one luma sample through the LUT, writes the new luma and returns the
+     * mapped color as packed 0xRRGGBB for the chroma average
+     */
+    private int convertPixel(byte[] y, int index, int redTerm, int greenTerm, int blueTerm, int s) {
+        int inY = y[index] & 0xFF;
+        int c = 298 * (inY - 16);
+        int rgb = lookup(clamp((c + redTerm) >> 8), clamp((c + greenTerm) >> 8), clamp((c + blueTerm) >> 8));
+        int outY = ((66 * (rgb >>> 16) + 129 * ((rgb >>> 8) & 0xFF) + 25 * (rgb & 0xFF) + 128) >> 8) + 16;
+        if (s < FRACTION_ONE) {
+            outY = inY + (((outY - inY) * s + 128) >> FRACTION_BITS);
+        }
+        y[index] = (byte) outY;
+        return rgb;
+    }
+
+    /**
+     * Tetrahedral lookup of an 8-bit RGB color, returns packed 0xRRGGBB.
+     * The four tetrahedron corners get non-negative weights summing to one, so
+     * the three channels are interpolated at once on the packed grid entries.
+     */
+    private int lookup(int r, int g, int b) {
+        final long[] t = grid;
+        int base = redOffset[r] + greenOffset[g] + blueOffset[b];
+        int fr = redFraction[r];
+        int fg = greenFraction[g];
+        int fb = blueFraction[b];
+
+        int f1, f2, f3, a, c;
+        if (fr >= fg) {
+            if (fg >= fb) {
+                f1 = fr; f2 = fg; f3 = fb; a = 1; c = 1 + stepGreen;
+            } else if (fr >= fb) {
+                f1 = fr; f2 = fb; f3 = fg; a = 1; c = 1 + stepBlue;
+            } else {
+                f1 = fb; f2 = fr; f3 = fg; a = stepBlue; c = 1 + stepBlue;
+            }
+        } else {
+            if (fr >= fb) {
+                f1 = fg; f2 = fr; f3 = fb; a = stepGreen; c = 1 + stepGreen;
+            } else if (fg >= fb) {
+                f1 = fg; f2 = fb; f3 = fr; a = stepGreen; c = stepGreen + stepBlue;
+            } else {
+                f1 = fb; f2 = fg; f3 = fr; a = stepBlue; c = stepGreen + stepBlue;
+            }
+        }
+
+        long sum = t[base] * (FRACTION_ONE - f1)
+                + t[base + a] * (f1 - f2)
+                + t[base + c] * (f2 - f3)
+                + t[base + 1 + stepGreen + stepBlue] * f3;
+        int outR = ((int) (sum & FIELD_MASK) + ROUNDING) >> GRID_SHIFT;
+        int outG = ((int) ((sum >>> FIELD_BITS) & FIELD_MASK) + ROUNDING) >> GRID_SHIFT;
+        int outB = ((int) ((sum >>> (2 * FIELD_BITS)) & FIELD_MASK) + ROUNDING) >> GRID_SHIFT;
+        return (outR << 16) | (outG << 8) | outB;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+
+    /**
+     * Get the duration of the last frame in nanoseconds
+     */
+    public long getLastFrameNanos() {
+        return lastNanos;
+    }
+
+    /**
+     * Get the mean duration per frame since the last reset, in nanoseconds
+     */
+    public long getAverageFrameNanos() {
+        return frameCount == 0 ? 0 : totalNanos / frameCount;
+    }
+
+    /**
+     * Get number of frames processed since the last reset
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public void resetStats() {
+        frameCount = 0;
+        totalNanos = 0;
+        lastNanos = 0;
+    }
+
+    /**
+     * Stop the worker threads, the kernel cannot be used afterwards
+     */
+    public void release() {
+        synchronized (lock) {
+            released = true;
+            lock.notifyAll();
+        }
+    }
+
+    private final class Worker extends Thread {
+        private final int stripe;
+
+        Worker(int stripe) {
+            super("LutKernel-" + stripe);
+            this.stripe = stripe;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long seen = 0;
+            while (true) {
+                synchronized (lock) {
+                    // A frame already handed out is finished even after release
+                    while (generation == seen) {
+                        if (released) {
+                            return;
+                        }
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            released = true;
+                        }
+                    }
+                    seen = generation;
+                }
+                Throwable failure = null;
+                try {
+                    processStripe(stripe);
+                } catch (Throwable e) {
+                    // Hand the error to the caller and keep serving, a dead worker would hang the next frame
+                    failure = e;
+                } finally {
+                    // Always count the stripe done, the caller waits for every worker
+                    synchronized (lock) {
+                        if (failure != null && stripeFailure == null) {
+                            stripeFailure = failure;
+                        }
+                        if (--remaining == 0) {
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rows of one stripe for buffer frames, grown only when the width grows
+     */
+    private static final class Scratch {
+        byte[] y = new byte[0];
+        byte[] u = new byte[0];
+        byte[] v = new byte[0];
+
+        void ensure(int width, int chromaColumns) {
+            if (y.length < width * 2) {
+                y = new byte[width * 2];
+            }
+            if (u.length < chromaColumns) {
+                u = new byte[chromaColumns];
+                v = new byte[chromaColumns];
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+/**
+ * LUT Resampler
+ * Trilinear resampling of a 3D LUT to another grid size, plus CIE76 delta E
+ * metrics to judge how much a resampled grid deviates from its source.
+ */
+public final class LutResampler {
+    // sRGB (D65) to XYZ, and the D65 white point
+    private static final double[] RGB_TO_XYZ = {
+        0.4124564, 0.3575761, 0.1804375,
+        0.2126729, 0.7151522, 0.0721750,
+        0.0193339, 0.1191920, 0.9503041
+    };
+    private static final double WHITE_X = 0.95047;
+    private static final double WHITE_Y = 1.0;
+    private static final double WHITE_Z = 1.08883;
+
+    private LutResampler() {
+    }
+
+    /**
+     * Resample a LUT onto a grid of the given size over the same domain
+     */
+    public static CubeLut resample(CubeLut source, int size) {
+        if (size < 2) {
+            throw new IllegalArgumentException("LUT size must be at least 2: " + size);
+        }
+        int sourceSize = source.getSize();
+        float[] src = source.getTable();
+        float[] table = new float[size * size * size * 3];
+        float scale = (sourceSize - 1) / (float) (size - 1);
+        int strideG = sourceSize * 3;
+        int strideB = sourceSize * sourceSize * 3;
+
+        int index = 0;
+        for (int b = 0; b < size; b++) {
+            float z = b * scale;
+            int b0 = Math.min((int) z, sourceSize - 2);
+            float fb = z - b0;
+            for (int g = 0; g < size; g++) {
+                float y = g * scale;
+                int g0 = Math.min((int) y, sourceSize - 2);
+                float fg = y - g0;
+                for (int r = 0; r < size; r++) {
+                    float x = r * scale;
+                    int r0 = Math.min((int) x, sourceSize - 2);
+                    float fr = x - r0;
+                    int base = b0 * strideB + g0 * strideG + r0 * 3;
+                    for (int channel = 0; channel < 3; channel++) {
+                        int i = base + channel;
+                        float c00 = lerp(src[i], src[i + 3], fr);
+                        float c10 = lerp(src[i + strideG], src[i + strideG + 3], fr);
+                        float c01 = lerp(src[i + strideB], src[i + strideB + 3], fr);
+                        float c11 = lerp(src[i + strideB + strideG], src[i + strideB + strideG + 3], fr);
+                        table[index++] = lerp(lerp(c00, c10, fg), lerp(c01, c11, fg), fb);
+                    }
+                }
+            }
+        }
+        return new CubeLut(source.getTitle(), size, source.getDomainMin(), source.getDomainMax(), table);
+    }
+
+    private static float lerp(float a, float b, float t) {
+        return a + (b - a) * t;
+    }
+
+    /**
+     * Compare two LUTs over a lattice of probe colors placed between the grid
+     * points of both, where interpolation error peaks. Outputs are treated as
+     * sRGB in [0, 1]. Returns {mean, max} CIE76 delta E.
+     */
+    public static double[] deltaE(CubeLut reference, CubeLut candidate, int probesPerAxis) {
+        float[] min = reference.getDomainMin();
+        float[] max = reference.getDomainMax();
+        float[] expected = new float[3];
+        float[] actual = new float[3];
+        double[] labExpected = new double[3];
+        double[] labActual = new double[3];
+        double sum = 0;
+        double worst = 0;
+        int count = 0;
+        for (int b = 0; b < probesPerAxis; b++) {
+            for (int g = 0; g < probesPerAxis; g++) {
+                for (int r = 0; r < probesPerAxis; r++) {
+                    float inR = min[0] + (max[0] - min[0]) * (r + 0.5f) / probesPerAxis;
+                    float inG = min[1] + (max[1] - min[1]) * (g + 0.5f) / probesPerAxis;
+                    float inB = min[2] + (max[2] - min[2]) * (b + 0.5f) / probesPerAxis;
+                    reference.sample(inR, inG, inB, expected);
+                    candidate.sample(inR, inG, inB, actual);
+                    toLab(expected, labExpected);
+                    toLab(actual, labActual);
+                    double dl = labExpected[0] - labActual[0];
+                    double da = labExpected[1] - labActual[1];
+                    double db = labExpected[2] - labActual[2];
+                    double delta = Math.sqrt(dl * dl + da * da + db * db);
+                    sum += delta;
+                    worst = Math.max(worst, delta);
+                    count++;
+                }
+            }
+        }
+        return new double[]{sum / count, worst};
+    }
+
+    private static void toLab(float[] rgb, double[] lab) {
+        double r = toLinear(rgb[0]);
+        double g = toLinear(rgb[1]);
+        double b = toLinear(rgb[2]);
+        double x = (RGB_TO_XYZ[0] * r + RGB_TO_XYZ[1] * g + RGB_TO_XYZ[2] * b) / WHITE_X;
+        double y = (RGB_TO_XYZ[3] * r + RGB_TO_XYZ[4] * g + RGB_TO_XYZ[5] * b) / WHITE_Y;
+        double z = (RGB_TO_XYZ[6] * r + RGB_TO_XYZ[7] * g + RGB_TO_XYZ[8] * b) / WHITE_Z;
+        double fx = labCurve(x);
+        double fy = labCurve(y);
+        double fz = labCurve(z);
+        lab[0] = 116 * fy - 16;
+        lab[1] = 500 * (fx - fy);
+        lab[2] = 200 * (fy - fz);
+    }
+
+    private static double toLinear(float value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static double labCurve(double t) {
+        return t > 216.0 / 24389.0 ? Math.cbrt(t) : (24389.0 / 27.0 * t + 16) / 116;
+    }
+}
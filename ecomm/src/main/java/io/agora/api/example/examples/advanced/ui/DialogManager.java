@@ -3,10 +3,14 @@ package io.agora.api.example.examples.advanced.ui;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.HorizontalScrollView;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
@@ -16,8 +20,13 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import io.agora.api.example.ecomm.R;
 import io.agora.api.example.examples.advanced.features.FilterManager;
+import io.agora.api.example.examples.advanced.features.FilterThumbnailRenderer;
+import io.agora.api.example.examples.advanced.features.LutPreloader;
 import io.agora.rtc2.RtcEngine;
 
 /**
@@ -26,8 +35,13 @@ import io.agora.rtc2.RtcEngine;
  */
 public class DialogManager {
     private static final String TAG = "DialogManager";
+    // Filter previews are 16:9 like the camera preview
+    private static final int THUMBNAIL_WIDTH_DP = 96;
+    private static final int THUMBNAIL_HEIGHT_DP = 54;
+    private static final int THUMBNAIL_MARGIN_DP = 8;
     
     private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private final FilterManager filterManager;
     private final DialogCallback callback;
     
@@ -37,6 +51,8 @@ public class DialogManager {
         void onZoomChanged(float zoomFactor);
         void onFilterSelected(String filterPath, float strength);
         void onLocalCubeSelected(String cubeFile, float strength);
+        void onPresetSaved(String name);
+        void onPresetSelected(String name);
         RtcEngine getEngine();
     }
     
@@ -406,10 +422,72 @@ public class DialogManager {
         builder.show();
     }
     
+    /**
+     * Create a horizontal strip of filter previews, tapping one selects its radio button.
+     * Cached thumbnails show at once, the rest fill in as they finish rendering.
+     */
+    private View createThumbnailStrip(List<LutPreloader.LutAsset> assets, RadioGroup radioGroup) {
+        FilterThumbnailRenderer renderer = FilterThumbnailRenderer.getInstance();
+        List<ImageView> thumbnails = new ArrayList<>();
+        if (!renderer.hasCameraFrame()) {
+            filterManager.grabPreviewFrame(FilterThumbnailRenderer.THUMBNAIL_WIDTH, (argb, width, height) -> {
+                // A camera frame arriving after the synthetic chart was used redraws the strip
+                if (renderer.setPreviewFrame(argb, width, height)) {
+                    mainHandler.post(() -> renderThumbnails(renderer, assets, thumbnails));
+                }
+            });
+        }
+        
+        HorizontalScrollView scrollView = new HorizontalScrollView(context);
+        LinearLayout strip = new LinearLayout(context);
+        strip.setOrientation(LinearLayout.HORIZONTAL);
+        strip.setPadding(0, 10, 0, 20);
+        
+        for (int i = 0; i < assets.size(); i++) {
+            LutPreloader.LutAsset asset = assets.get(i);
+            final int index = i;
+            ImageView thumbnail = new ImageView(context);
+            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(dpToPx(THUMBNAIL_WIDTH_DP), dpToPx(THUMBNAIL_HEIGHT_DP));
+            params.setMargins(0, 0, dpToPx(THUMBNAIL_MARGIN_DP), 0);
+            thumbnail.setLayoutParams(params);
+            thumbnail.setScaleType(ImageView.ScaleType.CENTER_CROP);
+            thumbnail.setBackgroundColor(0xFFDDDDDD);
+            thumbnail.setContentDescription(asset.getAssetName());
+            thumbnail.setOnClickListener(v -> radioGroup.check(index));
+            thumbnails.add(thumbnail);
+            strip.addView(thumbnail);
+        }
+        renderThumbnails(renderer, assets, thumbnails);
+        
+        scrollView.addView(strip);
+        return scrollView;
+    }
+    
+    private void renderThumbnails(FilterThumbnailRenderer renderer, List<LutPreloader.LutAsset> assets,
+                                  List<ImageView> thumbnails) {
+        for (int i = 0; i < thumbnails.size(); i++) {
+            ImageView thumbnail = thumbnails.get(i);
+            LutPreloader.LutAsset asset = assets.get(i);
+            renderer.render(asset.getPath(), asset.getLut(), (key, bitmap) -> thumbnail.setImageBitmap(bitmap));
+        }
+    }
+    
+    private int dpToPx(int dp) {
+        return Math.round(dp * context.getResources().getDisplayMetrics().density);
+    }
+    
     /**
      * Show local Cube selection dialog
      */
     public void showLocalCubeSelectionDialog() {
+        // Bundled cubes come from the preloader registry, the dialog never touches storage
+        LutPreloader preloader = LutPreloader.getInstance(context);
+        List<LutPreloader.LutAsset> assets = preloader.getAssets();
+        if (assets.isEmpty()) {
+            Toast.makeText(context, context.getString(preloader.isFinished() ? R.string.function_not_available : R.string.lut_assets_loading), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
         android.app.AlertDialog.Builder builder = new android.app.AlertDialog.Builder(context);
         builder.setTitle(context.getString(R.string.select_local_cube_file));
         
@@ -424,18 +502,10 @@ public class DialogManager {
         currentFilterText.setTextSize(16);
         layout.addView(currentFilterText);
         
-        String[] localCubeFiles = {
-            "NaturalBoost - converted with Color.cube",
-            "Long Beach Morning - converted with Color.cube",
-            "MagicHour - converted with Color.cube",
-            "CrispAutumn - converted with Color.cube",
-            "SoftBlackAndWhite - converted with Color.cube",
-            "Waves - converted with Color.cube",
-            "OrangeAndBlue - converted with Color.cube",
-            "Landscape - converted with Color.cube",
-            "ColdChrome - converted with Color.cube",
-            "BlueHour - converted with Color.cube"
-        };
+        String[] localCubeFiles = new String[assets.size()];
+        for (int i = 0; i < localCubeFiles.length; i++) {
+            localCubeFiles[i] = assets.get(i).getAssetName();
+        }
         
         RadioGroup radioGroup = new RadioGroup(context);
         radioGroup.setOrientation(RadioGroup.VERTICAL);
@@ -447,6 +517,7 @@ public class DialogManager {
             radioGroup.addView(radioButton);
         }
         
+        layout.addView(createThumbnailStrip(assets, radioGroup));
         layout.addView(radioGroup);
         
         // Add cube strength adjustment SeekBar
@@ -499,4 +570,65 @@ public class DialogManager {
         builder.setNegativeButton(context.getString(R.string.cancel), null);
         builder.show();
     }
+    
+    /**
+     * Show beauty preset dialog: pick a saved preset to apply, or save the
+     * current effects under a name
+     */
+    public void showPresetDialog(List<String> presetNames) {
+        android.app.AlertDialog.Builder builder = new android.app.AlertDialog.Builder(context);
+        builder.setTitle(context.getString(R.string.beauty_presets));
+        
+        LinearLayout layout = new LinearLayout(context);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.setPadding(50, 50, 50, 50);
+        
+        RadioGroup radioGroup = new RadioGroup(context);
+        radioGroup.setOrientation(RadioGroup.VERTICAL);
+        if (presetNames.isEmpty()) {
+            TextView emptyText = new TextView(context);
+            emptyText.setText(context.getString(R.string.no_presets));
+            emptyText.setTextColor(0xFF000000);
+            emptyText.setTextSize(14);
+            emptyText.setPadding(0, 0, 0, 20);
+            layout.addView(emptyText);
+        } else {
+            for (int i = 0; i < presetNames.size(); i++) {
+                RadioButton radioButton = new RadioButton(context);
+                radioButton.setText(presetNames.get(i));
+                radioButton.setId(i);
+                radioGroup.addView(radioButton);
+            }
+            layout.addView(radioGroup);
+        }
+        
+        // Name for saving the current effects, a saved name is replaced
+        EditText nameInput = new EditText(context);
+        nameInput.setHint(context.getString(R.string.preset_name_hint));
+        nameInput.setSingleLine(true);
+        layout.addView(nameInput);
+        
+        builder.setView(layout);
+        
+        builder.setPositiveButton(context.getString(R.string.apply_preset), (dialog, which) -> {
+            int checkedId = radioGroup.getCheckedRadioButtonId();
+            if (checkedId >= 0 && checkedId < presetNames.size() && callback != null) {
+                callback.onPresetSelected(presetNames.get(checkedId));
+            }
+        });
+        
+        builder.setNeutralButton(context.getString(R.string.save_preset), (dialog, which) -> {
+            String name = nameInput.getText().toString().trim();
+            if (name.isEmpty()) {
+                Toast.makeText(context, context.getString(R.string.enter_preset_name), Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if (callback != null) {
+                callback.onPresetSaved(name);
+            }
+        });
+        
+        builder.setNegativeButton(context.getString(R.string.cancel), null);
+        builder.show();
+    }
 }
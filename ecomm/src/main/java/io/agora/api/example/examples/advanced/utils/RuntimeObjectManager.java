@@ -9,6 +9,7 @@ import androidx.fragment.app.Fragment;
 import io.agora.api.example.examples.advanced.device.CameraManager;
 import io.agora.api.example.examples.advanced.device.FocusController;
 import io.agora.api.example.examples.advanced.features.BeautyFeatureManager;
+import io.agora.api.example.examples.advanced.features.EngineLifecycle;
 import io.agora.api.example.examples.advanced.features.FilterManager;
 import io.agora.api.example.examples.advanced.features.RtcEngineManager;
 import io.agora.api.example.examples.advanced.features.RtcEventHandler;
@@ -31,9 +32,6 @@ public class RuntimeObjectManager {
     private static RtcEventHandler staticEventHandler = null;
     private static DialogManager staticDialogManager = null;
     
-    // 标记是否已初始化
-    private static boolean isRuntimeObjectsInitialized = false;
-    
     /**
      * 保存Runtime对象到静态变量
      */
@@ -54,8 +52,6 @@ public class RuntimeObjectManager {
         staticEventHandler = eventHandler;
         staticDialogManager = dialogManager;
         
-        isRuntimeObjectsInitialized = true;
-        
         Log.d(TAG, "Runtime objects preserved to static variables");
     }
     
@@ -63,7 +59,7 @@ public class RuntimeObjectManager {
      * 从静态变量恢复Runtime对象
      */
     public static RuntimeObjects restoreRuntimeObjects(@NonNull Context context, @NonNull Fragment fragment) {
-        if (!isRuntimeObjectsInitialized || staticEngineManager == null) {
+        if (staticEngineManager == null) {
             Log.d(TAG, "No runtime objects to restore, will create new ones");
             return null;
         }
@@ -133,6 +129,9 @@ public class RuntimeObjectManager {
         Log.d(TAG, "Clearing all runtime objects");
         
         // 清理Engine相关对象
+        if (staticFilterManager != null) {
+            staticFilterManager.release();
+        }
         if (staticEngineManager != null) {
             staticEngineManager.destroyEngine();
         }
@@ -145,22 +144,20 @@ public class RuntimeObjectManager {
         staticFocusController = null;
         staticEventHandler = null;
         staticDialogManager = null;
-        
-        isRuntimeObjectsInitialized = false;
     }
     
     /**
      * 检查Runtime对象是否已初始化
      */
     public static boolean isRuntimeObjectsInitialized() {
-        return isRuntimeObjectsInitialized && staticEngineManager != null;
+        return staticEngineManager != null;
     }
     
     /**
-     * 获取Engine实例（用于外部访问）
+     * 获取Engine实例（用于外部访问），引擎由EngineLifecycle统一持有
      */
     public static RtcEngine getEngine() {
-        return staticEngineManager != null ? staticEngineManager.getEngine() : null;
+        return EngineLifecycle.getInstance().getEngine();
     }
     
     /**
@@ -0,0 +1,79 @@
+package io.agora.api.example.bean;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import io.agora.api.example.examples.advanced.Benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+public class MpOptionsTest {
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 100000;
+
+    @Test
+    public void toJsonMatchesReflectionSerializer() throws Exception {
+        MpOptions options = sample();
+        JSONObject json = new JSONObject(options.toJson());
+        JSONObject legacy = new JSONObject(legacyToJson(options));
+        legacy.remove("TAG");
+        assertEquals(legacy.length(), json.length());
+        for (String name : MpOptions.FIELD_NAMES) {
+            assertEquals(name, legacy.get(name).toString(), json.get(name).toString());
+        }
+    }
+
+    @Test
+    public void writesWholeAndNonFiniteFloats() throws Exception {
+        MpOptions options = new MpOptions();
+        options.browStrength = 1f;
+        options.lashStrength = Float.NaN;
+        JSONObject json = new JSONObject(options.toJson());
+        assertEquals("1", json.get("browStrength").toString());
+        assertEquals(0, json.getDouble("lashStrength"), 0);
+    }
+
+    @Test
+    public void benchmarkAgainstReflectionSerializer() throws Exception {
+        MpOptions options = sample();
+        Benchmark.Result builder = Benchmark.measure(WARMUP, ITERATIONS, options::toJson);
+        Benchmark.Result reflection = Benchmark.measure(WARMUP, ITERATIONS, () -> legacyToJson(options));
+        Benchmark.report("MpOptions.toJson", builder);
+        Benchmark.report("reflection+JSONObject", reflection);
+    }
+
+    private static MpOptions sample() {
+        MpOptions options = new MpOptions();
+        options.enable_mu = true;
+        options.browStyle = 2;
+        options.browColor = 1;
+        options.browStrength = 0.73f;
+        options.lipStyle = 1;
+        options.lipColor = 4;
+        options.lipStrength = 1f;
+        options.blushStrength = 0.125f;
+        return options;
+    }
+
+    /**
+     * The serializer toJson replaced: every declared field through reflection
+     * into a JSONObject. Limited to the fields the class had then, public
+     * instance fields and TAG, logging left out.
+     */
+    private static String legacyToJson(MpOptions options) throws Exception {
+        JSONObject jsonObject = new JSONObject();
+        Field[] fields = MpOptions.class.getDeclaredFields();
+        for (Field field : fields) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) ? !field.getName().equals("TAG") : !Modifier.isPublic(modifiers)) {
+                continue;
+            }
+            field.setAccessible(true);
+            jsonObject.put(field.getName(), field.get(options));
+        }
+        return jsonObject.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package io.agora.api.example.examples.advanced;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Benchmark
+ * Responsible for timing an operation in a unit test: warm-up runs, then the
+ * average wall time and heap bytes allocated per run on the calling thread.
+ * Numbers are printed for the report, tests assert on results, not timings.
+ */
+public final class Benchmark {
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    public static final class Result {
+        public final double nanosPerOp;
+        // -1 when the JVM cannot count allocations
+        public final double bytesPerOp;
+
+        Result(double nanosPerOp, double bytesPerOp) {
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f ns/op, %.0f B/op", nanosPerOp, bytesPerOp);
+        }
+    }
+
+    private Benchmark() {
+    }
+
+    public static Result measure(int warmup, int iterations, Operation operation) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytesAfter = allocatedBytes();
+        double bytes = bytesBefore < 0 || bytesAfter < 0 ? -1 : (double) (bytesAfter - bytesBefore) / iterations;
+        return new Result((double) elapsed / iterations, bytes);
+    }
+
+    public static void report(String name, Result result) {
+        System.out.println("[bench] " + name + ": " + result);
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,15 @@
+package io.agora.api.example.examples.advanced.device;
+
+import java.io.File;
+
+/**
+ * Builds capability caches without the SDK, nothing is probed so every feature is unknown
+ */
+public final class TestCapabilityCache {
+    private TestCapabilityCache() {
+    }
+
+    public static DeviceCapabilityCache create(File dir, String cacheKey) {
+        return new DeviceCapabilityCache(new File(dir, "device_capabilities.txt"), cacheKey);
+    }
+}
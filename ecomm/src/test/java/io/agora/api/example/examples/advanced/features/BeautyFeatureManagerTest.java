@@ -0,0 +1,88 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.content.Context;
+import android.widget.AdapterView;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.agora.api.example.bean.MpOptions;
+import io.agora.api.example.ecomm.R;
+import io.agora.rtc2.RtcEngine;
+import io.agora.rtc2.video.FaceShapeAreaOptions;
+import io.agora.rtc2.video.FaceShapeBeautyOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class BeautyFeatureManagerTest {
+    private static final int[] SPINNERS = {
+        R.id.spinner_shape_beauty_area, R.id.spinner_shape_beautify_style,
+        R.id.spinner_brow_style, R.id.spinner_lash_style, R.id.spinner_shadow_style,
+        R.id.spinner_pupil_style, R.id.spinner_blush_style, R.id.spinner_lip_style,
+        R.id.spinner_brow_color, R.id.spinner_lash_color, R.id.spinner_blush_color,
+        R.id.spinner_lip_color
+    };
+    private static final int REPEATS = 5;
+
+    private RtcEngine engine;
+    private BeautyFeatureManager beautyManager;
+    private final MpOptions makeUpOptions = new MpOptions();
+    private final FaceShapeAreaOptions faceShapeAreaOptions = new FaceShapeAreaOptions();
+    private final FaceShapeBeautyOptions faceShapeBeautyOptions = new FaceShapeBeautyOptions();
+
+    @Before
+    public void setUp() {
+        engine = mock(RtcEngine.class);
+        beautyManager = new BeautyFeatureManager(mock(Context.class), engine);
+    }
+
+    @Test
+    public void repeatedSelectionMakesNoEngineCalls() throws InterruptedException {
+        for (int id : SPINNERS) {
+            select(id, 1);
+        }
+        FilterManagerTest.drainEngineCommands();
+        clearInvocations(engine);
+        long sends = beautyManager.getMakeUpSendCount();
+
+        for (int i = 0; i < REPEATS; i++) {
+            for (int id : SPINNERS) {
+                select(id, 1);
+            }
+        }
+        FilterManagerTest.drainEngineCommands();
+
+        verifyNoInteractions(engine);
+        assertEquals(sends, beautyManager.getMakeUpSendCount());
+    }
+
+    @Test
+    public void changedSelectionSendsOnce() throws InterruptedException {
+        select(R.id.spinner_lip_color, 2);
+        FilterManagerTest.drainEngineCommands();
+        clearInvocations(engine);
+
+        select(R.id.spinner_lip_color, 3);
+        select(R.id.spinner_lip_color, 3);
+        FilterManagerTest.drainEngineCommands();
+
+        verify(engine, times(1)).setExtensionProperty(anyString(), anyString(), eq("makeup_options"),
+            contains("\"lipColor\":3"), any());
+    }
+
+    private void select(int spinnerId, int position) {
+        AdapterView<?> spinner = mock(AdapterView.class);
+        when(spinner.getId()).thenReturn(spinnerId);
+        beautyManager.handleSpinnerSelection(spinner, position, makeUpOptions, faceShapeAreaOptions, faceShapeBeautyOptions);
+    }
+}
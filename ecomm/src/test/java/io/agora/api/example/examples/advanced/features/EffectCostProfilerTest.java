@@ -0,0 +1,117 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.content.Context;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.agora.api.example.bean.BeautyPreset;
+import io.agora.api.example.examples.advanced.device.TestCapabilityCache;
+import io.agora.rtc2.RtcEngine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EffectCostProfilerTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void cancelRestoresStateOfRunningProfile() throws Exception {
+        Context context = mock(Context.class);
+        when(context.getApplicationContext()).thenReturn(context);
+        BeautyFeatureManager beautyManager = new BeautyFeatureManager(context, mock(RtcEngine.class));
+        BeautyPreset original = new BeautyPreset();
+        original.beautyEnabled = true;
+        original.denoiseEnabled = true;
+        beautyManager.applyPreset(original);
+
+        EffectCostProfiler profiler = new EffectCostProfiler(context, beautyManager, null,
+                TestCapabilityCache.create(temp.getRoot(), "test device"));
+        List<String> started = new ArrayList<>();
+        profiler.setListener(new EffectCostProfiler.Listener() {
+            @Override
+            public void onStageStarted(int index, int count, String stage) {
+                started.add(stage);
+            }
+
+            @Override
+            public void onFinished(List<EffectCostProfiler.StageResult> results, File csvFile, File jsonFile) {
+            }
+        });
+
+        assertTrue(profiler.start(null));
+        assertTrue(profiler.isRunning());
+        assertEquals(Collections.singletonList("baseline"), started);
+        assertFalse(beautyManager.isDenoiseEnabled());
+
+        profiler.cancel();
+        assertFalse(profiler.isRunning());
+        assertTrue(beautyManager.isDenoiseEnabled());
+        assertTrue(beautyManager.captureState().beautyEnabled);
+
+        // Nothing left to stop
+        profiler.cancel();
+        assertFalse(profiler.isRunning());
+        FilterManagerTest.drainEngineCommands();
+    }
+
+    @Test
+    public void percentileUsesNearestRank() {
+        double[] values = {5, 1, 4, 2, 3};
+        assertEquals(1, EffectCostProfiler.percentile(values, 0.05), 0);
+        assertEquals(3, EffectCostProfiler.percentile(values, 0.5), 0);
+        assertEquals(5, EffectCostProfiler.percentile(values, 0.95), 0);
+        assertEquals(5, EffectCostProfiler.percentile(values, 1), 0);
+        assertTrue(Double.isNaN(EffectCostProfiler.percentile(new double[0], 0.95)));
+        // The input is left unsorted
+        assertEquals(5, values[0], 0);
+        assertEquals(3, EffectCostProfiler.mean(values), 0);
+    }
+
+    @Test
+    public void reportsCarryStatsAndMissingValues() throws Exception {
+        List<EffectCostProfiler.StageResult> results = Arrays.asList(
+                new EffectCostProfiler.StageResult("baseline", Arrays.asList(
+                        sample(30, 30, 40), sample(28, 29, 50))),
+                new EffectCostProfiler.StageResult("face \"shape\", v2", Arrays.asList(
+                        sample(20, 18, -1))));
+
+        String csv = EffectCostProfiler.toCsv(results, "Pixel 7 / sdk 4.5.2", "HIGH");
+        String[] lines = csv.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("device,tier,stage,samples,"));
+        assertEquals("Pixel 7 / sdk 4.5.2,HIGH,baseline,2,29.0,28.0,29.5,29.0,45.0,50.0,,", lines[1]);
+        assertEquals("Pixel 7 / sdk 4.5.2,HIGH,\"face \"\"shape\"\", v2\",1,20.0,20.0,18.0,18.0,,,,", lines[2]);
+
+        JSONObject json = new JSONObject(EffectCostProfiler.toJson(results, "Pixel 7 / sdk 4.5.2", "HIGH"));
+        assertEquals("Pixel 7 / sdk 4.5.2", json.getString("device"));
+        assertEquals("HIGH", json.getString("tier"));
+        JSONArray stages = json.getJSONArray("stages");
+        assertEquals(2, stages.length());
+        JSONObject baseline = stages.getJSONObject(0);
+        assertEquals(2, baseline.getInt("samples"));
+        assertEquals(28.0, baseline.getJSONObject("captureFps").getDouble("p95"), 0);
+        assertEquals(50.0, baseline.getJSONObject("cpuTotal").getDouble("p95"), 0);
+        assertTrue(baseline.getJSONObject("cpuApp").isNull("mean"));
+        JSONObject shape = stages.getJSONObject(1);
+        assertEquals("face \"shape\", v2", shape.getString("stage"));
+        assertTrue(shape.getJSONObject("cpuTotal").isNull("p95"));
+    }
+
+    private static EffectQualityGovernor.Sample sample(int captureFps, int encoderFps, double cpuTotal) {
+        return new EffectQualityGovernor.Sample(0, captureFps, encoderFps, 30, cpuTotal, -1);
+    }
+}
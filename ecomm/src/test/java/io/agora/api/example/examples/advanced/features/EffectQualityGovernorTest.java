@@ -0,0 +1,85 @@
+package io.agora.api.example.examples.advanced.features;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class EffectQualityGovernorTest {
+    private static final long SAMPLE_INTERVAL_MS = 2000;
+
+    private final List<String> actions = new ArrayList<>();
+    private long now = 0;
+
+    @Test
+    public void degradeSkipsRungsOfEffectsThatAreOff() {
+        boolean[] enabled = {false, true, false};
+        EffectQualityGovernor governor = createGovernor(enabled);
+
+        overload(governor);
+        assertEquals(1, governor.getLevel());
+        assertEquals("degrade b", actions.get(0));
+
+        // Nothing left that would help, further overload changes nothing
+        overload(governor);
+        assertEquals(1, governor.getLevel());
+        assertEquals(1, actions.size());
+    }
+
+    @Test
+    public void restoreUndoesOnlyAppliedRungs() {
+        boolean[] enabled = {true, false, true};
+        EffectQualityGovernor governor = createGovernor(enabled);
+        overload(governor);
+        overload(governor);
+        assertEquals(2, governor.getLevel());
+
+        // An effect switched on later is degraded next
+        enabled[1] = true;
+        overload(governor);
+        assertEquals(3, governor.getLevel());
+
+        governor.reset();
+        assertEquals(0, governor.getLevel());
+        assertEquals(List.of("degrade a", "degrade c", "degrade b", "restore c", "restore b", "restore a"), actions);
+    }
+
+    @Test
+    public void healthySamplesRestoreLastAppliedRung() {
+        boolean[] enabled = {true, false, true};
+        EffectQualityGovernor governor = createGovernor(enabled);
+        overload(governor);
+        overload(governor);
+
+        now += 60000;
+        for (int i = 0; i < 5; i++) {
+            governor.onSample(sample(30));
+        }
+        assertEquals(1, governor.getLevel());
+        assertEquals("restore c", actions.get(actions.size() - 1));
+    }
+
+    private EffectQualityGovernor createGovernor(boolean[] enabled) {
+        EffectQualityGovernor governor = new EffectQualityGovernor();
+        String[] names = {"a", "b", "c"};
+        for (int i = 0; i < names.length; i++) {
+            int index = i;
+            String name = names[i];
+            governor.addStep(name, () -> enabled[index],
+                    () -> actions.add("degrade " + name), () -> actions.add("restore " + name));
+        }
+        return governor;
+    }
+
+    private void overload(EffectQualityGovernor governor) {
+        governor.onSample(sample(15));
+        governor.onSample(sample(15));
+    }
+
+    private EffectQualityGovernor.Sample sample(int encoderFps) {
+        now += SAMPLE_INTERVAL_MS;
+        return new EffectQualityGovernor.Sample(now, 30, encoderFps, 30, 40, 20);
+    }
+}
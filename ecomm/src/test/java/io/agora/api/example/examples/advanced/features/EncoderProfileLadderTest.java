@@ -0,0 +1,176 @@
+package io.agora.api.example.examples.advanced.features;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import io.agora.api.example.examples.advanced.device.DeviceTier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EncoderProfileLadderTest {
+    // Local video stats arrive every 2 seconds
+    private static final long SAMPLE_INTERVAL_MS = 2000;
+    private static final int TARGET_FPS = 30;
+    // 1080p30 needs 3150 kbps: below 2362 is congested, 2992 and up is clear
+    private static final int CONGESTED_1080_KBPS = 2000;
+    private static final int BAND_1080_KBPS = 2700;
+    private static final int CLEAR_720_KBPS = 1700;
+
+    private final EncoderProfileLadder ladder = EncoderProfileLadder.forTier(DeviceTier.HIGH);
+    private long now = 0;
+
+    @Test
+    public void startingRungKeepsMinimumDwell() {
+        // Congested from the first sample, the step waits for 6 s on the starting rung
+        int[] rungs = replay(new int[][] {
+            {CONGESTED_1080_KBPS, 2, 30},
+            {CONGESTED_1080_KBPS, 2, 30},
+            {CONGESTED_1080_KBPS, 2, 30},
+            {CONGESTED_1080_KBPS, 2, 30}
+        });
+        assertRungs(new int[] {0, 0, 0, 1}, rungs);
+        assertEquals("720p30", ladder.getProfile().name);
+        assertEquals(1, ladder.getStepDownCount());
+    }
+
+    @Test
+    public void lowBitrateSkipsRungsItCannotCarry() {
+        replay(new int[][] {
+            {900, 4, 30},
+            {900, 4, 30},
+            {900, 4, 30},
+            {900, 4, 30}
+        });
+        // 900 kbps carries neither 720p30 nor 720p24, straight to the bottom rung
+        assertEquals(3, ladder.getRung());
+        assertEquals(1, ladder.getStepDownCount());
+    }
+
+    @Test
+    public void slowEncoderStepsDownOneRung() {
+        // Bitrate unknown and quality fine, only the frame rate is too low
+        replay(new int[][] {
+            {-1, 1, 18},
+            {-1, 1, 18},
+            {-1, 1, 18},
+            {-1, 1, 18}
+        });
+        assertEquals(1, ladder.getRung());
+    }
+
+    @Test
+    public void hysteresisBandHoldsCurrentRung() {
+        // Bitrate between the down and up thresholds, however long it lasts
+        for (int i = 0; i < 60; i++) {
+            assertEquals(-1, sample(BAND_1080_KBPS, 2, 30));
+        }
+        // Single congested samples separated by band samples never build a streak
+        for (int i = 0; i < 30; i++) {
+            assertEquals(-1, sample(CONGESTED_1080_KBPS, 2, 30));
+            assertEquals(-1, sample(BAND_1080_KBPS, 3, 30));
+        }
+        assertEquals(0, ladder.getRung());
+        assertEquals(0, ladder.getStepDownCount());
+    }
+
+    @Test
+    public void failedStepUpDoublesUpDwellToCap() {
+        stepDownTo720();
+        long[] expected = {40000, 80000, 160000, 160000};
+        long dwell = new EncoderProfileLadder.Config().upDwellMs;
+        for (long nextDwell : expected) {
+            long downAt = now - SAMPLE_INTERVAL_MS;
+            // Clear uplink until the rung is regained, which takes the current up dwell
+            int steps = 0;
+            while (ladder.getRung() != 0) {
+                sample(CLEAR_720_KBPS, 1, 30);
+                assertTrue("no step up within " + steps + " samples", ++steps < 200);
+            }
+            long upAt = now - SAMPLE_INTERVAL_MS;
+            assertTrue(upAt - downAt >= dwell);
+
+            // Congestion right after the step up takes it back and doubles the dwell
+            while (ladder.getRung() != 1) {
+                sample(CONGESTED_1080_KBPS, 2, 30);
+            }
+            assertEquals(nextDwell, ladder.getUpDwellMs());
+            dwell = nextDwell;
+        }
+        assertEquals(expected.length, ladder.getStepUpCount());
+        assertEquals(expected.length + 1, ladder.getStepDownCount());
+    }
+
+    @Test
+    public void stepUpHeldOnceDoesNotDoubleDwell() {
+        stepDownTo720();
+        while (ladder.getRung() != 0) {
+            sample(CLEAR_720_KBPS, 1, 30);
+        }
+        // Stable for longer than the up dwell before congestion returns
+        for (int i = 0; i < 15; i++) {
+            sample(3100, 1, 30);
+        }
+        while (ladder.getRung() != 1) {
+            sample(CONGESTED_1080_KBPS, 2, 30);
+        }
+        assertEquals(new EncoderProfileLadder.Config().upDwellMs, ladder.getUpDwellMs());
+    }
+
+    @Test
+    public void resetReturnsToStartingRungAndDwell() {
+        stepDownTo720();
+        while (ladder.getRung() != 0) {
+            sample(CLEAR_720_KBPS, 1, 30);
+        }
+        while (ladder.getRung() != 1) {
+            sample(CONGESTED_1080_KBPS, 2, 30);
+        }
+        assertTrue(ladder.getUpDwellMs() > new EncoderProfileLadder.Config().upDwellMs);
+
+        ladder.reset();
+        assertEquals(0, ladder.getRung());
+        assertEquals(new EncoderProfileLadder.Config().upDwellMs, ladder.getUpDwellMs());
+        // The starting rung gets its full dwell again after a reset
+        int[] rungs = replay(new int[][] {
+            {CONGESTED_1080_KBPS, 2, 30},
+            {CONGESTED_1080_KBPS, 2, 30},
+            {CONGESTED_1080_KBPS, 2, 30},
+            {CONGESTED_1080_KBPS, 2, 30}
+        });
+        assertRungs(new int[] {0, 0, 0, 1}, rungs);
+    }
+
+    private void stepDownTo720() {
+        replay(new int[][] {
+            {CONGESTED_1080_KBPS, 2, 30},
+            {CONGESTED_1080_KBPS, 2, 30},
+            {CONGESTED_1080_KBPS, 2, 30},
+            {CONGESTED_1080_KBPS, 2, 30}
+        });
+        assertEquals(1, ladder.getRung());
+    }
+
+    /**
+     * Replay a trace of {uplink kbps, tx quality, encoder fps} rows, returns the rung after each
+     */
+    private int[] replay(int[][] trace) {
+        int[] rungs = new int[trace.length];
+        for (int i = 0; i < trace.length; i++) {
+            sample(trace[i][0], trace[i][1], trace[i][2]);
+            rungs[i] = ladder.getRung();
+        }
+        return rungs;
+    }
+
+    private int sample(int uplinkKbps, int txQuality, int encoderFps) {
+        int result = ladder.onSample(new EncoderProfileLadder.Sample(now, uplinkKbps, txQuality, encoderFps, TARGET_FPS));
+        now += SAMPLE_INTERVAL_MS;
+        return result;
+    }
+
+    private static void assertRungs(int[] expected, int[] actual) {
+        assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+    }
+}
@@ -0,0 +1,166 @@
+package io.agora.api.example.examples.advanced.features;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.agora.rtc2.RtcEngine;
+
+import static io.agora.api.example.examples.advanced.features.EngineLifecycle.State.CREATING;
+import static io.agora.api.example.examples.advanced.features.EngineLifecycle.State.DESTROYED;
+import static io.agora.api.example.examples.advanced.features.EngineLifecycle.State.IDLE;
+import static io.agora.api.example.examples.advanced.features.EngineLifecycle.State.JOINED;
+import static io.agora.api.example.examples.advanced.features.EngineLifecycle.State.JOINING;
+import static io.agora.api.example.examples.advanced.features.EngineLifecycle.State.LEAVING;
+import static io.agora.api.example.examples.advanced.features.EngineLifecycle.State.READY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class EngineLifecycleTest {
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 5000;
+    private static final int FIRST_UID = 1000;
+
+    private static final Map<EngineLifecycle.State, EnumSet<EngineLifecycle.State>> LEGAL =
+            new EnumMap<>(EngineLifecycle.State.class);
+
+    static {
+        LEGAL.put(IDLE, EnumSet.of(CREATING));
+        LEGAL.put(DESTROYED, EnumSet.of(CREATING));
+        LEGAL.put(CREATING, EnumSet.of(READY, IDLE));
+        LEGAL.put(READY, EnumSet.of(JOINING, DESTROYED));
+        LEGAL.put(JOINING, EnumSet.of(JOINED, LEAVING, READY, DESTROYED));
+        LEGAL.put(JOINED, EnumSet.of(LEAVING, DESTROYED));
+        LEGAL.put(LEAVING, EnumSet.of(READY, DESTROYED));
+    }
+
+    @Test
+    public void asyncJoinFailureReturnsToReady() {
+        EngineLifecycle lifecycle = new EngineLifecycle();
+        RtcEngine engine = mock(RtcEngine.class);
+        assertTrue(lifecycle.beginCreate());
+        assertTrue(lifecycle.onCreated(engine));
+
+        // Connection failed while joining: the join is abandoned through a leave
+        assertTrue(lifecycle.beginJoin());
+        assertTrue(lifecycle.beginLeave());
+        assertFalse(lifecycle.beginJoin());
+        assertTrue(lifecycle.onLeft());
+        assertEquals(READY, lifecycle.getState());
+
+        // The next join is accepted, a late join success for the old one is not
+        assertTrue(lifecycle.beginJoin());
+        assertTrue(lifecycle.onJoinFailed());
+        assertFalse(lifecycle.onJoined(FIRST_UID));
+        assertEquals(READY, lifecycle.getState());
+        assertEquals(engine, lifecycle.getEngine());
+    }
+
+    @Test
+    public void concurrentTransitionsStayLegal() throws Exception {
+        EngineLifecycle lifecycle = new EngineLifecycle();
+        AtomicLong illegal = new AtomicLong();
+        lifecycle.addListener((from, to) -> {
+            if (!LEGAL.get(from).contains(to)) {
+                illegal.incrementAndGet();
+            }
+        });
+        AtomicInteger creators = new AtomicInteger();
+        AtomicInteger maxCreators = new AtomicInteger();
+        AtomicLong inconsistent = new AtomicLong();
+        AtomicLong doubleDestroys = new AtomicLong();
+        Set<RtcEngine> destroyed = ConcurrentHashMap.newKeySet();
+
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int id = t;
+            futures.add(pool.submit(() -> {
+                barrier.await();
+                Random random = new Random(id);
+                for (int i = 0; i < ROUNDS; i++) {
+                    switch (random.nextInt(6)) {
+                        case 0:
+                            if (lifecycle.beginCreate()) {
+                                maxCreators.accumulateAndGet(creators.incrementAndGet(), Math::max);
+                                RtcEngine engine = mock(RtcEngine.class);
+                                creators.decrementAndGet();
+                                if (random.nextInt(10) == 0) {
+                                    lifecycle.onCreateFailed();
+                                } else {
+                                    lifecycle.onCreated(engine);
+                                }
+                            }
+                            break;
+                        case 1:
+                            if (lifecycle.beginJoin()) {
+                                if (random.nextInt(10) == 0) {
+                                    lifecycle.onJoinFailed();
+                                } else {
+                                    lifecycle.onJoined(FIRST_UID + id);
+                                }
+                            }
+                            break;
+                        case 2:
+                            if (lifecycle.beginLeave()) {
+                                lifecycle.onLeft();
+                            }
+                            break;
+                        case 3:
+                            RtcEngine engine = lifecycle.beginDestroy();
+                            if (engine != null && !destroyed.add(engine)) {
+                                doubleDestroys.incrementAndGet();
+                            }
+                            break;
+                        default:
+                            if (!isConsistent(lifecycle.getSnapshot())) {
+                                inconsistent.incrementAndGet();
+                            }
+                            break;
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertEquals(0, illegal.get());
+        assertEquals(0, inconsistent.get());
+        assertEquals(0, doubleDestroys.get());
+        assertEquals(1, maxCreators.get());
+        assertTrue(isConsistent(lifecycle.getSnapshot()));
+    }
+
+    private static boolean isConsistent(EngineLifecycle.Snapshot snapshot) {
+        switch (snapshot.state) {
+            case JOINED:
+                return snapshot.engine != null && snapshot.uid >= FIRST_UID;
+            case READY:
+            case JOINING:
+                return snapshot.engine != null && snapshot.uid == 0;
+            case LEAVING:
+                return snapshot.engine != null;
+            default:
+                return snapshot.engine == null && snapshot.uid == 0;
+        }
+    }
+}
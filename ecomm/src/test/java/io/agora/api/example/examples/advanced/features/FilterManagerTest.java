@@ -0,0 +1,101 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import io.agora.rtc2.RtcEngine;
+import io.agora.rtc2.video.FilterEffectOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FilterManagerTest {
+    private static final String FILTER = "built_in_whiten_filter";
+    private static final int DRAG_MS = 2000;
+    // Touch input on current phones is sampled at 120-240 Hz, faster than the display
+    private static final int TOUCH_INTERVAL_MS = 4;
+    private static final double FRAME_MS = 1000.0 / 60;
+
+    private RtcEngine engine;
+    private ManualFrameScheduler scheduler;
+    private FilterManager filterManager;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        engine = mock(RtcEngine.class);
+        when(engine.setFilterEffectOptions(anyBoolean(), any())).thenReturn(0);
+        scheduler = new ManualFrameScheduler();
+        filterManager = new FilterManager(mock(Context.class), engine, new EffectUpdateDispatcher(scheduler));
+        filterManager.applyFilter(FILTER, 0.5f);
+        drainEngineCommands();
+        clearInvocations(engine);
+    }
+
+    @Test
+    public void twoSecondDragIsCoalescedToDisplayFrames() throws InterruptedException {
+        int ticks = 0;
+        int frameIndex = 0;
+        for (int t = 0; t < DRAG_MS; t += TOUCH_INTERVAL_MS) {
+            filterManager.updateFilterStrength(t / (float) DRAG_MS);
+            ticks++;
+            while ((frameIndex + 1) * FRAME_MS <= t) {
+                scheduler.frame();
+                frameIndex++;
+                // The command thread has a whole frame to catch up
+                drainEngineCommands();
+            }
+        }
+        filterManager.commitFilterStrength(1.0f);
+        drainEngineCommands();
+
+        ArgumentCaptor<FilterEffectOptions> sent = ArgumentCaptor.forClass(FilterEffectOptions.class);
+        verify(engine, atLeastOnce()).setFilterEffectOptions(eq(true), sent.capture());
+        List<FilterEffectOptions> calls = sent.getAllValues();
+        System.out.println("[drag] " + ticks + " slider ticks over " + DRAG_MS + " ms, " + scheduler.getFrameCount()
+                + " frames -> " + filterManager.getStrengthEngineCallCount() + " strength sends, "
+                + calls.size() + " engine calls");
+
+        assertEquals(ticks + 1, filterManager.getStrengthRequestCount());
+        // One send per frame that saw a tick, plus the release
+        assertTrue(filterManager.getStrengthEngineCallCount() <= scheduler.getFrameCount() + 1);
+        assertEquals(filterManager.getStrengthEngineCallCount(), calls.size());
+        FilterEffectOptions last = calls.get(calls.size() - 1);
+        assertEquals(1.0f, last.strength, 0f);
+        assertEquals(FILTER, last.path);
+    }
+
+    @Test
+    public void releaseAppliesFinalValueWithoutAFrame() throws InterruptedException {
+        filterManager.updateFilterStrength(0.2f);
+        filterManager.updateFilterStrength(0.3f);
+        filterManager.commitFilterStrength(0.7f);
+        // A frame after the release must not resend the stale drag value
+        scheduler.frame();
+        drainEngineCommands();
+
+        ArgumentCaptor<FilterEffectOptions> sent = ArgumentCaptor.forClass(FilterEffectOptions.class);
+        verify(engine, atLeastOnce()).setFilterEffectOptions(eq(true), sent.capture());
+        assertEquals(1, filterManager.getStrengthEngineCallCount());
+        assertEquals(0.7f, sent.getValue().strength, 0f);
+    }
+
+    /**
+     * Wait until the engine command thread ran everything queued so far
+     */
+    static void drainEngineCommands() throws InterruptedException {
+        EngineCommandExecutor.getInstance().call(null, () -> 0);
+    }
+}
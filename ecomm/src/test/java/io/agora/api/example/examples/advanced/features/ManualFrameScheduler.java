@@ -0,0 +1,46 @@
+package io.agora.api.example.examples.advanced.features;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manual Frame Scheduler
+ * Responsible for standing in for the Choreographer in unit tests: frame
+ * callbacks are queued and run when the test advances a frame
+ */
+final class ManualFrameScheduler implements EffectUpdateDispatcher.FrameScheduler {
+    private static final long FRAME_NANOS = 16_666_667L;
+
+    private final List<Choreographer.FrameCallback> queue = new ArrayList<>();
+    private long frameTimeNanos;
+    private int frameCount;
+
+    @Override
+    public void postFrameCallback(Choreographer.FrameCallback callback) {
+        queue.add(callback);
+    }
+
+    @Override
+    public void removeFrameCallback(Choreographer.FrameCallback callback) {
+        queue.remove(callback);
+    }
+
+    /**
+     * Run the callbacks posted before this frame
+     */
+    void frame() {
+        frameTimeNanos += FRAME_NANOS;
+        frameCount++;
+        List<Choreographer.FrameCallback> due = new ArrayList<>(queue);
+        queue.clear();
+        for (Choreographer.FrameCallback callback : due) {
+            callback.doFrame(frameTimeNanos);
+        }
+    }
+
+    int getFrameCount() {
+        return frameCount;
+    }
+}
@@ -0,0 +1,84 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryLutFileTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void roundTripsEveryBundledCube() throws IOException {
+        File[] cubes = BundledCubes.list();
+        assertEquals(BundledCubes.COUNT, cubes.length);
+        for (File cube : cubes) {
+            CubeLut parsed = CubeParser.parse(cube);
+            File compiled = new File(temp.getRoot(), BinaryLutFile.compiledName(cube));
+            BinaryLutFile.write(parsed, compiled);
+            assertLutEquals(cube.getName(), parsed, BinaryLutFile.read(compiled));
+        }
+    }
+
+    @Test
+    public void loadOrCompileReusesCompiledCopy() throws IOException {
+        File cube = BundledCubes.list()[0];
+        File compiled = new File(temp.getRoot(), BinaryLutFile.compiledName(cube));
+        CubeLut first = BinaryLutFile.loadOrCompile(cube, compiled);
+        assertTrue(compiled.exists());
+        long compiledAt = compiled.lastModified();
+
+        CubeLut second = BinaryLutFile.loadOrCompile(cube, compiled);
+        assertEquals(compiledAt, compiled.lastModified());
+        assertLutEquals(cube.getName(), first, second);
+    }
+
+    @Test
+    public void loadOrCompileRebuildsCorruptCopy() throws IOException {
+        File cube = BundledCubes.list()[0];
+        File compiled = temp.newFile(BinaryLutFile.compiledName(cube));
+        assertTrue(compiled.setLastModified(cube.lastModified() + 1000));
+
+        CubeLut lut = BinaryLutFile.loadOrCompile(cube, compiled);
+        assertLutEquals(cube.getName(), CubeParser.parse(cube), lut);
+        assertLutEquals(cube.getName(), lut, BinaryLutFile.read(compiled));
+    }
+
+    @Test
+    public void compiledNameSeparatesSameNameInOtherDirectory() throws IOException {
+        File bundled = new File(temp.newFolder("filters"), "Waves.cube");
+        File picked = new File(temp.newFolder("sdcard"), "Waves.cube");
+
+        assertNotEquals(BinaryLutFile.compiledName(bundled), BinaryLutFile.compiledName(picked));
+        assertEquals(BinaryLutFile.compiledName(bundled),
+                BinaryLutFile.compiledName(new File(bundled.getParentFile(), "Waves.cube")));
+        assertTrue(BinaryLutFile.compiledName(bundled).startsWith("Waves_"));
+        assertTrue(BinaryLutFile.compiledName(bundled).endsWith(BinaryLutFile.EXTENSION));
+    }
+
+    static void assertLutEquals(String name, CubeLut expected, CubeLut actual) {
+        int size = expected.getSize();
+        assertEquals(name, size, actual.getSize());
+        assertEquals(name, expected.getTitle(), actual.getTitle());
+        assertArrayEquals(name, expected.getDomainMin(), actual.getDomainMin(), 0f);
+        assertArrayEquals(name, expected.getDomainMax(), actual.getDomainMax(), 0f);
+        for (int b = 0; b < size; b++) {
+            for (int g = 0; g < size; g++) {
+                for (int r = 0; r < size; r++) {
+                    for (int ch = 0; ch < 3; ch++) {
+                        assertEquals(name + " at " + r + "," + g + "," + b,
+                                expected.get(r, g, b, ch), actual.get(r, g, b, ch), 0f);
+                    }
+                }
+            }
+        }
+    }
+}
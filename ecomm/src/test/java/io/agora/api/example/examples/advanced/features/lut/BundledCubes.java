@@ -0,0 +1,30 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Bundled Cubes
+ * Responsible for locating the .cube assets shipped in the app, unit tests run
+ * with the module directory as working directory.
+ */
+public final class BundledCubes {
+    public static final int COUNT = 9;
+
+    private static final File DIRECTORY = new File("src/main/assets/lut");
+
+    private BundledCubes() {
+    }
+
+    /**
+     * Get the bundled cube files sorted by name
+     */
+    public static File[] list() {
+        File[] files = DIRECTORY.listFiles((dir, name) -> name.endsWith(".cube"));
+        assertNotNull("Bundled cubes not found in " + DIRECTORY.getAbsolutePath(), files);
+        Arrays.sort(files);
+        return files;
+    }
+}
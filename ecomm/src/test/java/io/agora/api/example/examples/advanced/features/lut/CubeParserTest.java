@@ -0,0 +1,136 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import io.agora.api.example.examples.advanced.Benchmark;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CubeParserTest {
+    private static final int BENCH_SIZE = 65;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void parsesEveryBundledCube() throws IOException {
+        for (File cube : BundledCubes.list()) {
+            CubeLut lut = CubeParser.parse(cube);
+            assertEquals(cube.getName(), lut.getEntryCount() * 3, lut.getTable().length);
+            assertArrayEquals(cube.getName(), readLineBaseline(cube), lut.getTable(), 0f);
+        }
+    }
+
+    @Test
+    public void decodesTitleAsUtf8() throws IOException {
+        CubeLut lut = parse("TITLE \"Café 夜景\"\nLUT_3D_SIZE 2\n" + grid(2));
+        assertEquals("Café 夜景", lut.getTitle());
+    }
+
+    @Test
+    public void acceptsOutputsOutsideUnitRange() throws IOException {
+        String rest = grid(2).substring(grid(2).indexOf('\n') + 1);
+        CubeLut lut = parse("LUT_3D_SIZE 2\n1.02 -0.01 0.5\n" + rest);
+        assertEquals(1.02f, lut.getTable()[0], 0f);
+        assertEquals(-0.01f, lut.getTable()[1], 0f);
+
+        // The input range does not bound the outputs
+        lut = parse("LUT_3D_INPUT_RANGE 0 0.5\nLUT_3D_SIZE 2\n" + grid(2));
+        assertEquals(1f, lut.getTable()[lut.getTable().length - 1], 0f);
+    }
+
+    @Test
+    public void rejectsImplausibleOutput() throws IOException {
+        try {
+            parse("LUT_3D_SIZE 2\n0 1e6 0\n" + grid(2));
+            fail("1e6 output accepted");
+        } catch (CubeFormatException e) {
+            assertEquals(2, e.getLine());
+        }
+    }
+
+    @Test
+    public void rejectsGridLargerThanCap() throws IOException {
+        try {
+            parse("LUT_3D_SIZE 130\n0 0 0\n");
+            fail("130^3 grid accepted");
+        } catch (CubeFormatException e) {
+            assertEquals(1, e.getLine());
+        }
+    }
+
+    @Test
+    public void rejectsShortGrid() throws IOException {
+        try {
+            parse("LUT_3D_SIZE 2\n0 0 0\n");
+            fail("Short grid accepted");
+        } catch (CubeFormatException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void benchmarkAgainstReadLineSplit() throws Exception {
+        File cube = temp.newFile("bench.cube");
+        CubeWriter.write(LutResampler.resample(CubeParser.parse(BundledCubes.list()[0]), BENCH_SIZE), cube);
+        assertArrayEquals(readLineBaseline(cube), CubeParser.parse(cube).getTable(), 0f);
+
+        Benchmark.Result parser = Benchmark.measure(3, 10, () -> CubeParser.parse(cube));
+        Benchmark.Result baseline = Benchmark.measure(3, 10, () -> readLineBaseline(cube));
+        Benchmark.report("CubeParser " + BENCH_SIZE + "^3", parser);
+        Benchmark.report("readLine+split " + BENCH_SIZE + "^3", baseline);
+    }
+
+    private static CubeLut parse(String text) throws IOException {
+        return CubeParser.parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String grid(int size) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < size * size * size; i++) {
+            builder.append(i % size).append(' ').append(i / size % size).append(' ').append(i / size / size).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The line-based reader the streaming parser replaced
+     */
+    private static float[] readLineBaseline(File cube) throws IOException {
+        try (InputStream in = new FileInputStream(cube);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            float[] table = null;
+            int count = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if (parts[0].equals("LUT_3D_SIZE")) {
+                    int size = Integer.parseInt(parts[1]);
+                    table = new float[size * size * size * 3];
+                } else if (Character.isDigit(parts[0].charAt(0)) || parts[0].charAt(0) == '-' || parts[0].charAt(0) == '.') {
+                    for (int i = 0; i < 3; i++) {
+                        table[count++] = Float.parseFloat(parts[i]);
+                    }
+                }
+            }
+            return table;
+        }
+    }
+}
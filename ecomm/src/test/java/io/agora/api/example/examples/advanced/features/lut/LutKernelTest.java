@@ -0,0 +1,261 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import io.agora.api.example.examples.advanced.Benchmark;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LutKernelTest {
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    // Fixed-point grid and weights against the float reference, in 8-bit levels
+    private static final int MAX_LEVEL_ERROR = 2;
+
+    private LutKernel kernel;
+    private CubeLut lut;
+
+    @Before
+    public void setUp() throws IOException {
+        kernel = new LutKernel(4);
+        lut = CubeParser.parse(BundledCubes.list()[0]);
+        kernel.setLut(lut);
+    }
+
+    @After
+    public void tearDown() {
+        kernel.release();
+    }
+
+    @Test
+    public void matchesFloatReferenceOnEveryBundledCube() throws IOException {
+        Frame source = Frame.random(317, 181, 7);
+        for (java.io.File cube : BundledCubes.list()) {
+            CubeLut current = CubeParser.parse(cube);
+            kernel.setLut(current);
+            for (float strength : new float[] {1f, 0.6f}) {
+                Frame actual = source.copy();
+                kernel.applyI420(actual.y, actual.width, actual.u, actual.chromaStride(), actual.v, actual.chromaStride(),
+                        actual.width, actual.height, strength);
+                Frame expected = source.copy();
+                reference(current, expected, strength);
+                assertClose(cube.getName() + " @" + strength, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void nv21MatchesI420() {
+        Frame i420 = Frame.random(64, 37, 3);
+        byte[] nv21 = i420.toNv21();
+        kernel.applyI420(i420.y, i420.width, i420.u, i420.chromaStride(), i420.v, i420.chromaStride(),
+                i420.width, i420.height, 0.8f);
+        kernel.applyNv21(nv21, i420.width, i420.height, 0.8f);
+        assertArrayEquals(i420.toNv21(), nv21);
+    }
+
+    @Test
+    public void directBuffersMatchArrays() {
+        Frame frame = Frame.random(WIDTH / 4, HEIGHT / 4, 11);
+        ByteBuffer y = direct(frame.y);
+        ByteBuffer u = direct(frame.u);
+        ByteBuffer v = direct(frame.v);
+        kernel.applyI420(frame.y, frame.width, frame.u, frame.chromaStride(), frame.v, frame.chromaStride(),
+                frame.width, frame.height, 1f);
+        kernel.applyI420(y, frame.width, u, frame.chromaStride(), v, frame.chromaStride(), frame.width, frame.height, 1f);
+        assertArrayEquals(frame.y, bytes(y));
+        assertArrayEquals(frame.u, bytes(u));
+        assertArrayEquals(frame.v, bytes(v));
+    }
+
+    @Test(timeout = 10000)
+    public void survivesFailingStripe() {
+        Frame frame = Frame.random(64, 64, 5);
+        try {
+            // Planes too small for the frame, stripes past the end throw
+            kernel.applyI420(frame.y, frame.width, frame.u, frame.chromaStride(), frame.v, frame.chromaStride(),
+                    frame.width, frame.height * 4, 1f);
+            fail("Out of range frame accepted");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        for (int i = 0; i < 3; i++) {
+            Frame next = frame.copy();
+            kernel.applyI420(next.y, next.width, next.u, next.chromaStride(), next.v, next.chromaStride(),
+                    next.width, next.height, 1f);
+        }
+        assertEquals(3, kernel.getFrameCount());
+    }
+
+    @Test(timeout = 10000)
+    public void survivesErrorInStripe() {
+        Frame frame = Frame.random(64, 64, 9);
+        ByteBuffer plane = ByteBuffer.allocateDirect(16);
+        try {
+            // Every stripe grows its scratch rows to the width, past the VM array limit here
+            kernel.applyI420(plane, 0, plane, 0, plane, 0, Integer.MAX_VALUE / 2, 2, 1f);
+            fail("Scratch rows past the array limit allocated");
+        } catch (OutOfMemoryError e) {
+            // expected
+        }
+        // Workers that hit the error still serve the next frames
+        for (int i = 0; i < 3; i++) {
+            Frame next = frame.copy();
+            kernel.applyI420(direct(next.y), next.width, direct(next.u), next.chromaStride(),
+                    direct(next.v), next.chromaStride(), next.width, next.height, 1f);
+        }
+        assertEquals(3, kernel.getFrameCount());
+    }
+
+    @Test
+    public void benchmark1080p() throws Exception {
+        Frame frame = Frame.random(WIDTH, HEIGHT, 1);
+        ByteBuffer y = direct(frame.y);
+        ByteBuffer u = direct(frame.u);
+        ByteBuffer v = direct(frame.v);
+        int chromaStride = frame.chromaStride();
+        Benchmark.Result arrays = Benchmark.measure(20, 60, () -> kernel.applyI420(frame.y, WIDTH, frame.u, chromaStride,
+                frame.v, chromaStride, WIDTH, HEIGHT, 0.8f));
+        Benchmark.Result buffers = Benchmark.measure(20, 60, () -> kernel.applyI420(y, WIDTH, u, chromaStride,
+                v, chromaStride, WIDTH, HEIGHT, 0.8f));
+        Benchmark.report("LutKernel 1080p arrays, 4 threads", arrays);
+        Benchmark.report("LutKernel 1080p direct buffers, 4 threads", buffers);
+        assertTrue(arrays.nanosPerOp > 0 && buffers.nanosPerOp > 0);
+    }
+
+    /**
+     * Float reference: the same YUV conversions and 2x2 chroma average as the
+     * kernel, with the LUT sampled by {@link CubeLut#sample}
+     */
+    private static void reference(CubeLut lut, Frame frame, float strength) {
+        float[] rgb = new float[3];
+        int chromaWidth = frame.chromaStride();
+        for (int cy = 0; cy < (frame.height + 1) / 2; cy++) {
+            for (int cx = 0; cx < chromaWidth; cx++) {
+                int inU = frame.u[cy * chromaWidth + cx] & 0xFF;
+                int inV = frame.v[cy * chromaWidth + cx] & 0xFF;
+                int d = inU - 128;
+                int e = inV - 128;
+                double sumR = 0;
+                double sumG = 0;
+                double sumB = 0;
+                int count = 0;
+                for (int py = cy * 2; py < Math.min(cy * 2 + 2, frame.height); py++) {
+                    for (int px = cx * 2; px < Math.min(cx * 2 + 2, frame.width); px++) {
+                        int inY = frame.y[py * frame.width + px] & 0xFF;
+                        int c = 298 * (inY - 16);
+                        lut.sample(clamp((c + 409 * e + 128) >> 8) / 255f, clamp((c - 100 * d - 208 * e + 128) >> 8) / 255f,
+                                clamp((c + 516 * d + 128) >> 8) / 255f, rgb);
+                        double r = level(rgb[0]);
+                        double g = level(rgb[1]);
+                        double b = level(rgb[2]);
+                        double outY = (66 * r + 129 * g + 25 * b) / 256 + 16;
+                        frame.y[py * frame.width + px] = (byte) Math.round(inY + (outY - inY) * strength);
+                        sumR += r;
+                        sumG += g;
+                        sumB += b;
+                        count++;
+                    }
+                }
+                double r = sumR / count;
+                double g = sumG / count;
+                double b = sumB / count;
+                double outU = (-38 * r - 74 * g + 112 * b) / 256 + 128;
+                double outV = (112 * r - 94 * g - 18 * b) / 256 + 128;
+                frame.u[cy * chromaWidth + cx] = (byte) Math.round(inU + (outU - inU) * strength);
+                frame.v[cy * chromaWidth + cx] = (byte) Math.round(inV + (outV - inV) * strength);
+            }
+        }
+    }
+
+    private static double level(float value) {
+        return Math.max(0f, Math.min(1f, value)) * 255;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+
+    private static void assertClose(String name, Frame expected, Frame actual) {
+        assertPlaneClose(name + " Y", expected.y, actual.y);
+        assertPlaneClose(name + " U", expected.u, actual.u);
+        assertPlaneClose(name + " V", expected.v, actual.v);
+    }
+
+    private static void assertPlaneClose(String name, byte[] expected, byte[] actual) {
+        int max = 0;
+        for (int i = 0; i < expected.length; i++) {
+            max = Math.max(max, Math.abs((expected[i] & 0xFF) - (actual[i] & 0xFF)));
+        }
+        assertTrue(name + " differs by " + max + " levels", max <= MAX_LEVEL_ERROR);
+    }
+
+    private static ByteBuffer direct(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).position(0);
+        return buffer;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.capacity()];
+        buffer.position(0);
+        buffer.get(data).position(0);
+        return data;
+    }
+
+    private static final class Frame {
+        final int width;
+        final int height;
+        final byte[] y;
+        final byte[] u;
+        final byte[] v;
+
+        Frame(int width, int height, byte[] y, byte[] u, byte[] v) {
+            this.width = width;
+            this.height = height;
+            this.y = y;
+            this.u = u;
+            this.v = v;
+        }
+
+        static Frame random(int width, int height, long seed) {
+            Random random = new Random(seed);
+            int chroma = (width + 1) / 2 * ((height + 1) / 2);
+            byte[] y = new byte[width * height];
+            byte[] u = new byte[chroma];
+            byte[] v = new byte[chroma];
+            random.nextBytes(y);
+            random.nextBytes(u);
+            random.nextBytes(v);
+            return new Frame(width, height, y, u, v);
+        }
+
+        int chromaStride() {
+            return (width + 1) / 2;
+        }
+
+        Frame copy() {
+            return new Frame(width, height, y.clone(), u.clone(), v.clone());
+        }
+
+        byte[] toNv21() {
+            int strideUv = (width + 1) / 2 * 2;
+            byte[] data = new byte[width * height + strideUv * ((height + 1) / 2)];
+            System.arraycopy(y, 0, data, 0, y.length);
+            for (int i = 0; i < u.length; i++) {
+                data[width * height + i * 2] = v[i];
+                data[width * height + i * 2 + 1] = u[i];
+            }
+            return data;
+        }
+    }
+}
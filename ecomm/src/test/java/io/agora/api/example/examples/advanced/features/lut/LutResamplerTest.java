@@ -0,0 +1,54 @@
+package io.agora.api.example.examples.advanced.features.lut;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import io.agora.api.example.examples.advanced.device.DeviceTier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LutResamplerTest {
+    private static final int PROBES_PER_AXIS = 48;
+    // CIE76 delta E around 2 is at the edge of what viewers notice side by side.
+    // Only the mean is bounded: the worst probe sits on the sharpest feature of
+    // a look, e.g. the crushed shadows of Waves, and is reported instead.
+    private static final double MAX_MEAN_DELTA_E = 1.0;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void sameSizeIsLossless() throws IOException {
+        CubeLut lut = CubeParser.parse(BundledCubes.list()[0]);
+        double[] delta = LutResampler.deltaE(lut, LutResampler.resample(lut, lut.getSize()), PROBES_PER_AXIS);
+        assertEquals(0, delta[1], 1e-4);
+    }
+
+    /**
+     * Report the error of every bundled asset resampled to every tier grid, as
+     * the engine sees it: written as a .cube and parsed back
+     */
+    @Test
+    public void deltaEReportForBundledAssets() throws IOException {
+        for (File cube : BundledCubes.list()) {
+            CubeLut source = CubeParser.parse(cube);
+            for (DeviceTier tier : DeviceTier.values()) {
+                int size = tier.getMaxLutSize();
+                if (size >= source.getSize()) {
+                    continue;
+                }
+                File written = temp.newFile(BinaryLutFile.sourceKey(cube) + "_" + size + ".cube");
+                CubeWriter.write(LutResampler.resample(source, size), written);
+                double[] delta = LutResampler.deltaE(source, CubeParser.parse(written), PROBES_PER_AXIS);
+                System.out.printf("[deltaE] %-45s %2d^3 -> %2d^3 (%s): mean %.3f, max %.3f%n",
+                        cube.getName(), source.getSize(), size, tier, delta[0], delta[1]);
+                assertTrue(cube.getName() + " mean " + delta[0], delta[0] <= MAX_MEAN_DELTA_E);
+            }
+        }
+    }
+}